@@ -1,5 +1,29 @@
+import com.android.build.api.artifact.SingleArtifact
+import com.android.build.api.variant.BuiltArtifactsLoader
+import groovy.json.JsonSlurper
+import java.awt.RenderingHints
+import java.awt.image.BufferedImage
+import java.io.BufferedOutputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+import java.io.IOException
+import java.net.HttpURLConnection
+import java.net.URI
+import java.net.URLEncoder
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.util.Properties
+import java.util.zip.ZipFile
+import javax.imageio.ImageIO
+import javax.inject.Inject
+import javax.xml.stream.XMLInputFactory
+import javax.xml.stream.XMLStreamConstants
+import org.gradle.process.CommandLineArgumentProvider
+import org.gradle.process.ExecOperations
+
 plugins {
     alias(libs.plugins.android.application)
+    alias(libs.plugins.baselineprofile)
     id("com.onesignal.androidsdk.onesignal-gradle-plugin")
 }
 
@@ -15,11 +39,23 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // backend/server.py listens on 8001; 10.0.2.2 is the host machine seen from the emulator.
+        // Point devices elsewhere with -Pbackend.url=...
+        val backendUrl = providers.gradleProperty("backend.url").getOrElse("http://10.0.2.2:8001/api")
+        buildConfigField("String", "BACKEND_API_URL", "\"$backendUrl\"")
+
+        // Map tile server whose policy allows prefetching, e.g. -Ptiles.url=http://10.0.2.2:8001/api/tiles/SK/
+        // (backend/server.py with TILE_PACK_DIR). Empty: public OpenStreetMap tiles, no prefetching
+        val tileServerUrl = providers.gradleProperty("tiles.url").getOrElse("")
+        buildConfigField("String", "TILE_SERVER_URL", "\"$tileServerUrl\"")
     }
 
     buildTypes {
         release {
-            isMinifyEnabled = false
+            // R8 in full mode (gradle.properties), see proguard-rules.pro for the keep rules
+            isMinifyEnabled = true
+            isShrinkResources = true
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
@@ -32,9 +68,654 @@ android {
     }
     buildFeatures {
         viewBinding = true
+        // BuildConfig.DEBUG keeps SDK debug logging out of release builds
+        buildConfig = true
+    }
+    testOptions {
+        // Plain JVM tests touch android.util.Log through the networking code
+        unitTests.isReturnDefaultValues = true
+    }
+    androidResources {
+        // Drop the translations libraries ship for languages the app does not support
+        localeFilters += listOf("en", "sk", "uk")
+        // Keep the AED index uncompressed so it can be memory-mapped from the APK
+        noCompress += "aedx"
+        // Tile packs hold already-compressed images; storing them avoids a pointless inflate on copy
+        noCompress += "mbtiles"
+        // Road graphs are memory-mapped by RouteRepository, which needs them stored
+        noCompress += "graph"
+    }
+}
+
+/**
+ * Compiles every `<COUNTRY>.geojson` in src/main/geojson, together with its localized
+ * `<COUNTRY>_<lang>.geojson` siblings, into a binary `aed/<COUNTRY>.aedx` asset.
+ *
+ * Layout (big-endian): "AEDX" magic, version, AED count, then a shared geometry block of
+ * columnar osm ids and lat/lon arrays quantized to 1e-7 degrees. One block per language
+ * follows: language code, byte length, an interned string table and three columns of
+ * unsigned short indices into it (location, access, opening hours).
+ * Read by AedIndexReader on the device.
+ */
+abstract class CompileAedIndexTask : DefaultTask() {
+
+    @get:InputDirectory
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val geoJsonDir: DirectoryProperty
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @TaskAction
+    fun compile() {
+        val sources = geoJsonDir.get().asFile
+        val target = outputDir.get().asFile.resolve("aed")
+        target.deleteRecursively()
+        target.mkdirs()
+
+        val countries = sources.listFiles { f -> f.name.matches(Regex("[A-Z]+\\.geojson")) }
+            ?.sortedBy { it.name }
+            .orEmpty()
+        for (base in countries) {
+            val country = base.nameWithoutExtension
+            val localized = sources.listFiles { f -> f.name.matches(Regex("${country}_[a-z]+\\.geojson")) }
+                ?.sortedBy { it.name }
+                .orEmpty()
+            writeIndex(base, localized, target.resolve("$country.aedx"))
+        }
+    }
+
+    private fun readFeatures(file: File): List<Map<*, *>> {
+        val root = JsonSlurper().parse(file, "UTF-8") as Map<*, *>
+        return (root["features"] as List<*>)
+            .map { it as Map<*, *> }
+            .filter { (it["geometry"] as? Map<*, *>)?.get("type") == "Point" }
+    }
+
+    private fun osmId(feature: Map<*, *>): Long =
+        ((feature["properties"] as Map<*, *>)["@osm_id"] as Number).toLong()
+
+    private fun writeIndex(base: File, localized: List<File>, output: File) {
+        val features = readFeatures(base)
+
+        DataOutputStream(BufferedOutputStream(output.outputStream())).use { out ->
+            out.writeInt(0x41454458) // "AEDX"
+            out.writeInt(1)
+            out.writeInt(features.size)
+
+            features.forEach { out.writeLong(osmId(it)) }
+            val coordinates = features.map { (it["geometry"] as Map<*, *>)["coordinates"] as List<*> }
+            coordinates.forEach { out.writeInt(Math.round((it[1] as Number).toDouble() * 1e7).toInt()) }
+            coordinates.forEach { out.writeInt(Math.round((it[0] as Number).toDouble() * 1e7).toInt()) }
+
+            out.writeInt(localized.size)
+            for (file in localized) {
+                val properties = readFeatures(file).associate { osmId(it) to it["properties"] as Map<*, *> }
+                val strings = LinkedHashMap<String, Int>()
+                fun intern(value: Any?, fallback: String): Int =
+                    strings.getOrPut(value?.toString() ?: fallback) { strings.size }
+
+                val columns = features.map { feature ->
+                    val props = properties[osmId(feature)] ?: feature["properties"] as Map<*, *>
+                    intArrayOf(
+                        intern(props["defibrillator:location"], "AED"),
+                        intern(props["access"], "-"),
+                        intern(props["opening_hours"], "-")
+                    )
+                }
+                check(strings.size <= 0xFFFF) { "Too many distinct strings in ${file.name}" }
+
+                val block = ByteArrayOutputStream()
+                DataOutputStream(block).use { table ->
+                    table.writeInt(strings.size)
+                    for (value in strings.keys) {
+                        val bytes = value.toByteArray(Charsets.UTF_8)
+                        table.writeShort(bytes.size)
+                        table.write(bytes)
+                    }
+                    for (column in 0 until 3) {
+                        columns.forEach { table.writeShort(it[column]) }
+                    }
+                }
+
+                val language = file.nameWithoutExtension.substringAfter('_').toByteArray(Charsets.UTF_8)
+                out.writeShort(language.size)
+                out.write(language)
+                out.writeInt(block.size())
+                block.writeTo(out)
+            }
+        }
+    }
+}
+
+val compileAedIndex = tasks.register<CompileAedIndexTask>("compileAedIndex") {
+    geoJsonDir.set(layout.projectDirectory.dir("src/main/geojson"))
+}
+
+/**
+ * Compiles every `<REGION>.osm` extract (OSM XML) into the pedestrian road graph asset
+ * `routing/<REGION>_foot.graph` that RouteRepository routes on. The extracts come from
+ * src/main/osm or from downloadRoadExtract.
+ *
+ * Ways with a walkable highway tag become two directed edges per segment, weighted by
+ * their haversine length; ways closed to pedestrians (foot=no, access=no/private without
+ * a foot permission) are left out. Only nodes on kept ways are written.
+ *
+ * Layout (big-endian), read by RoadGraph: "RGPH" magic, version 1, node count, edge
+ * count, then latE7[n], lonE7[n], firstEdge[n + 1], edgeTarget[m] and edgeLength[m]
+ * (float meters).
+ */
+abstract class CompileRoadGraphTask : DefaultTask() {
+
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val osmFiles: ConfigurableFileCollection
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    private val walkable = setOf(
+        "footway", "pedestrian", "path", "steps", "living_street", "residential", "service",
+        "unclassified", "road", "track", "cycleway", "bridleway", "corridor",
+        "tertiary", "tertiary_link", "secondary", "secondary_link", "primary", "primary_link"
+    )
+    private val footAllowed = setOf("yes", "designated", "permissive", "destination")
+
+    @TaskAction
+    fun compile() {
+        val target = outputDir.get().asFile.resolve("routing")
+        target.deleteRecursively()
+        target.mkdirs()
+        // The first extract of a region wins: src/main/osm before a downloaded one
+        for (file in osmFiles.files.filter { it.isFile }.distinctBy { it.name }.sortedBy { it.name }) {
+            val output = target.resolve("${file.name.removeSuffix(".osm")}_foot.graph")
+            val (nodes, edges) = writeGraph(file, output)
+            logger.lifecycle("${output.name}: $nodes nodes, $edges edges from ${file.name}")
+        }
+    }
+
+    private fun isWalkable(tags: Map<String, String>): Boolean {
+        val highway = tags["highway"] ?: return false
+        if (highway !in walkable) return false
+        val foot = tags["foot"]
+        if (foot == "no") return false
+        val access = tags["access"]
+        return !(access == "no" || access == "private") || foot in footAllowed
+    }
+
+    private fun writeGraph(file: File, output: File): Pair<Int, Int> {
+        val coordinates = HashMap<Long, Long>()
+        val ways = ArrayList<LongArray>()
+
+        val reader = XMLInputFactory.newInstance().createXMLStreamReader(file.inputStream().buffered(), "UTF-8")
+        var wayNodes = ArrayList<Long>()
+        var tags = HashMap<String, String>()
+        var inWay = false
+        while (reader.hasNext()) {
+            when (reader.next()) {
+                XMLStreamConstants.START_ELEMENT -> when (reader.localName) {
+                    "node" -> {
+                        val latE7 = Math.round(reader.getAttributeValue(null, "lat").toDouble() * 1e7)
+                        val lonE7 = Math.round(reader.getAttributeValue(null, "lon").toDouble() * 1e7)
+                        coordinates[reader.getAttributeValue(null, "id").toLong()] =
+                            (latE7 shl 32) or (lonE7 and 0xFFFFFFFFL)
+                    }
+                    "way" -> {
+                        inWay = true
+                        wayNodes = ArrayList()
+                        tags = HashMap()
+                    }
+                    "nd" -> if (inWay) wayNodes.add(reader.getAttributeValue(null, "ref").toLong())
+                    "tag" -> if (inWay) tags[reader.getAttributeValue(null, "k")] = reader.getAttributeValue(null, "v")
+                }
+                XMLStreamConstants.END_ELEMENT -> if (reader.localName == "way") {
+                    inWay = false
+                    if (wayNodes.size >= 2 && isWalkable(tags)) ways.add(wayNodes.toLongArray())
+                }
+            }
+        }
+        reader.close()
+
+        // Compact node ids in first-use order, which keeps neighbours close in the arrays
+        val index = LinkedHashMap<Long, Int>()
+        val from = ArrayList<Int>()
+        val to = ArrayList<Int>()
+        for (way in ways) {
+            for (i in 0 until way.size - 1) {
+                if (way[i] !in coordinates || way[i + 1] !in coordinates || way[i] == way[i + 1]) continue
+                val a = index.getOrPut(way[i]) { index.size }
+                val b = index.getOrPut(way[i + 1]) { index.size }
+                from.add(a); to.add(b)
+                from.add(b); to.add(a)
+            }
+        }
+
+        val n = index.size
+        val m = from.size
+        val lat = IntArray(n)
+        val lon = IntArray(n)
+        for ((id, node) in index) {
+            val packed = coordinates.getValue(id)
+            lat[node] = (packed shr 32).toInt()
+            lon[node] = packed.toInt()
+        }
+        val firstEdge = IntArray(n + 1)
+        for (a in from) firstEdge[a + 1]++
+        for (i in 0 until n) firstEdge[i + 1] += firstEdge[i]
+        val fill = firstEdge.copyOf()
+        val edgeTarget = IntArray(m)
+        val edgeLength = FloatArray(m)
+        for (e in 0 until m) {
+            val slot = fill[from[e]]++
+            edgeTarget[slot] = to[e]
+            edgeLength[slot] = haversine(lat[from[e]], lon[from[e]], lat[to[e]], lon[to[e]]).toFloat()
+        }
+
+        DataOutputStream(BufferedOutputStream(output.outputStream())).use { out ->
+            out.writeInt(0x52475048) // "RGPH"
+            out.writeInt(1)
+            out.writeInt(n)
+            out.writeInt(m)
+            lat.forEach { out.writeInt(it) }
+            lon.forEach { out.writeInt(it) }
+            firstEdge.forEach { out.writeInt(it) }
+            edgeTarget.forEach { out.writeInt(it) }
+            edgeLength.forEach { out.writeFloat(it) }
+        }
+        return n to m
+    }
+
+    private fun haversine(lat1E7: Int, lon1E7: Int, lat2E7: Int, lon2E7: Int): Double {
+        val lat1 = Math.toRadians(lat1E7 * 1e-7)
+        val lat2 = Math.toRadians(lat2E7 * 1e-7)
+        val dLat = lat2 - lat1
+        val dLon = Math.toRadians((lon2E7 - lon1E7) * 1e-7)
+        val h = Math.sin(dLat / 2).let { it * it } +
+            Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2).let { it * it }
+        return 2 * 6_371_000.0 * Math.asin(Math.min(1.0, Math.sqrt(h)))
+    }
+}
+
+/**
+ * Downloads the walkable ways of a bounding box from the Overpass API as OSM XML.
+ *
+ * A failed download only logs a warning, and the app then routes online, unless
+ * `required` is set; the task then fails.
+ */
+abstract class DownloadRoadExtractTask : DefaultTask() {
+
+    // south,west,north,east
+    @get:Input
+    abstract val bbox: Property<String>
+
+    @get:Input
+    abstract val required: Property<Boolean>
+
+    @get:OutputFile
+    abstract val outputFile: RegularFileProperty
+
+    @TaskAction
+    fun download() {
+        val output = outputFile.get().asFile
+        output.delete()
+        val query = "[out:xml][timeout:900];" +
+            "(way[\"highway\"~\"^(footway|pedestrian|path|steps|living_street|residential|service|" +
+            "unclassified|road|track|cycleway|bridleway|corridor|tertiary|tertiary_link|secondary|" +
+            "secondary_link|primary|primary_link)$\"](${bbox.get()}););(._;>;);out body;"
+        val partial = temporaryDir.resolve(output.name)
+        try {
+            val connection = URI("https://overpass-api.de/api/interpreter").toURL().openConnection() as HttpURLConnection
+            connection.connectTimeout = 30_000
+            connection.readTimeout = 15 * 60_000
+            connection.requestMethod = "POST"
+            connection.doOutput = true
+            connection.outputStream.use { it.write(("data=" + URLEncoder.encode(query, "UTF-8")).toByteArray()) }
+            if (connection.responseCode != 200) {
+                throw IOException("Overpass answered HTTP ${connection.responseCode}")
+            }
+            connection.inputStream.use { input -> partial.outputStream().use { input.copyTo(it) } }
+        } catch (e: IOException) {
+            partial.delete()
+            val message = "Road extract download failed (${e.message}); the app will route online only"
+            if (required.get()) throw GradleException(message, e)
+            logger.warn("$message. Pass -Proads.require=true to fail instead")
+            return
+        }
+        output.parentFile.mkdirs()
+        partial.renameTo(output)
+        logger.lifecycle("Wrote ${output.length() / 1024} KB to $output")
+    }
+}
+
+// Slovakia, as the map's scrollable area; override with -Proads.bbox=south,west,north,east
+// and -Proads.name=... . Commit an extract to src/main/osm/<name>.osm to build without
+// downloading it
+val roadExtractName: Provider<String> = providers.gradleProperty("roads.name").orElse("SK")
+val downloadRoadExtract = tasks.register<DownloadRoadExtractTask>("downloadRoadExtract") {
+    bbox.set(providers.gradleProperty("roads.bbox").orElse("47.7312,16.8332,49.6138,22.5657"))
+    required.set(providers.gradleProperty("roads.require").map { it.toBoolean() }.orElse(false))
+    outputFile.set(layout.buildDirectory.file(roadExtractName.map { "osm/$it.osm" }))
+    val committed = roadExtractName.map { layout.projectDirectory.file("src/main/osm/$it.osm").asFile }
+    onlyIf { !committed.get().isFile }
+}
+
+val compileRoadGraph = tasks.register<CompileRoadGraphTask>("compileRoadGraph") {
+    osmFiles.from(fileTree("src/main/osm") { include("*.osm") })
+    osmFiles.from(downloadRoadExtract.flatMap { it.outputFile })
+}
+
+/**
+ * Turns the PNGs in src/main/images into drawables per density bucket.
+ *
+ * Every image is scaled to `maxWidthDp` at each density from mdpi up, but never beyond
+ * its source width. Buckets above the first one that reaches the source width would
+ * hold the same image again and are left out; devices of those densities pick the
+ * highest bucket present. ImageLoader decodes without density scaling, so nothing is
+ * enlarged on the device either.
+ *
+ * Images are encoded as lossy WebP with `cwebp` from libwebp, found on the PATH or set
+ * with -Pimages.cwebp=... ; the resolved path is an input, so installing or moving the
+ * encoder reruns the task. Without it the scaled PNGs are used with a warning, unless
+ * `requireEncoder` is set (-Pimages.requireWebp=true), which makes the task fail instead.
+ */
+abstract class GenerateDensityImagesTask : DefaultTask() {
+
+    @get:InputDirectory
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val sourceDir: DirectoryProperty
+
+    @get:Input
+    abstract val maxWidthDp: Property<Int>
+
+    @get:Input
+    abstract val quality: Property<Int>
+
+    @get:Input
+    @get:Optional
+    abstract val cwebp: Property<String>
+
+    @get:Input
+    abstract val requireEncoder: Property<Boolean>
+
+    @get:OutputDirectory
+    abstract val outputDir: DirectoryProperty
+
+    @get:Inject
+    abstract val execOperations: ExecOperations
+
+    private val densities = listOf("mdpi" to 1.0, "hdpi" to 1.5, "xhdpi" to 2.0, "xxhdpi" to 3.0, "xxxhdpi" to 4.0)
+
+    @TaskAction
+    fun generate() {
+        val target = outputDir.get().asFile
+        target.deleteRecursively()
+
+        val encoder = cwebp.orNull
+        if (encoder == null) {
+            val message = "cwebp not found; install libwebp or pass -Pimages.cwebp=/path/to/cwebp"
+            if (requireEncoder.get()) throw GradleException(message)
+            logger.warn("$message. Drawables from ${sourceDir.get().asFile.name} stay PNG")
+        }
+
+        val images = sourceDir.get().asFile.walkTopDown()
+            .filter { it.isFile && it.extension == "png" }
+            .sortedBy { it.name }
+        for (image in images) {
+            val source = ImageIO.read(image) ?: throw GradleException("Cannot read $image")
+            for ((bucket, factor) in densities) {
+                val width = minOf(source.width, Math.round(maxWidthDp.get() * factor).toInt())
+                val height = Math.round(source.height.toDouble() * width / source.width).toInt()
+                val scaled = if (width == source.width) source else scale(source, width, height)
+                val dir = target.resolve("drawable-$bucket").apply { mkdirs() }
+
+                if (encoder == null) {
+                    ImageIO.write(scaled, "png", dir.resolve(image.name))
+                } else {
+                    val png = temporaryDir.resolve("${image.nameWithoutExtension}-$bucket.png")
+                    ImageIO.write(scaled, "png", png)
+                    execOperations.exec {
+                        commandLine(encoder, "-quiet", "-q", quality.get().toString(), "-m", "6",
+                            png.absolutePath, "-o", dir.resolve("${image.nameWithoutExtension}.webp").absolutePath)
+                    }
+                }
+                if (width == source.width) break
+            }
+        }
+    }
+
+    private fun scale(source: BufferedImage, width: Int, height: Int): BufferedImage {
+        var current = source
+        // Halve first; a single bicubic step over a large ratio aliases
+        while (current.width / 2 >= width) {
+            current = draw(current, current.width / 2, current.height / 2)
+        }
+        return draw(current, width, height)
+    }
+
+    private fun draw(source: BufferedImage, width: Int, height: Int): BufferedImage {
+        val result = BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB)
+        val graphics = result.createGraphics()
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC)
+        graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY)
+        graphics.drawImage(source, 0, 0, width, height, null)
+        graphics.dispose()
+        return result
+    }
+}
+
+val cwebpPath: Provider<String> = providers.gradleProperty("images.cwebp").orElse(
+    providers.environmentVariable("PATH").map { path ->
+        path.split(File.pathSeparator)
+            .flatMap { listOf(File(it, "cwebp"), File(it, "cwebp.exe")) }
+            .firstOrNull { it.isFile && it.canExecute() }
+            ?.absolutePath
+    }
+)
+
+/**
+ * Measures a built APK: total size, uncompressed dex size, method and class references
+ * summed over all dex files (from the dex headers) and the resource table size.
+ *
+ * The figures go to build/reports/size/<variant>.properties, in the format of the
+ * committed baseline that ApkSizeCheckTask compares them with.
+ */
+abstract class ApkSizeReportTask : DefaultTask() {
+
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val apkFolder: DirectoryProperty
+
+    @get:Internal
+    abstract val builtArtifactsLoader: Property<BuiltArtifactsLoader>
+
+    @get:OutputFile
+    abstract val reportFile: RegularFileProperty
+
+    @TaskAction
+    fun report() {
+        val artifacts = builtArtifactsLoader.get().load(apkFolder.get())
+            ?: throw GradleException("No APK in ${apkFolder.get().asFile}")
+        val apk = File(artifacts.elements.single().outputFile)
+        val measured = measure(apk)
+
+        val report = measured.entries.joinToString("\n") { "${it.key}=${it.value}" }
+        reportFile.get().asFile.writeText("# Size budget of ${apk.name}, see ApkSizeCheckTask\n$report\n")
+        logger.lifecycle("APK size of ${apk.name}:\n$report")
+    }
+
+    private fun measure(apk: File): Map<String, Long> {
+        var dexBytes = 0L
+        var methods = 0L
+        var classes = 0L
+        var resourceTableBytes = 0L
+        ZipFile(apk).use { zip ->
+            for (entry in zip.entries()) {
+                if (entry.name == "resources.arsc") {
+                    resourceTableBytes = entry.size
+                }
+                if (!entry.name.matches(Regex("classes\\d*\\.dex"))) continue
+                dexBytes += entry.size
+                val header = ByteArray(0x70)
+                zip.getInputStream(entry).use { input ->
+                    var read = 0
+                    while (read < header.size) {
+                        val n = input.read(header, read, header.size - read)
+                        if (n < 0) throw GradleException("Truncated ${entry.name} in ${apk.name}")
+                        read += n
+                    }
+                }
+                val buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN)
+                methods += buffer.getInt(0x58).toLong() and 0xFFFFFFFFL
+                classes += buffer.getInt(0x60).toLong() and 0xFFFFFFFFL
+            }
+        }
+        return linkedMapOf(
+            "apkBytes" to apk.length(),
+            "dexBytes" to dexBytes,
+            "methodRefs" to methods,
+            "classDefs" to classes,
+            "resourceTableBytes" to resourceTableBytes
+        )
+    }
+}
+
+/**
+ * Compares an APK size report with the committed baseline and fails if any figure grew
+ * by more than the tolerance, or if there is no baseline.
+ *
+ * The task never writes the baseline; update<Variant>SizeBaseline copies the latest
+ * report over it.
+ */
+abstract class ApkSizeCheckTask : DefaultTask() {
+
+    @get:InputFile
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val reportFile: RegularFileProperty
+
+    // Also read as input files so that editing or adding the baseline reruns the check
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.NONE)
+    abstract val baselineInput: ConfigurableFileCollection
+
+    @get:Internal
+    abstract val baselineFile: RegularFileProperty
+
+    @get:Input
+    abstract val tolerancePercent: Property<Int>
+
+    @get:Input
+    abstract val updateTaskName: Property<String>
+
+    // Lets a passing check be up to date
+    @get:OutputFile
+    abstract val resultFile: RegularFileProperty
+
+    @TaskAction
+    fun check() {
+        val baseline = baselineFile.get().asFile
+        val result = resultFile.get().asFile
+        if (!baseline.exists()) {
+            throw GradleException("No size baseline ${baseline.name}; run ${updateTaskName.get()} and commit it")
+        }
+
+        val measured = Properties()
+        reportFile.get().asFile.inputStream().use { measured.load(it) }
+        val expected = Properties()
+        baseline.inputStream().use { expected.load(it) }
+        val regressions = measured.stringPropertyNames().sorted().mapNotNull { key ->
+            val value = measured.getProperty(key).toLong()
+            val limit = expected.getProperty(key)?.toLong() ?: return@mapNotNull null
+            if (value * 100 > limit * (100 + tolerancePercent.get())) {
+                "$key: $value, baseline $limit (+${(value - limit) * 100 / limit}%)"
+            } else null
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException(
+                "APK size regressed by more than ${tolerancePercent.get()}%:\n" +
+                    regressions.joinToString("\n") +
+                    "\nIf the growth is intended, run ${updateTaskName.get()} and commit ${baseline.name}"
+            )
+        }
+        result.writeText("within ${tolerancePercent.get()}% of ${baseline.name}\n")
     }
 }
 
+androidComponents {
+    onVariants { variant ->
+        variant.sources.assets?.addGeneratedSourceDirectory(compileAedIndex, CompileAedIndexTask::outputDir)
+        variant.sources.assets?.addGeneratedSourceDirectory(compileRoadGraph, CompileRoadGraphTask::outputDir)
+        val densityImages = tasks.register<GenerateDensityImagesTask>(
+            "generate${variant.name.replaceFirstChar { it.uppercase() }}DensityImages"
+        ) {
+            sourceDir.set(layout.projectDirectory.dir("src/main/images"))
+            // Training step images fill at most half a page, about 240 dp on large phones in landscape
+            maxWidthDp.set(240)
+            quality.set(80)
+            cwebp.set(cwebpPath)
+            // Release pipelines with libwebp installed pass -Pimages.requireWebp=true so that
+            // a missing encoder cannot ship PNGs unnoticed
+            requireEncoder.set(providers.gradleProperty("images.requireWebp").map { it.toBoolean() }.orElse(false))
+        }
+        variant.sources.res?.addGeneratedSourceDirectory(densityImages, GenerateDensityImagesTask::outputDir)
+    }
+    onVariants(selector().withBuildType("release")) { variant ->
+        val name = variant.name.replaceFirstChar { it.uppercase() }
+        val baseline = layout.projectDirectory.file("size-baseline-${variant.name}.properties")
+        val sizeReport = tasks.register<ApkSizeReportTask>("report${name}Size") {
+            apkFolder.set(variant.artifacts.get(SingleArtifact.APK))
+            builtArtifactsLoader.set(variant.artifacts.getBuiltArtifactsLoader())
+            reportFile.set(layout.buildDirectory.file("reports/size/${variant.name}.properties"))
+        }
+        val updateBaseline = tasks.register("update${name}SizeBaseline") {
+            description = "Replaces ${baseline.asFile.name} with the size of the current ${variant.name} APK."
+            val report = sizeReport.flatMap { it.reportFile }
+            inputs.file(report)
+            outputs.file(baseline)
+            doLast { report.get().asFile.copyTo(baseline.asFile, overwrite = true) }
+        }
+        val sizeCheck = tasks.register<ApkSizeCheckTask>("check${name}Size") {
+            reportFile.set(sizeReport.flatMap { it.reportFile })
+            baselineInput.from(baseline)
+            baselineFile.set(baseline)
+            tolerancePercent.set(providers.gradleProperty("size.tolerancePercent").map { it.toInt() }.orElse(1))
+            updateTaskName.set(updateBaseline.name)
+            resultFile.set(layout.buildDirectory.file("reports/size/${variant.name}-check.txt"))
+        }
+        // ./gradlew build fails on a size regression once a baseline is committed
+        if (baseline.asFile.isFile) {
+            tasks.named("check") { dependsOn(sizeCheck) }
+        }
+    }
+}
+
+// Timing benchmarks (*Benchmark) compare wall times and print their figures, which makes
+// them flaky as unit tests; `test` and `check` skip them and benchmarkUnitTest runs them
+tasks.withType<Test>().configureEach {
+    if (name != "benchmarkUnitTest") exclude("**/*Benchmark.class")
+}
+
+// AedIndexReaderTest reads the index compileAedIndex wrote, to check it against the GeoJSON
+tasks.withType<Test>().configureEach {
+    val aedIndexDir = compileAedIndex.flatMap { it.outputDir }
+    inputs.dir(aedIndexDir).withPropertyName("aedIndexDir").withPathSensitivity(PathSensitivity.RELATIVE)
+    inputs.dir("src/main/geojson").withPropertyName("aedGeoJson").withPathSensitivity(PathSensitivity.RELATIVE)
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        listOf("-Daed.indexDir=${aedIndexDir.get().asFile.absolutePath}")
+    })
+}
+
+tasks.register<Test>("benchmarkUnitTest") {
+    description = "Runs the JVM timing benchmarks on the debug unit test classpath."
+    group = "verification"
+    val unitTest = tasks.named<Test>("testDebugUnitTest").get()
+    testClassesDirs = unitTest.testClassesDirs
+    classpath = unitTest.classpath
+    include("**/*Benchmark.class")
+    testLogging.showStandardStreams = true
+    // Timings are the output; never skip as up to date
+    outputs.upToDateWhen { false }
+}
+
 dependencies {
     // AndroidX Core
     implementation(libs.appcompat)
@@ -68,9 +749,15 @@ dependencies {
     
     // Gson for JSON
     implementation("com.google.code.gson:gson:2.10.1")
+
+    // Installs the baseline profile on sideloaded builds too
+    implementation(libs.profileinstaller)
+    // Generates src/release/generated/baselineProfiles with :app:generateBaselineProfile
+    baselineProfile(project(":benchmark"))
     
     // Testing
     testImplementation(libs.junit)
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
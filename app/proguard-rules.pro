@@ -1,21 +1,21 @@
-# Add project specific ProGuard rules here.
-# You can control the set of applied configuration files using the
-# proguardFiles setting in build.gradle.
+# Release keep rules for R8 (full mode, see gradle.properties).
 #
-# For more details, see
-#   http://developer.android.com/guide/developing/tools/proguard.html
+# OkHttp, OneSignal, AndroidX and Material ship their own consumer rules. org.json is
+# part of the platform.
 
-# If your project uses WebView with JS, uncomment the following
-# and specify the fully qualified class name to the JavaScript interface
-# class:
-#-keepclassmembers class fqcn.of.javascript.interface.for.webview {
-#   public *;
-#}
+# Readable crash stack traces; mapping.txt retraces the names
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
 
-# Uncomment this to preserve the line number information for
-# debugging stack traces.
-#-keepattributes SourceFile,LineNumberTable
+# osmdroid opens offline tile archives by file extension and instantiates the
+# archive class reflectively (ArchiveFileFactory); full mode would drop the
+# no-argument constructors otherwise
+-keep class * implements org.osmdroid.tileprovider.modules.IArchiveFile {
+    <init>();
+}
 
-# If you keep the line number information, uncomment this to
-# hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+# Debug and verbose logs are for development only; release keeps info and above
+-assumenosideeffects class android.util.Log {
+    public static int v(...);
+    public static int d(...);
+}
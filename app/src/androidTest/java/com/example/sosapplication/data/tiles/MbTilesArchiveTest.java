@@ -0,0 +1,98 @@
+package com.example.sosapplication.data.tiles;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.File;
+import java.io.InputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads a small MBTiles file generated on the device; no network involved.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MbTilesArchiveTest {
+
+    // Bratislava old town at zoom 14, XYZ scheme
+    private static final int ZOOM = 14;
+    private static final int X = 8970;
+    private static final int Y = 5685;
+
+    private File file;
+    private MbTilesArchive archive;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        file = new File(context.getCacheDir(), "test.mbtiles");
+        file.delete();
+
+        try (SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(file, null)) {
+            db.execSQL("CREATE TABLE metadata (name TEXT, value TEXT)");
+            db.execSQL("CREATE TABLE tiles (zoom_level INTEGER, tile_column INTEGER, "
+                    + "tile_row INTEGER, tile_data BLOB)");
+            metadata(db, "name", "test");
+            metadata(db, "minzoom", "7");
+            metadata(db, "maxzoom", "16");
+            metadata(db, "bounds", "16.8,47.7,22.6,49.6");
+
+            ContentValues tile = new ContentValues();
+            tile.put("zoom_level", ZOOM);
+            tile.put("tile_column", X);
+            tile.put("tile_row", (1 << ZOOM) - 1 - Y);
+            tile.put("tile_data", new byte[]{1, 2, 3});
+            db.insert("tiles", null, tile);
+        }
+        archive = MbTilesArchive.open(file);
+    }
+
+    @After
+    public void tearDown() {
+        archive.close();
+        file.delete();
+    }
+
+    private static void metadata(SQLiteDatabase db, String name, String value) {
+        ContentValues row = new ContentValues();
+        row.put("name", name);
+        row.put("value", value);
+        db.insert("metadata", null, row);
+    }
+
+    @Test
+    public void readTile_flipsTmsRows() {
+        assertArrayEquals(new byte[]{1, 2, 3}, archive.readTile(ZOOM, X, Y));
+        assertNull(archive.readTile(ZOOM, X, Y + 1));
+    }
+
+    @Test
+    public void metadata_limitsZoomAndBounds() {
+        assertEquals(7, archive.getMinZoom());
+        assertEquals(16, archive.getMaxZoom());
+        assertTrue(archive.covers(ZOOM, X, Y));
+        assertFalse(archive.covers(17, 2 * X, 2 * Y));
+        assertFalse(archive.covers(6, X >> 8, Y >> 8));
+        // Vienna is just west of the pack
+        assertFalse(archive.covers(ZOOM, 8937, 5681));
+    }
+
+    @Test
+    public void getInputStream_usesMapTileIndex() throws Exception {
+        try (InputStream in = archive.getInputStream(null, MapTileIndex.getTileIndex(ZOOM, X, Y))) {
+            assertNotNull(in);
+            assertEquals(3, in.available());
+        }
+        assertNull(archive.getInputStream(null, MapTileIndex.getTileIndex(ZOOM, X + 1, Y)));
+    }
+}
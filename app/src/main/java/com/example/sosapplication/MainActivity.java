@@ -4,6 +4,9 @@ import android.Manifest;
 import android.content.pm.PackageManager;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Trace;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -15,10 +18,10 @@ import androidx.navigation.Navigation;
 import androidx.navigation.ui.NavigationUI;
 
 import com.example.sosapplication.databinding.ActivityMainBinding;
+import com.example.sosapplication.services.LocationReportingService;
 import com.example.sosapplication.utils.LocaleHelper;
 import com.example.sosapplication.utils.ThemeHelper;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import com.onesignal.OneSignal;
 
 public class MainActivity extends AppCompatActivity {
 
@@ -27,6 +30,21 @@ public class MainActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        Trace.beginSection("MainActivity.onCreate");
+        try {
+            createUi(savedInstanceState);
+        } finally {
+            Trace.endSection();
+        }
+
+        // Once the home screen with the SOS button is drawn, the rest of startup can run
+        onFirstFrame(() -> {
+            reportFullyDrawn();
+            SOSApplication.from(this).getStartup().onFirstFrame();
+        });
+    }
+
+    private void createUi(Bundle savedInstanceState) {
         // Apply saved locale
         LocaleHelper.applyLocale(this);
         
@@ -50,6 +68,27 @@ public class MainActivity extends AppCompatActivity {
         
         // Request notification permission for Android 13+
         requestNotificationPermission();
+
+        // Keep our position fresh for alerts nearby if the user turned that on on the home screen
+        LocationReportingService.start(this);
+    }
+
+    private void onFirstFrame(Runnable action) {
+        View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) return;
+                drawn = true;
+                // Runs after the frame; draw listeners cannot be removed while drawing
+                decor.post(() -> {
+                    decor.getViewTreeObserver().removeOnDrawListener(this);
+                    action.run();
+                });
+            }
+        });
     }
     
     private void setupNotificationPermission() {
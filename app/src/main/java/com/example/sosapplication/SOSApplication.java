@@ -1,35 +1,165 @@
 package com.example.sosapplication;
 
 import android.app.Application;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 
+import com.example.sosapplication.network.ConnectionWarmer;
+import com.example.sosapplication.network.HttpMetrics;
+import com.example.sosapplication.network.JsonPayloadCodec;
+import com.example.sosapplication.network.PayloadCodec;
+import com.example.sosapplication.services.AlertOutbox;
+import com.example.sosapplication.services.SOSAlertService;
+import com.example.sosapplication.startup.StartupOrchestrator;
 import com.onesignal.OneSignal;
 import com.onesignal.debug.LogLevel;
 
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+
 public class SOSApplication extends Application {
 
     private static final String TAG = "SOSApplication";
     public static final String ONESIGNAL_APP_ID = "0d2df905-4641-48e5-b9df-c684735e89f1";
 
+    // Backend API root, configured in app/build.gradle.kts
+    public static final String BACKEND_API_URL = BuildConfig.BACKEND_API_URL;
+
+    // Wire format of SOS, cancel and location requests; the backend also accepts BinaryPayloadCodec
+    public static final PayloadCodec PAYLOAD_CODEC = JsonPayloadCodec.INSTANCE;
+
+    private static final long HTTP_CACHE_BYTES = 10L * 1024 * 1024;
+
+    // Initializer names, see getStartup()
+    public static final String INIT_ALERT_OUTBOX = "alert-outbox";
+    public static final String INIT_ONESIGNAL = "onesignal";
+
+    // Deferred startup work still runs when the process starts without an activity
+    private static final long DEFERRED_STARTUP_FALLBACK_MS = 5_000;
+
+    private final HttpMetrics httpMetrics = new HttpMetrics();
+    private final StartupOrchestrator startup = new StartupOrchestrator(
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "startup")));
+    private OkHttpClient httpClient;
+    private ConnectionWarmer backendWarmer;
+    private AlertOutbox alertOutbox;
+    private SOSAlertService sosAlertService;
+
+    public static SOSApplication from(Context context) {
+        return (SOSApplication) context.getApplicationContext();
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
 
         Log.d(TAG, "Application starting...");
 
-        try {
-            // Enable verbose logging for debugging
+        // Alerts a previous process could not deliver go out before anything else
+        startup.add(INIT_ALERT_OUTBOX, StartupOrchestrator.Phase.CRITICAL, this::startAlertOutbox);
+        // Push is only needed to receive alerts, which can wait until the first frame is up.
+        // MainActivity asks for the notification permission; OneSignal picks up the result.
+        startup.add(INIT_ONESIGNAL, StartupOrchestrator.Phase.DEFERRED, this::initOneSignal);
+        startup.runCritical();
+
+        new Handler(Looper.getMainLooper()).postDelayed(startup::onFirstFrame, DEFERRED_STARTUP_FALLBACK_MS);
+    }
+
+    private void initOneSignal() {
+        if (BuildConfig.DEBUG) {
             OneSignal.getDebug().setLogLevel(LogLevel.VERBOSE);
+        }
+        OneSignal.initWithContext(this, ONESIGNAL_APP_ID);
+        Log.d(TAG, "OneSignal initialized successfully");
+    }
 
-            // Initialize OneSignal
-            OneSignal.initWithContext(this, ONESIGNAL_APP_ID);
+    /**
+     * Send alerts a previous process could not deliver, and retry right away whenever
+     * a network becomes available instead of waiting out the backoff
+     */
+    private void startAlertOutbox() {
+        AlertOutbox outbox = getAlertOutbox();
+        outbox.start();
 
-            // Request notification permission for Android 13+
-            OneSignal.getNotifications().requestPermission(true, null);
+        ConnectivityManager connectivity = getSystemService(ConnectivityManager.class);
+        if (connectivity != null) {
+            connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(Network network) {
+                    outbox.retryNow();
+                }
+            });
+        }
+    }
+
+    /**
+     * The process-wide HTTP client. Components that need other timeouts derive from it
+     * with {@code newBuilder()}, which keeps the shared connection pool, dispatcher and cache.
+     */
+    public synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = new OkHttpClient.Builder()
+                    .connectTimeout(10, TimeUnit.SECONDS)
+                    .readTimeout(20, TimeUnit.SECONDS)
+                    .writeTimeout(20, TimeUnit.SECONDS)
+                    // Keep warm connections around long enough to cover an SOS session
+                    .connectionPool(new ConnectionPool(8, 5, TimeUnit.MINUTES))
+                    .cache(new Cache(new File(getCacheDir(), "http"), HTTP_CACHE_BYTES))
+                    .eventListenerFactory(httpMetrics)
+                    .build();
+        }
+        return httpClient;
+    }
+
+    /**
+     * App initializers; MainActivity starts the deferred ones once its first frame is drawn
+     */
+    public StartupOrchestrator getStartup() {
+        return startup;
+    }
+
+    public HttpMetrics getHttpMetrics() {
+        return httpMetrics;
+    }
+
+    /**
+     * Pre-opens a connection to the backend so the SOS request does not pay for the handshake
+     */
+    public synchronized ConnectionWarmer getBackendWarmer() {
+        if (backendWarmer == null) {
+            backendWarmer = new ConnectionWarmer(getHttpClient(), BACKEND_API_URL + "/health");
+        }
+        return backendWarmer;
+    }
+
+    /**
+     * Durable queue for SOS, cancel and location requests to the backend
+     */
+    public synchronized AlertOutbox getAlertOutbox() {
+        if (alertOutbox == null) {
+            alertOutbox = new AlertOutbox(getHttpClient(), BACKEND_API_URL,
+                    new File(getFilesDir(), "outbox/alerts.log"), new AlertOutbox.Config());
+        }
+        return alertOutbox;
+    }
 
-            Log.d(TAG, "OneSignal initialized successfully");
-        } catch (Exception e) {
-            Log.e(TAG, "Error initializing OneSignal", e);
+    /**
+     * The single SOS backend client; logs in to OneSignal once the SDK is initialized
+     */
+    public synchronized SOSAlertService getSosAlertService() {
+        if (sosAlertService == null) {
+            sosAlertService = new SOSAlertService(this, getHttpClient(), BACKEND_API_URL,
+                    getAlertOutbox(), PAYLOAD_CODEC, startup.after(INIT_ONESIGNAL));
         }
+        return sosAlertService;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package com.example.sosapplication.data.aed;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Grid clustering of AEDs in Web Mercator pixel space.
+ *
+ * Each zoom level buckets points into square cells of a fixed on-screen size. Cells
+ * double in size with every zoom step out, so a level is derived from the one above
+ * it by merging 2x2 cells instead of touching every point again. Levels are built
+ * lazily and cached per integer zoom.
+ */
+public class AedClusterer {
+
+    /** Highest zoom that is clustered; above it every AED is drawn on its own */
+    public static final int MAX_CLUSTER_ZOOM = 15;
+
+    private static final int TILE_SIZE = 256;
+
+    private final AedSpatialIndex points;
+    private final int cellPixels;
+    private final Level[] levels = new Level[MAX_CLUSTER_ZOOM + 1];
+
+    /**
+     * Clusters of one zoom level, stored as parallel arrays
+     */
+    public static final class Level {
+        public final int size;
+        public final int[] count;
+        public final double[] latitude;
+        public final double[] longitude;
+        /** Index of one member point; the only member when count is 1 */
+        public final int[] firstPoint;
+
+        final int[] cellX;
+        final int[] cellY;
+
+        Level(int size, int[] count, double[] latitude, double[] longitude,
+              int[] firstPoint, int[] cellX, int[] cellY) {
+            this.size = size;
+            this.count = count;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.firstPoint = firstPoint;
+            this.cellX = cellX;
+            this.cellY = cellY;
+        }
+    }
+
+    public AedClusterer(AedSpatialIndex points, int cellPixels) {
+        if (Integer.bitCount(cellPixels) != 1 || cellPixels > TILE_SIZE) {
+            throw new IllegalArgumentException("cellPixels must be a power of two up to " + TILE_SIZE);
+        }
+        this.points = points;
+        this.cellPixels = cellPixels;
+    }
+
+    /**
+     * Clusters for the given zoom, clamped to [0, MAX_CLUSTER_ZOOM]
+     */
+    public synchronized Level clusters(int zoom) {
+        zoom = Math.max(0, Math.min(MAX_CLUSTER_ZOOM, zoom));
+        Level level = levels[zoom];
+        if (level == null) {
+            if (zoom == MAX_CLUSTER_ZOOM) {
+                level = fromPoints(zoom);
+            } else {
+                level = merge(clusters(zoom + 1));
+            }
+            levels[zoom] = level;
+        }
+        return level;
+    }
+
+    private Level fromPoints(int zoom) {
+        double cellsPerWorld = (double) TILE_SIZE / cellPixels * (1L << zoom);
+        Builder builder = new Builder(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            double lat = points.latitude(i);
+            double lon = points.longitude(i);
+            int cx = (int) Math.floor(mercatorX(lon) * cellsPerWorld);
+            int cy = (int) Math.floor(mercatorY(lat) * cellsPerWorld);
+            builder.add(cx, cy, 1, lat, lon, i);
+        }
+        return builder.build();
+    }
+
+    private Level merge(Level finer) {
+        Builder builder = new Builder(finer.size);
+        for (int c = 0; c < finer.size; c++) {
+            builder.add(finer.cellX[c] >> 1, finer.cellY[c] >> 1, finer.count[c],
+                    finer.latitude[c] * finer.count[c], finer.longitude[c] * finer.count[c],
+                    finer.firstPoint[c]);
+        }
+        return builder.build();
+    }
+
+    static double mercatorX(double lon) {
+        return (lon + 180.0) / 360.0;
+    }
+
+    static double mercatorY(double lat) {
+        double sin = Math.sin(Math.toRadians(Math.max(-85.05112878, Math.min(85.05112878, lat))));
+        return 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+    }
+
+    /**
+     * Accumulates weighted sums per cell, then turns them into centroids
+     */
+    private static final class Builder {
+        private final Map<Long, Integer> cells = new HashMap<>();
+        private int size;
+        private int[] count;
+        private double[] sumLat;
+        private double[] sumLon;
+        private int[] firstPoint;
+        private int[] cellX;
+        private int[] cellY;
+
+        Builder(int capacity) {
+            capacity = Math.max(1, capacity);
+            count = new int[capacity];
+            sumLat = new double[capacity];
+            sumLon = new double[capacity];
+            firstPoint = new int[capacity];
+            cellX = new int[capacity];
+            cellY = new int[capacity];
+        }
+
+        void add(int cx, int cy, int n, double weightedLat, double weightedLon, int point) {
+            long key = ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+            Integer slot = cells.get(key);
+            if (slot == null) {
+                slot = size++;
+                cells.put(key, slot);
+                cellX[slot] = cx;
+                cellY[slot] = cy;
+                firstPoint[slot] = point;
+            }
+            count[slot] += n;
+            sumLat[slot] += weightedLat;
+            sumLon[slot] += weightedLon;
+        }
+
+        Level build() {
+            double[] lat = Arrays.copyOf(sumLat, size);
+            double[] lon = Arrays.copyOf(sumLon, size);
+            for (int c = 0; c < size; c++) {
+                lat[c] /= count[c];
+                lon[c] /= count[c];
+            }
+            return new Level(size, Arrays.copyOf(count, size), lat, lon,
+                    Arrays.copyOf(firstPoint, size),
+                    Arrays.copyOf(cellX, size), Arrays.copyOf(cellY, size));
+        }
+    }
+}
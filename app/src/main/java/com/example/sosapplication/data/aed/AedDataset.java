@@ -0,0 +1,22 @@
+package com.example.sosapplication.data.aed;
+
+import java.util.List;
+
+/**
+ * AED records together with the lookup structures built over them.
+ * Built once per language off the UI thread and shared afterwards.
+ */
+public final class AedDataset {
+
+    public static final int NEAREST_RESULTS = 3;
+
+    public final List<AedRecord> aeds;
+    public final AedSpatialIndex index;
+    public final NearestAedTable nearest;
+
+    public AedDataset(List<AedRecord> aeds) {
+        this.aeds = aeds;
+        this.index = AedSpatialIndex.of(aeds);
+        this.nearest = new NearestAedTable(index, NEAREST_RESULTS);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.sosapplication.data.aed;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reader for the binary AED index generated by the compileAedIndex Gradle task.
+ *
+ * Coordinates are shared by all languages; only the string table of the requested
+ * language is decoded.
+ */
+public class AedIndexReader {
+
+    static final int MAGIC = 0x41454458; // "AEDX"
+    static final int VERSION = 1;
+
+    private static final double COORDINATE_SCALE = 1e-7;
+
+    public static List<AedRecord> read(ByteBuffer source, String language) throws IOException {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an AED index");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported AED index version " + version);
+        }
+
+        int count = buffer.getInt();
+        long[] osmIds = new long[count];
+        double[] lat = new double[count];
+        double[] lon = new double[count];
+        for (int i = 0; i < count; i++) osmIds[i] = buffer.getLong();
+        for (int i = 0; i < count; i++) lat[i] = buffer.getInt() * COORDINATE_SCALE;
+        for (int i = 0; i < count; i++) lon[i] = buffer.getInt() * COORDINATE_SCALE;
+
+        int languageCount = buffer.getInt();
+        if (languageCount == 0) {
+            throw new IOException("AED index has no language tables");
+        }
+        int selected = -1;
+        int fallback = -1;
+        for (int l = 0; l < languageCount && selected < 0; l++) {
+            String code = readString(buffer);
+            int length = buffer.getInt();
+            if (code.equals(language)) {
+                selected = buffer.position();
+            } else {
+                if (fallback < 0) fallback = buffer.position();
+                buffer.position(buffer.position() + length);
+            }
+        }
+        buffer.position(selected >= 0 ? selected : fallback);
+
+        String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = readString(buffer);
+        }
+
+        int locations = buffer.position();
+        int access = locations + count * 2;
+        int hours = access + count * 2;
+
+        List<AedRecord> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new AedRecord(osmIds[i], lat[i], lon[i],
+                    strings[buffer.getChar(locations + i * 2)],
+                    strings[buffer.getChar(access + i * 2)],
+                    strings[buffer.getChar(hours + i * 2)]));
+        }
+        return result;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getChar();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.sosapplication.data.aed;
+
+/**
+ * Compact, immutable description of a single defibrillator.
+ */
+public final class AedRecord {
+
+    public final long osmId;
+    public final double latitude;
+    public final double longitude;
+    public final String location;
+    public final String access;
+    public final String openingHours;
+
+    public AedRecord(long osmId, double latitude, double longitude,
+                     String location, String access, String openingHours) {
+        this.osmId = osmId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.location = location;
+        this.access = access;
+        this.openingHours = openingHours;
+    }
+}
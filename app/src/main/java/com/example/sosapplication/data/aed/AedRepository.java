@@ -0,0 +1,107 @@
+package com.example.sosapplication.data.aed;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.sosapplication.utils.AssetHelper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads AED data from the bundled assets and builds its lookup structures
+ * off the UI thread.
+ *
+ * The data is the {@code aed/SK.aedx} index that the compileAedIndex Gradle task builds
+ * from src/main/geojson.
+ */
+public class AedRepository {
+
+    private static final String TAG = "AedRepository";
+    private static final String COUNTRY = "SK";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final Map<String, AedDataset> CACHE = new HashMap<>();
+
+    private final Context context;
+    private final Handler mainHandler;
+
+    public interface LoadCallback {
+        void onLoaded(AedDataset dataset);
+        void onError(Exception e);
+    }
+
+    public AedRepository(Context context) {
+        this.context = context.getApplicationContext();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    /**
+     * Map an app language to one of the localized asset languages
+     */
+    public static String resolveLanguage(String lang) {
+        if ("en".equals(lang) || "sk".equals(lang) || "uk".equals(lang)) {
+            return lang;
+        }
+        return "en";
+    }
+
+    /**
+     * Load AEDs for the given language, delivering the result on the main thread
+     */
+    public void load(String lang, LoadCallback callback) {
+        final String language = resolveLanguage(lang);
+
+        synchronized (CACHE) {
+            AedDataset cached = CACHE.get(language);
+            if (cached != null) {
+                mainHandler.post(() -> callback.onLoaded(cached));
+                return;
+            }
+        }
+
+        EXECUTOR.execute(() -> {
+            try {
+                AedDataset dataset = loadBlocking(language);
+                mainHandler.post(() -> callback.onLoaded(dataset));
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to load AEDs for " + language, e);
+                mainHandler.post(() -> callback.onError(e));
+            }
+        });
+    }
+
+    private AedDataset loadBlocking(String language) throws IOException {
+        synchronized (CACHE) {
+            AedDataset cached = CACHE.get(language);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        long start = System.nanoTime();
+        String source = "aed/" + COUNTRY + ".aedx";
+        ByteBuffer index = AssetHelper.mapAsset(context, source);
+        if (index == null) {
+            throw new IOException("Missing asset " + source);
+        }
+        List<AedRecord> aeds = AedIndexReader.read(index, language);
+        AedDataset dataset = new AedDataset(Collections.unmodifiableList(aeds));
+        Log.d(TAG, "Loaded " + aeds.size() + " AEDs from " + source + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms ("
+                + dataset.nearest.candidateCount() + " nearest-AED candidates)");
+
+        synchronized (CACHE) {
+            CACHE.put(language, dataset);
+        }
+        return dataset;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.sosapplication.data.aed;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Static uniform grid over primitive coordinate arrays.
+ *
+ * Points are bucketed once with a counting sort, so a query only touches the cells
+ * overlapping it. Results are indices into the arrays the index was built from.
+ */
+public class AedSpatialIndex {
+
+    private static final int TARGET_POINTS_PER_CELL = 4;
+
+    private final double[] lat;
+    private final double[] lon;
+
+    private final double minLat;
+    private final double minLon;
+    private final double maxAbsLat;
+    private final double cellLat;
+    private final double cellLon;
+    private final int rows;
+    private final int cols;
+
+    // Points of cell c are cellItems[cellStart[c]] .. cellItems[cellStart[c + 1] - 1]
+    private final int[] cellStart;
+    private final int[] cellItems;
+
+    public static AedSpatialIndex of(List<AedRecord> aeds) {
+        double[] lat = new double[aeds.size()];
+        double[] lon = new double[aeds.size()];
+        for (int i = 0; i < lat.length; i++) {
+            lat[i] = aeds.get(i).latitude;
+            lon[i] = aeds.get(i).longitude;
+        }
+        return new AedSpatialIndex(lat, lon);
+    }
+
+    public AedSpatialIndex(double[] lat, double[] lon) {
+        if (lat.length != lon.length) {
+            throw new IllegalArgumentException("lat/lon arrays differ in length");
+        }
+        this.lat = lat;
+        this.lon = lon;
+        int n = lat.length;
+
+        double south = Double.MAX_VALUE, north = -Double.MAX_VALUE;
+        double west = Double.MAX_VALUE, east = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            south = Math.min(south, lat[i]);
+            north = Math.max(north, lat[i]);
+            west = Math.min(west, lon[i]);
+            east = Math.max(east, lon[i]);
+        }
+        if (n == 0) {
+            south = north = west = east = 0;
+        }
+
+        // Roughly square cells in meters, sized for a few points each
+        double cosLat = Math.max(0.01, Math.cos(Math.toRadians((south + north) / 2)));
+        double height = Math.max(north - south, 1e-6);
+        double width = Math.max((east - west) * cosLat, 1e-6);
+        double cellSize = Math.sqrt(height * width / Math.max(1, n / TARGET_POINTS_PER_CELL));
+
+        this.minLat = south;
+        this.minLon = west;
+        this.maxAbsLat = Math.max(Math.abs(south), Math.abs(north));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.cellLat = height / rows;
+        this.cellLon = (width / cosLat) / cols;
+
+        int[] cellOf = new int[n];
+        cellStart = new int[rows * cols + 1];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = row(lat[i]) * cols + col(lon[i]);
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < rows * cols; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        cellItems = new int[n];
+        int[] fill = Arrays.copyOf(cellStart, rows * cols);
+        for (int i = 0; i < n; i++) {
+            cellItems[fill[cellOf[i]]++] = i;
+        }
+    }
+
+    public int size() {
+        return lat.length;
+    }
+
+    public double latitude(int index) {
+        return lat[index];
+    }
+
+    public double longitude(int index) {
+        return lon[index];
+    }
+
+    /**
+     * Visit every point inside the box (edges inclusive)
+     */
+    public void forEachInBox(double south, double west, double north, double east, IntConsumer visitor) {
+        if (lat.length == 0 || south > north || west > east) return;
+
+        int r0 = row(south), r1 = row(north);
+        int c0 = col(west), c1 = col(east);
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * cols + c;
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    int i = cellItems[k];
+                    if (lat[i] >= south && lat[i] <= north && lon[i] >= west && lon[i] <= east) {
+                        visitor.accept(i);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Indices of all points inside the box, in ascending order
+     */
+    public int[] query(double south, double west, double north, double east) {
+        int[][] out = {new int[16]};
+        int[] count = {0};
+        forEachInBox(south, west, north, east, i -> {
+            if (count[0] == out[0].length) {
+                out[0] = Arrays.copyOf(out[0], count[0] * 2);
+            }
+            out[0][count[0]++] = i;
+        });
+        int[] result = Arrays.copyOf(out[0], count[0]);
+        Arrays.sort(result);
+        return result;
+    }
+
+    public int[] query(BoundingBox box) {
+        return query(box.getLatSouth(), box.getLonWest(), box.getLatNorth(), box.getLonEast());
+    }
+
+    /**
+     * Find up to k points closest to the given location.
+     *
+     * @param outIndices receives point indices, nearest first
+     * @param outMeters  receives great-circle distances in meters, may be null
+     * @return number of points written (min of k, size and the output lengths)
+     */
+    public int nearest(double qLat, double qLon, int k,
+                       int[] outIndices, double[] outMeters) {
+        k = Math.min(k, Math.min(lat.length, outIndices.length));
+        if (outMeters != null) k = Math.min(k, outMeters.length);
+        if (k <= 0) return 0;
+
+        // Lower bound of the distance to any cell of ring r is (r - 1) * ringStep. Longitude
+        // is scaled at the grid's most poleward latitude so the bound never overshoots;
+        // the small factor covers great circles bowing away from parallels.
+        double ringStep = 0.99 * GeoHelper.METERS_PER_DEGREE
+                * Math.min(cellLat, cellLon * Math.cos(Math.toRadians(maxAbsLat)));
+        double[] best = outMeters != null ? outMeters : new double[k];
+        int found = 0;
+
+        int r0 = row(qLat), c0 = col(qLon);
+        int maxRing = Math.max(rows, cols);
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (found == k && best[k - 1] <= (ring - 1) * ringStep) break;
+
+            for (int r = r0 - ring; r <= r0 + ring; r++) {
+                if (r < 0 || r >= rows) continue;
+                boolean edgeRow = r == r0 - ring || r == r0 + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int c = c0 - ring; c <= c0 + ring; c += Math.max(1, step)) {
+                    if (c < 0 || c >= cols) continue;
+                    int cell = r * cols + c;
+                    for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+                        int i = cellItems[e];
+                        double d = GeoHelper.distanceMeters(qLat, qLon, lat[i], lon[i]);
+                        if (found < k) {
+                            found = insert(best, outIndices, found, d, i);
+                        } else if (d < best[k - 1]) {
+                            insert(best, outIndices, k - 1, d, i);
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    public int nearest(GeoPoint point, int k, int[] outIndices, double[] outMeters) {
+        return nearest(point.getLatitude(), point.getLongitude(), k, outIndices, outMeters);
+    }
+
+    /**
+     * Insertion into the sorted prefix [0, size); returns the new size
+     */
+    private static int insert(double[] keys, int[] values, int size, double key, int value) {
+        int j = size;
+        while (j > 0 && keys[j - 1] > key) {
+            keys[j] = keys[j - 1];
+            values[j] = values[j - 1];
+            j--;
+        }
+        keys[j] = key;
+        values[j] = value;
+        return size + 1;
+    }
+
+    private int row(double latitude) {
+        int r = (int) Math.floor((latitude - minLat) / cellLat);
+        return Math.max(0, Math.min(rows - 1, r));
+    }
+
+    private int col(double longitude) {
+        int c = (int) Math.floor((longitude - minLon) / cellLon);
+        return Math.max(0, Math.min(cols - 1, c));
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.sosapplication.data.aed;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed nearest-AED lookup grid (a discretized Voronoi diagram).
+ *
+ * For every cell of a fixed grid the AEDs that can be among the k nearest to any
+ * point of that cell are stored up front. A lookup is then one cell computation and
+ * a handful of great-circle distances, regardless of how many AEDs there are.
+ */
+public class NearestAedTable {
+
+    private static final double CELL_METERS = 2000;
+    // Margin around the AED extent covered by the grid; farther away the index is asked
+    private static final double MARGIN_DEGREES = 0.5;
+    // Slack for the flat-earth approximation used while building the candidate lists
+    private static final double RADIUS_SLACK = 1.01;
+
+    private final AedSpatialIndex index;
+    private final int k;
+
+    private final double minLat;
+    private final double minLon;
+    private final double cellLat;
+    private final double cellLon;
+    private final int rows;
+    private final int cols;
+
+    // Candidates of cell c are candidates[cellStart[c]] .. candidates[cellStart[c + 1] - 1]
+    private final int[] cellStart;
+    private final int[] candidates;
+
+    public NearestAedTable(AedSpatialIndex index, int k) {
+        this.index = index;
+        this.k = k;
+
+        int n = index.size();
+        double south = 90, north = -90, west = 180, east = -180;
+        for (int i = 0; i < n; i++) {
+            south = Math.min(south, index.latitude(i));
+            north = Math.max(north, index.latitude(i));
+            west = Math.min(west, index.longitude(i));
+            east = Math.max(east, index.longitude(i));
+        }
+        if (n == 0) {
+            south = north = west = east = 0;
+        }
+        south -= MARGIN_DEGREES;
+        north += MARGIN_DEGREES;
+        west -= MARGIN_DEGREES;
+        east += MARGIN_DEGREES;
+
+        double ky = GeoHelper.METERS_PER_DEGREE;
+        // Widest longitude degree of the grid, nearest the equator, so that no row's cell
+        // width is underestimated
+        double kx = south < 0 && north > 0 ? ky
+                : ky * Math.cos(Math.toRadians(Math.min(Math.abs(south), Math.abs(north))));
+
+        minLat = south;
+        minLon = west;
+        rows = Math.max(1, (int) Math.ceil((north - south) * ky / CELL_METERS));
+        cols = Math.max(1, (int) Math.ceil((east - west) * kx / CELL_METERS));
+        cellLat = (north - south) / rows;
+        cellLon = (east - west) / cols;
+
+        double halfDiagonal = Math.hypot(cellLat * ky, cellLon * kx) / 2;
+        int[] nearest = new int[k];
+        double[] meters = new double[k];
+        int[] lists = new int[Math.max(16, rows * cols * k)];
+        int size = 0;
+        cellStart = new int[rows * cols + 1];
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                double centerLat = minLat + (r + 0.5) * cellLat;
+                double centerLon = minLon + (c + 0.5) * cellLon;
+
+                // Every one of the k nearest to any point in the cell lies within
+                // (k-th distance from the center) + 2 * half-diagonal of the center
+                int found = index.nearest(centerLat, centerLon, k, nearest, meters);
+                if (found > 0) {
+                    double radius = (meters[found - 1] + 2 * halfDiagonal) * RADIUS_SLACK;
+                    double dLat = radius / ky;
+                    double dLon = radius / (ky * Math.cos(Math.toRadians(
+                            Math.min(89, Math.abs(centerLat) + dLat))));
+                    int[] hits = index.query(centerLat - dLat, centerLon - dLon,
+                            centerLat + dLat, centerLon + dLon);
+                    for (int i : hits) {
+                        if (GeoHelper.distanceMeters(centerLat, centerLon,
+                                index.latitude(i), index.longitude(i)) <= radius) {
+                            if (size == lists.length) {
+                                lists = Arrays.copyOf(lists, size * 2);
+                            }
+                            lists[size++] = i;
+                        }
+                    }
+                }
+                cellStart[r * cols + c + 1] = size;
+            }
+        }
+        candidates = Arrays.copyOf(lists, size);
+    }
+
+    public int maxResults() {
+        return k;
+    }
+
+    /**
+     * Up to {@link #maxResults()} AEDs nearest to the location, closest first.
+     *
+     * @return number of results written to outIndices / outMeters
+     */
+    public int nearest(double lat, double lon, int[] outIndices, double[] outMeters) {
+        int r = (int) Math.floor((lat - minLat) / cellLat);
+        int c = (int) Math.floor((lon - minLon) / cellLon);
+        if (r < 0 || r >= rows || c < 0 || c >= cols) {
+            // Outside the precomputed area; the index still answers exactly
+            return index.nearest(lat, lon, Math.min(k, outIndices.length), outIndices, outMeters);
+        }
+
+        int limit = Math.min(k, Math.min(outIndices.length, outMeters.length));
+        int found = 0;
+        int cell = r * cols + c;
+        for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++) {
+            int i = candidates[e];
+            double d = GeoHelper.distanceMeters(lat, lon, index.latitude(i), index.longitude(i));
+            if (found < limit || d < outMeters[limit - 1]) {
+                int j = found < limit ? found++ : limit - 1;
+                while (j > 0 && outMeters[j - 1] > d) {
+                    outMeters[j] = outMeters[j - 1];
+                    outIndices[j] = outIndices[j - 1];
+                    j--;
+                }
+                outMeters[j] = d;
+                outIndices[j] = i;
+            }
+        }
+        return found;
+    }
+
+    public int candidateCount() {
+        return candidates.length;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.sosapplication.data.routing;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import java.util.Arrays;
+
+/**
+ * A* shortest-path search over a {@link RoadGraph}.
+ *
+ * Work arrays are allocated once per router and invalidated with a generation stamp,
+ * so a query only pays for the nodes it actually visits. Not thread-safe; queries on
+ * one instance are serialized.
+ */
+public class AStarRouter {
+
+    // Covers float rounding of edge lengths and the flat-earth approximation below
+    private static final double HEURISTIC_FACTOR = 0.99;
+
+    private final RoadGraph graph;
+    // Meters per degree; longitude uses the graph's most poleward latitude so the
+    // flat-earth estimate never exceeds the real distance
+    private final double metersPerLat;
+    private final double metersPerLon;
+
+    private final double[] cost;
+    private final int[] parent;
+    private final int[] seenStamp;
+    private final int[] closedStamp;
+    private int generation;
+
+    // Binary min-heap with lazy deletion of outdated entries
+    private int[] heapNodes = new int[256];
+    private double[] heapKeys = new double[256];
+    private int heapSize;
+
+    private int lastVisited;
+
+    public AStarRouter(RoadGraph graph) {
+        this.graph = graph;
+        int n = graph.nodeCount();
+        double maxAbsLat = 0;
+        for (int i = 0; i < n; i++) {
+            maxAbsLat = Math.max(maxAbsLat, Math.abs(graph.lat[i]));
+        }
+        metersPerLat = HEURISTIC_FACTOR * GeoHelper.METERS_PER_DEGREE;
+        metersPerLon = metersPerLat * Math.cos(Math.toRadians(maxAbsLat));
+        cost = new double[n];
+        parent = new int[n];
+        seenStamp = new int[n];
+        closedStamp = new int[n];
+    }
+
+    /**
+     * Shortest route between two nodes, or null if the target is unreachable
+     */
+    public synchronized Route route(int from, int to) {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seenStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            generation = 1;
+        }
+        heapSize = 0;
+        lastVisited = 0;
+
+        double targetLat = graph.lat[to];
+        double targetLon = graph.lon[to];
+
+        seenStamp[from] = generation;
+        cost[from] = 0;
+        parent[from] = -1;
+        push(from, heuristic(from, targetLat, targetLon));
+
+        while (heapSize > 0) {
+            int node = pop();
+            if (closedStamp[node] == generation) continue; // stale heap entry
+            closedStamp[node] = generation;
+            lastVisited++;
+
+            if (node == to) {
+                return buildRoute(to);
+            }
+
+            for (int e = graph.firstEdge[node]; e < graph.firstEdge[node + 1]; e++) {
+                int next = graph.edgeTarget[e];
+                if (closedStamp[next] == generation) continue;
+                double candidate = cost[node] + graph.edgeLength[e];
+                if (seenStamp[next] != generation || candidate < cost[next]) {
+                    seenStamp[next] = generation;
+                    cost[next] = candidate;
+                    parent[next] = node;
+                    push(next, candidate + heuristic(next, targetLat, targetLon));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Number of nodes settled by the last query
+     */
+    public int lastVisitedCount() {
+        return lastVisited;
+    }
+
+    private double heuristic(int node, double targetLat, double targetLon) {
+        double dy = (graph.lat[node] - targetLat) * metersPerLat;
+        double dx = (graph.lon[node] - targetLon) * metersPerLon;
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private Route buildRoute(int to) {
+        int length = 0;
+        for (int n = to; n != -1; n = parent[n]) length++;
+
+        double[] lat = new double[length];
+        double[] lon = new double[length];
+        int i = length;
+        for (int n = to; n != -1; n = parent[n]) {
+            i--;
+            lat[i] = graph.lat[n];
+            lon[i] = graph.lon[n];
+        }
+        return new Route(lat, lon, cost[to], true);
+    }
+
+    private void push(int node, double key) {
+        if (heapSize == heapNodes.length) {
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heapKeys[up] <= key) break;
+            heapNodes[i] = heapNodes[up];
+            heapKeys[i] = heapKeys[up];
+            i = up;
+        }
+        heapNodes[i] = node;
+        heapKeys[i] = key;
+    }
+
+    private int pop() {
+        int top = heapNodes[0];
+        int lastNode = heapNodes[--heapSize];
+        double lastKey = heapKeys[heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+            if (heapKeys[child] >= lastKey) break;
+            heapNodes[i] = heapNodes[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapNodes[i] = lastNode;
+        heapKeys[i] = lastKey;
+        return top;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.sosapplication.data.routing;
+
+import com.example.sosapplication.data.aed.AedSpatialIndex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Pedestrian road graph in compressed sparse row form.
+ *
+ * The outgoing edges of node {@code n} are {@code firstEdge[n] .. firstEdge[n + 1] - 1};
+ * two-way ways are stored as two directed edges.
+ *
+ * File layout (big-endian): "RGPH" magic, version, node count, edge count, then the
+ * columns latE7[n], lonE7[n], firstEdge[n + 1], edgeTarget[m] and edgeLength[m]
+ * (float meters).
+ */
+public class RoadGraph {
+
+    static final int MAGIC = 0x52475048; // "RGPH"
+    static final int VERSION = 1;
+
+    private static final double COORDINATE_SCALE = 1e-7;
+
+    final double[] lat;
+    final double[] lon;
+    final int[] firstEdge;
+    final int[] edgeTarget;
+    final float[] edgeLength;
+
+    private AedSpatialIndex nodeIndex;
+
+    public RoadGraph(double[] lat, double[] lon, int[] firstEdge, int[] edgeTarget, float[] edgeLength) {
+        if (lat.length != lon.length || firstEdge.length != lat.length + 1
+                || edgeTarget.length != edgeLength.length
+                || firstEdge[lat.length] != edgeTarget.length) {
+            throw new IllegalArgumentException("Inconsistent graph arrays");
+        }
+        this.lat = lat;
+        this.lon = lon;
+        this.firstEdge = firstEdge;
+        this.edgeTarget = edgeTarget;
+        this.edgeLength = edgeLength;
+    }
+
+    public static RoadGraph read(ByteBuffer source) throws IOException {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a road graph");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported road graph version " + version);
+        }
+        int nodes = buffer.getInt();
+        int edges = buffer.getInt();
+        long expected = 4L * (2L * nodes + nodes + 1 + 2L * edges);
+        if (nodes < 0 || edges < 0 || buffer.remaining() < expected) {
+            throw new IOException("Truncated road graph");
+        }
+
+        int[] quantized = new int[nodes];
+        double[] lat = new double[nodes];
+        double[] lon = new double[nodes];
+        buffer.asIntBuffer().get(quantized);
+        buffer.position(buffer.position() + 4 * nodes);
+        for (int i = 0; i < nodes; i++) lat[i] = quantized[i] * COORDINATE_SCALE;
+        buffer.asIntBuffer().get(quantized);
+        buffer.position(buffer.position() + 4 * nodes);
+        for (int i = 0; i < nodes; i++) lon[i] = quantized[i] * COORDINATE_SCALE;
+
+        int[] firstEdge = new int[nodes + 1];
+        buffer.asIntBuffer().get(firstEdge);
+        buffer.position(buffer.position() + 4 * (nodes + 1));
+        int[] edgeTarget = new int[edges];
+        buffer.asIntBuffer().get(edgeTarget);
+        buffer.position(buffer.position() + 4 * edges);
+        float[] edgeLength = new float[edges];
+        buffer.asFloatBuffer().get(edgeLength);
+
+        return new RoadGraph(lat, lon, firstEdge, edgeTarget, edgeLength);
+    }
+
+    public int nodeCount() {
+        return lat.length;
+    }
+
+    public int edgeCount() {
+        return edgeTarget.length;
+    }
+
+    public double latitude(int node) {
+        return lat[node];
+    }
+
+    public double longitude(int node) {
+        return lon[node];
+    }
+
+    /**
+     * Closest node within maxMeters of the location, or -1
+     */
+    public int nearestNode(double latitude, double longitude, double maxMeters) {
+        AedSpatialIndex index;
+        synchronized (this) {
+            if (nodeIndex == null) {
+                nodeIndex = new AedSpatialIndex(lat, lon);
+            }
+            index = nodeIndex;
+        }
+        int[] node = new int[1];
+        double[] meters = new double[1];
+        if (index.nearest(latitude, longitude, 1, node, meters) == 0 || meters[0] > maxMeters) {
+            return -1;
+        }
+        return node[0];
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.sosapplication.data.routing;
+
+/**
+ * A walking route as a polyline.
+ */
+public final class Route {
+
+    public final double[] latitudes;
+    public final double[] longitudes;
+    public final double lengthMeters;
+    public final boolean offline;
+
+    public Route(double[] latitudes, double[] longitudes, double lengthMeters, boolean offline) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.lengthMeters = lengthMeters;
+        this.offline = offline;
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.sosapplication.data.routing;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of decoded routes keyed by target AED and snapped origin.
+ *
+ * The origin is snapped to a geohash cell so small GPS jitter or a few steps taken
+ * still hit the same entry. Entries are evicted least-recently-used once the byte
+ * budget is exceeded; the most recent ones can be persisted across app restarts.
+ */
+public class RouteCache {
+
+    static final int ORIGIN_PRECISION = 8;
+
+    private static final int FILE_MAGIC = 0x52434143; // "RCAC"
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Route> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public RouteCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static String key(long aedId, double originLat, double originLon) {
+        return aedId + "@" + GeoHelper.geohash(originLat, originLon, ORIGIN_PRECISION);
+    }
+
+    static long sizeOf(Route route) {
+        return ENTRY_OVERHEAD_BYTES + 16L * route.size();
+    }
+
+    public synchronized Route get(String key) {
+        Route route = entries.get(key);
+        if (route != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return route;
+    }
+
+    public synchronized void put(String key, Route route) {
+        long size = sizeOf(route);
+        if (size > budgetBytes) return;
+
+        Route previous = entries.put(key, route);
+        if (previous != null) {
+            sizeBytes -= sizeOf(previous);
+        }
+        sizeBytes += size;
+
+        Iterator<Map.Entry<String, Route>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > budgetBytes && eldest.hasNext()) {
+            sizeBytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Write up to maxRoutes most recently used routes to the file
+     */
+    public void save(File file, int maxRoutes) throws IOException {
+        List<Map.Entry<String, Route>> recent;
+        synchronized (this) {
+            recent = new ArrayList<>(entries.entrySet());
+        }
+        recent = recent.subList(Math.max(0, recent.size() - maxRoutes), recent.size());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(recent.size());
+            for (Map.Entry<String, Route> entry : recent) {
+                Route route = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeBoolean(route.offline);
+                out.writeDouble(route.lengthMeters);
+                out.writeInt(route.size());
+                for (int i = 0; i < route.size(); i++) {
+                    out.writeDouble(route.latitudes[i]);
+                    out.writeDouble(route.longitudes[i]);
+                }
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * Add routes previously written by {@link #save}; missing files are ignored
+     */
+    public void load(File file) throws IOException {
+        if (!file.exists()) return;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a route cache file");
+            }
+            int count = in.readInt();
+            for (int r = 0; r < count; r++) {
+                String key = in.readUTF();
+                boolean offline = in.readBoolean();
+                double length = in.readDouble();
+                int points = in.readInt();
+                double[] lat = new double[points];
+                double[] lon = new double[points];
+                for (int i = 0; i < points; i++) {
+                    lat[i] = in.readDouble();
+                    lon[i] = in.readDouble();
+                }
+                put(key, new Route(lat, lon, length, offline));
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RouteCache[entries=" + entries.size() + ", bytes=" + sizeBytes + "/" + budgetBytes
+                + ", hitRate=" + Math.round(hitRate() * 100) + "%, evictions=" + evictions + "]";
+    }
+}
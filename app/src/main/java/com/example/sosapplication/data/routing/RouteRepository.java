@@ -0,0 +1,220 @@
+package com.example.sosapplication.data.routing;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.sosapplication.SOSApplication;
+import com.example.sosapplication.utils.AssetHelper;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Computes walking routes, on-device when the bundled road graph covers both ends
+ * and through the public OSRM server otherwise.
+ *
+ * Results are kept in a process-wide {@link RouteCache}, so navigating again to the
+ * same AED from about the same spot is answered without any routing or network work.
+ */
+public class RouteRepository {
+
+    private static final String TAG = "RouteRepository";
+    private static final String GRAPH_ASSET = "routing/SK_foot.graph";
+    private static final String OSRM_URL = "https://router.project-osrm.org/route/v1/foot/";
+
+    // Farther than this from the road network, the offline graph is not trusted
+    private static final double MAX_SNAP_METERS = 300;
+
+    private static final String CACHE_FILE = "route_cache.bin";
+    private static final long CACHE_BUDGET_BYTES = 1024 * 1024;
+    private static final int PERSISTED_ROUTES = 8;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final RouteCache CACHE = new RouteCache(CACHE_BUDGET_BYTES);
+
+    private static boolean cacheLoaded;
+
+    private static boolean graphLoaded;
+    private static RoadGraph graph;
+    private static AStarRouter router;
+
+    private final Context context;
+    private final Handler mainHandler;
+    private final OkHttpClient client;
+
+    private Future<?> pendingTask;
+    private volatile Call pendingCall;
+
+    public interface RouteCallback {
+        void onRoute(Route route);
+        void onError(String error);
+    }
+
+    public RouteRepository(Context context) {
+        this.context = context.getApplicationContext();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.client = SOSApplication.from(context).getHttpClient().newBuilder()
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(10, TimeUnit.SECONDS)
+                .callTimeout(15, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * Route from a location to an AED; cancels the previous request of this repository
+     */
+    public void route(long aedId, double fromLat, double fromLon, double toLat, double toLon,
+                      RouteCallback callback) {
+        cancel();
+
+        String key = RouteCache.key(aedId, fromLat, fromLon);
+        Route cached = CACHE.get(key);
+        if (cached != null) {
+            Log.d(TAG, "Route cache hit " + key + ": " + CACHE);
+            mainHandler.post(() -> callback.onRoute(cached));
+            return;
+        }
+
+        pendingTask = EXECUTOR.submit(() -> {
+            try {
+                Route route = loadCache() ? CACHE.get(key) : null;
+                if (route == null) {
+                    route = routeOffline(fromLat, fromLon, toLat, toLon);
+                }
+                if (route == null) {
+                    route = routeOnline(fromLat, fromLon, toLat, toLon);
+                }
+                if (Thread.currentThread().isInterrupted()) return;
+
+                CACHE.put(key, route);
+                saveCache();
+
+                Route result = route;
+                mainHandler.post(() -> callback.onRoute(result));
+            } catch (Exception e) {
+                // Cancelled by cancel(), which interrupts before it aborts the call
+                if (Thread.currentThread().isInterrupted()) return;
+                Log.e(TAG, "Failed to build route", e);
+                mainHandler.post(() -> callback.onError(e.getMessage()));
+            }
+        });
+    }
+
+    public void cancel() {
+        if (pendingTask != null) {
+            pendingTask.cancel(true);
+            pendingTask = null;
+        }
+        Call call = pendingCall;
+        pendingCall = null;
+        if (call != null) {
+            call.cancel();
+        }
+    }
+
+    public static RouteCache getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Restore persisted routes once per process; true if that happened just now.
+     * Called on EXECUTOR only.
+     */
+    private boolean loadCache() {
+        if (cacheLoaded) return false;
+        cacheLoaded = true;
+        try {
+            CACHE.load(new File(context.getCacheDir(), CACHE_FILE));
+        } catch (IOException e) {
+            Log.w(TAG, "Discarding unreadable route cache", e);
+        }
+        return true;
+    }
+
+    private void saveCache() {
+        try {
+            CACHE.save(new File(context.getCacheDir(), CACHE_FILE), PERSISTED_ROUTES);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to persist route cache", e);
+        }
+    }
+
+    private Route routeOffline(double fromLat, double fromLon, double toLat, double toLon) {
+        AStarRouter astar = offlineRouter();
+        if (astar == null) return null;
+
+        int from = graph.nearestNode(fromLat, fromLon, MAX_SNAP_METERS);
+        int to = graph.nearestNode(toLat, toLon, MAX_SNAP_METERS);
+        if (from < 0 || to < 0) return null;
+
+        long start = System.nanoTime();
+        Route route = astar.route(from, to);
+        Log.d(TAG, "Offline route: " + astar.lastVisitedCount() + " nodes settled in "
+                + (System.nanoTime() - start) / 1000 + " us");
+        return route;
+    }
+
+    private AStarRouter offlineRouter() {
+        synchronized (RouteRepository.class) {
+            if (!graphLoaded) {
+                graphLoaded = true;
+                try {
+                    ByteBuffer buffer = AssetHelper.mapAsset(context, GRAPH_ASSET);
+                    if (buffer != null) {
+                        graph = RoadGraph.read(buffer);
+                        router = new AStarRouter(graph);
+                        Log.d(TAG, "Loaded road graph: " + graph.nodeCount() + " nodes, "
+                                + graph.edgeCount() + " edges");
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to load road graph", e);
+                }
+            }
+            return router;
+        }
+    }
+
+    private Route routeOnline(double fromLat, double fromLon, double toLat, double toLon) throws Exception {
+        String url = OSRM_URL
+                + String.format(Locale.US, "%.7f,%.7f;%.7f,%.7f", fromLon, fromLat, toLon, toLat)
+                + "?overview=full&geometries=geojson";
+
+        Call call = client.newCall(new Request.Builder().url(url).build());
+        pendingCall = call;
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Server error: " + response.code());
+            }
+
+            JSONObject json = new JSONObject(response.body().string())
+                    .getJSONArray("routes")
+                    .getJSONObject(0);
+            JSONArray coords = json.getJSONObject("geometry").getJSONArray("coordinates");
+
+            double[] lat = new double[coords.length()];
+            double[] lon = new double[coords.length()];
+            for (int i = 0; i < coords.length(); i++) {
+                JSONArray c = coords.getJSONArray(i);
+                lon[i] = c.getDouble(0);
+                lat[i] = c.getDouble(1);
+            }
+            return new Route(lat, lon, json.optDouble("distance", 0), false);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.sosapplication.data.tiles;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import org.osmdroid.tileprovider.modules.IArchiveFile;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Read-only access to an MBTiles archive (SQLite, tiles in TMS row order).
+ *
+ * The zoom range and bounds from the archive's metadata are turned into per-zoom
+ * tile ranges when opening, so requests the archive cannot answer are rejected without
+ * touching the database and fall through to the next tile provider. The database is
+ * opened with SQLite memory-mapped I/O so tile blobs are read straight from the page
+ * cache.
+ */
+public class MbTilesArchive implements IArchiveFile {
+
+    private static final String TAG = "MbTilesArchive";
+
+    // Upper bound for SQLite's mmap window; the whole Slovakia pack fits comfortably
+    private static final long MMAP_BYTES = 256L * 1024 * 1024;
+    private static final int MAX_ZOOM = 22;
+
+    private SQLiteDatabase database;
+    private String name = "";
+    private int minZoom;
+    private int maxZoom = MAX_ZOOM;
+    private double west = -180, south = -85.05112878, east = 180, north = 85.05112878;
+
+    // Inclusive XYZ tile ranges per zoom level, covering the archive bounds
+    private final int[] minX = new int[MAX_ZOOM + 1];
+    private final int[] maxX = new int[MAX_ZOOM + 1];
+    private final int[] minY = new int[MAX_ZOOM + 1];
+    private final int[] maxY = new int[MAX_ZOOM + 1];
+
+    public static MbTilesArchive open(File file) {
+        MbTilesArchive archive = new MbTilesArchive();
+        archive.init(file);
+        return archive;
+    }
+
+    @Override
+    public void init(File file) {
+        database = SQLiteDatabase.openDatabase(file.getAbsolutePath(), null,
+                SQLiteDatabase.OPEN_READONLY | SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        try (Cursor pragma = database.rawQuery("PRAGMA mmap_size=" + MMAP_BYTES, null)) {
+            pragma.moveToFirst();
+        }
+        readMetadata();
+
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            minX[z] = TileMath.tileX(west, z);
+            maxX[z] = TileMath.tileX(east, z);
+            minY[z] = TileMath.tileY(north, z);
+            maxY[z] = TileMath.tileY(south, z);
+        }
+        Log.d(TAG, "Opened " + file.getName() + " (" + name + ", zoom " + minZoom + "-" + maxZoom + ")");
+    }
+
+    private void readMetadata() {
+        try (Cursor cursor = database.rawQuery("SELECT name, value FROM metadata", null)) {
+            while (cursor.moveToNext()) {
+                String key = cursor.getString(0);
+                String value = cursor.getString(1);
+                if (value == null) continue;
+                try {
+                    switch (key) {
+                        case "name":
+                            name = value;
+                            break;
+                        case "minzoom":
+                            minZoom = Math.max(0, Integer.parseInt(value.trim()));
+                            break;
+                        case "maxzoom":
+                            maxZoom = Math.min(MAX_ZOOM, Integer.parseInt(value.trim()));
+                            break;
+                        case "bounds":
+                            String[] parts = value.split(",");
+                            if (parts.length == 4) {
+                                west = Double.parseDouble(parts[0].trim());
+                                south = Double.parseDouble(parts[1].trim());
+                                east = Double.parseDouble(parts[2].trim());
+                                north = Double.parseDouble(parts[3].trim());
+                            }
+                            break;
+                    }
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "Ignoring malformed metadata " + key + "=" + value);
+                }
+            }
+        }
+    }
+
+    public int getMinZoom() {
+        return minZoom;
+    }
+
+    public int getMaxZoom() {
+        return maxZoom;
+    }
+
+    /**
+     * Whether the archive's zoom range and bounds include the given XYZ tile
+     */
+    public boolean covers(int zoom, int x, int y) {
+        return zoom >= minZoom && zoom <= maxZoom
+                && x >= minX[zoom] && x <= maxX[zoom]
+                && y >= minY[zoom] && y <= maxY[zoom];
+    }
+
+    /**
+     * Raw tile bytes for an XYZ tile, or null if the archive doesn't have it
+     */
+    public byte[] readTile(int zoom, int x, int y) {
+        if (database == null || !covers(zoom, x, y)) return null;
+
+        int tmsRow = (1 << zoom) - 1 - y;
+        try (Cursor cursor = database.rawQuery(
+                "SELECT tile_data FROM tiles WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?",
+                new String[]{Integer.toString(zoom), Integer.toString(x), Integer.toString(tmsRow)})) {
+            return cursor.moveToFirst() ? cursor.getBlob(0) : null;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to read tile " + zoom + "/" + x + "/" + y, e);
+            return null;
+        }
+    }
+
+    @Override
+    public InputStream getInputStream(ITileSource tileSource, long mapTileIndex) {
+        byte[] tile = readTile(MapTileIndex.getZoom(mapTileIndex),
+                MapTileIndex.getX(mapTileIndex), MapTileIndex.getY(mapTileIndex));
+        return tile == null ? null : new ByteArrayInputStream(tile);
+    }
+
+    @Override
+    public Set<String> getTileSources() {
+        return Collections.singleton(name);
+    }
+
+    @Override
+    public void setIgnoreTileSource(boolean ignoreTileSource) {
+        // An MBTiles file holds a single tile set, so there is nothing to filter on
+    }
+
+    @Override
+    public void close() {
+        if (database != null) {
+            database.close();
+            database = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MbTilesArchive{" + name + ", zoom " + minZoom + "-" + maxZoom + "}";
+    }
+}
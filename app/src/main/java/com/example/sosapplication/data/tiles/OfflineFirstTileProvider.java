@@ -0,0 +1,108 @@
+package com.example.sosapplication.data.tiles;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+import org.osmdroid.tileprovider.IRegisterReceiver;
+import org.osmdroid.tileprovider.MapTileProviderArray;
+import org.osmdroid.tileprovider.modules.IArchiveFile;
+import org.osmdroid.tileprovider.modules.IFilesystemCache;
+import org.osmdroid.tileprovider.modules.MapTileApproximater;
+import org.osmdroid.tileprovider.modules.MapTileDownloader;
+import org.osmdroid.tileprovider.modules.MapTileFileArchiveProvider;
+import org.osmdroid.tileprovider.modules.MapTileModuleProviderBase;
+import org.osmdroid.tileprovider.modules.MapTileSqlCacheProvider;
+import org.osmdroid.tileprovider.modules.NetworkAvailabliltyCheck;
+import org.osmdroid.tileprovider.modules.SqlTileWriter;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.util.SimpleRegisterReceiver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tile provider chain that answers from the offline MBTiles pack first.
+ *
+ * Order: the archive, osmdroid's SQLite tile cache, scaled tiles from other zoom levels
+ * and finally the online tile source, which also fills the cache. Tiles outside the
+ * archive's bounds or zoom range fall straight through to the next module; without an
+ * archive the chain starts at the cache.
+ */
+public class OfflineFirstTileProvider extends MapTileProviderArray {
+
+    public interface TileRequestListener {
+        void onTileRequested(long mapTileIndex);
+    }
+
+    private final MbTilesArchive archive;
+    private final SqlTileWriter cacheWriter;
+    private TileRequestListener requestListener;
+
+    /**
+     * @param archive offline pack, or null to run on the cache and network only
+     */
+    public static OfflineFirstTileProvider create(Context context, ITileSource onlineSource,
+                                                  MbTilesArchive archive) {
+        Context app = context.getApplicationContext();
+        IRegisterReceiver receiver = new SimpleRegisterReceiver(app);
+        SqlTileWriter cacheWriter = new SqlTileWriter();
+
+        List<MapTileModuleProviderBase> modules = new ArrayList<>();
+        MapTileApproximater approximater = new MapTileApproximater();
+        if (archive != null) {
+            MapTileFileArchiveProvider archiveProvider = new MapTileFileArchiveProvider(
+                    receiver, onlineSource, new IArchiveFile[]{archive});
+            modules.add(archiveProvider);
+            approximater.addProvider(archiveProvider);
+        }
+        MapTileSqlCacheProvider cacheProvider = new MapTileSqlCacheProvider(receiver, onlineSource);
+        modules.add(cacheProvider);
+        approximater.addProvider(cacheProvider);
+        modules.add(approximater);
+        modules.add(new MapTileDownloader(onlineSource, cacheWriter, new NetworkAvailabliltyCheck(app)));
+
+        return new OfflineFirstTileProvider(onlineSource, receiver, archive, cacheWriter,
+                modules.toArray(new MapTileModuleProviderBase[0]));
+    }
+
+    private OfflineFirstTileProvider(ITileSource onlineSource, IRegisterReceiver receiver,
+                                     MbTilesArchive archive, SqlTileWriter cacheWriter,
+                                     MapTileModuleProviderBase[] modules) {
+        super(onlineSource, receiver, modules);
+        this.archive = archive;
+        this.cacheWriter = cacheWriter;
+    }
+
+    public MbTilesArchive getArchive() {
+        return archive;
+    }
+
+    public void setTileRequestListener(TileRequestListener listener) {
+        this.requestListener = listener;
+    }
+
+    @Override
+    public Drawable getMapTile(long mapTileIndex) {
+        Drawable tile = super.getMapTile(mapTileIndex);
+        // Null on every redraw while the tile is pending, so this is hit once per frame until
+        // it loads; the listener has to dedupe
+        if (tile == null && requestListener != null) {
+            requestListener.onTileRequested(mapTileIndex);
+        }
+        return tile;
+    }
+
+    @Override
+    public IFilesystemCache getTileWriter() {
+        return cacheWriter;
+    }
+
+    @Override
+    public void detach() {
+        super.detach();
+        cacheWriter.onDetach();
+        if (archive != null) {
+            archive.close();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.sosapplication.data.tiles;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.example.sosapplication.SOSApplication;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Locates the offline tile pack for Slovakia and opens it off the UI thread.
+ *
+ * The pack lives at {@code files/tiles/SK.mbtiles}. It is either downloaded from the
+ * backend by {@link #download(OpenCallback)} or, when the APK bundles one, copied once
+ * from the {@code tiles/SK.mbtiles} asset (SQLite can't open assets in place).
+ */
+public class OfflineTileRepository {
+
+    private static final String TAG = "OfflineTileRepository";
+    private static final String PACK_NAME = "SK.mbtiles";
+    private static final String ASSET_PATH = "tiles/" + PACK_NAME;
+    private static final String DOWNLOAD_URL = SOSApplication.BACKEND_API_URL + "/tiles/" + PACK_NAME;
+
+    // The pack is tens of megabytes; try once per process, not on every map open
+    private static final AtomicBoolean downloadStarted = new AtomicBoolean();
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private final Handler mainHandler;
+
+    public interface OpenCallback {
+        void onOpened(MbTilesArchive archive);
+        void onUnavailable();
+    }
+
+    public OfflineTileRepository(Context context) {
+        this.context = context.getApplicationContext();
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public File getPackFile() {
+        return new File(new File(context.getFilesDir(), "tiles"), PACK_NAME);
+    }
+
+    /**
+     * Open the installed pack, delivering the result on the main thread
+     */
+    public void open(OpenCallback callback) {
+        EXECUTOR.execute(() -> {
+            MbTilesArchive archive = null;
+            try {
+                File pack = getPackFile();
+                if (pack.exists() || copyBundledPack()) {
+                    archive = MbTilesArchive.open(pack);
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Failed to open offline tiles", e);
+            }
+
+            MbTilesArchive result = archive;
+            mainHandler.post(() -> {
+                if (result != null) {
+                    callback.onOpened(result);
+                } else {
+                    callback.onUnavailable();
+                }
+            });
+        });
+    }
+
+    /**
+     * Download the pack from the backend, install and open it, delivering the result on
+     * the main thread. Does nothing and reports unavailable on a metered network, or when
+     * a download already ran in this process.
+     */
+    public void download(OpenCallback callback) {
+        ConnectivityManager connectivity = context.getSystemService(ConnectivityManager.class);
+        if (connectivity == null || connectivity.isActiveNetworkMetered()
+                || !downloadStarted.compareAndSet(false, true)) {
+            mainHandler.post(callback::onUnavailable);
+            return;
+        }
+
+        OkHttpClient client = SOSApplication.from(context).getHttpClient().newBuilder()
+                .readTimeout(60, TimeUnit.SECONDS)
+                .build();
+        EXECUTOR.execute(() -> {
+            MbTilesArchive archive = null;
+            Request request = new Request.Builder().url(DOWNLOAD_URL).build();
+            try (Response response = client.newCall(request).execute()) {
+                ResponseBody body = response.body();
+                if (response.isSuccessful() && body != null) {
+                    install(body.byteStream());
+                    archive = MbTilesArchive.open(getPackFile());
+                } else {
+                    Log.w(TAG, "No offline tiles on the server: " + response.code());
+                }
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Failed to download offline tiles", e);
+            }
+
+            MbTilesArchive result = archive;
+            mainHandler.post(() -> {
+                if (result != null) {
+                    callback.onOpened(result);
+                } else {
+                    callback.onUnavailable();
+                }
+            });
+        });
+    }
+
+    /**
+     * Replace the pack with the given MBTiles stream; blocking, call off the UI thread
+     */
+    public void install(InputStream in) throws IOException {
+        File pack = getPackFile();
+        File parent = pack.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        File tmp = new File(pack.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            // Do not leave half a pack behind after a dropped download
+            tmp.delete();
+            throw e;
+        }
+        if (!tmp.renameTo(pack)) {
+            tmp.delete();
+            throw new IOException("Cannot move tile pack into place");
+        }
+        Log.d(TAG, "Installed offline tiles (" + pack.length() / 1024 + " KB)");
+    }
+
+    private boolean copyBundledPack() throws IOException {
+        try (InputStream in = context.getAssets().open(ASSET_PATH)) {
+            install(in);
+            return true;
+        } catch (FileNotFoundException missing) {
+            return false;
+        }
+    }
+}
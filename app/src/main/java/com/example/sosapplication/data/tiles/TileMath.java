@@ -0,0 +1,34 @@
+package com.example.sosapplication.data.tiles;
+
+/**
+ * Web Mercator (XYZ) tile coordinates
+ */
+final class TileMath {
+
+    private TileMath() {
+    }
+
+    static int tileX(double lon, int zoom) {
+        int n = 1 << zoom;
+        int x = (int) Math.floor((lon + 180) / 360 * n);
+        return Math.min(n - 1, Math.max(0, x));
+    }
+
+    static int tileY(double lat, int zoom) {
+        int n = 1 << zoom;
+        double rad = Math.toRadians(lat);
+        double y = (1 - Math.log(Math.tan(rad) + 1 / Math.cos(rad)) / Math.PI) / 2 * n;
+        return Math.min(n - 1, Math.max(0, (int) Math.floor(y)));
+    }
+
+    /** Longitude of the tile's centre */
+    static double centerLon(int x, int zoom) {
+        return (x + 0.5) / (1 << zoom) * 360 - 180;
+    }
+
+    /** Latitude of the tile's centre (in Mercator space) */
+    static double centerLat(int y, int zoom) {
+        double n = Math.PI - 2 * Math.PI * (y + 0.5) / (1 << zoom);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.sosapplication.data.tiles;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import org.osmdroid.util.MapTileIndex;
+
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Tiles waiting to be prefetched, nearest to the user first.
+ *
+ * Every tile is planned at most once per plan, so overlapping areas (the radius around
+ * the user and a route leaving it) don't queue duplicates. Not thread-safe.
+ */
+class TilePlan {
+
+    private static final class Pending {
+        final long index;
+        final int zoom;
+        final double meters;
+
+        Pending(long index, int zoom, double meters) {
+            this.index = index;
+            this.zoom = zoom;
+            this.meters = meters;
+        }
+    }
+
+    private final int minZoom;
+    private final int maxZoom;
+
+    // Equal distance: coarser zoom first, it covers more of the screen per byte
+    private final PriorityQueue<Pending> queue = new PriorityQueue<>(64, (a, b) -> {
+        int byDistance = Double.compare(a.meters, b.meters);
+        return byDistance != 0 ? byDistance : Integer.compare(a.zoom, b.zoom);
+    });
+    private final Set<Long> planned = new HashSet<>();
+
+    TilePlan(int minZoom, int maxZoom) {
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+    }
+
+    /**
+     * Plan every tile whose centre lies within the radius of the user
+     */
+    void addAround(double userLat, double userLon, double radiusMeters) {
+        double dLat = radiusMeters / GeoHelper.METERS_PER_DEGREE;
+        double dLon = dLat / Math.cos(Math.toRadians(userLat));
+        for (int z = minZoom; z <= maxZoom; z++) {
+            int x0 = TileMath.tileX(userLon - dLon, z), x1 = TileMath.tileX(userLon + dLon, z);
+            int y0 = TileMath.tileY(userLat + dLat, z), y1 = TileMath.tileY(userLat - dLat, z);
+            for (int x = x0; x <= x1; x++) {
+                for (int y = y0; y <= y1; y++) {
+                    double meters = GeoHelper.distanceMeters(userLat, userLon,
+                            TileMath.centerLat(y, z), TileMath.centerLon(x, z));
+                    // The user's own tile always qualifies, however small the radius
+                    if (meters <= radiusMeters || (x == TileMath.tileX(userLon, z)
+                            && y == TileMath.tileY(userLat, z))) {
+                        add(z, x, y, meters);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Plan the tiles a polyline passes through, widened by {@code widthTiles} on each side
+     */
+    void addCorridor(double userLat, double userLon, double[] lat, double[] lon, int count,
+                     int widthTiles) {
+        for (int z = minZoom; z <= maxZoom; z++) {
+            // Sample segments finer than a tile so none is skipped diagonally
+            double step = 0.5 * 360.0 / (1 << z) * Math.cos(Math.toRadians(userLat));
+            for (int i = 0; i < count; i++) {
+                int samples = 1;
+                if (i + 1 < count) {
+                    double span = Math.max(Math.abs(lat[i + 1] - lat[i]), Math.abs(lon[i + 1] - lon[i]));
+                    samples = Math.max(1, (int) Math.ceil(span / step));
+                }
+                for (int s = 0; s < samples; s++) {
+                    double t = (double) s / samples;
+                    double pLat = i + 1 < count ? lat[i] + (lat[i + 1] - lat[i]) * t : lat[i];
+                    double pLon = i + 1 < count ? lon[i] + (lon[i + 1] - lon[i]) * t : lon[i];
+                    addNeighbourhood(userLat, userLon, z, TileMath.tileX(pLon, z),
+                            TileMath.tileY(pLat, z), widthTiles);
+                }
+            }
+        }
+    }
+
+    private void addNeighbourhood(double userLat, double userLon, int z, int cx, int cy, int width) {
+        int max = (1 << z) - 1;
+        for (int x = Math.max(0, cx - width); x <= Math.min(max, cx + width); x++) {
+            for (int y = Math.max(0, cy - width); y <= Math.min(max, cy + width); y++) {
+                if (planned.contains(MapTileIndex.getTileIndex(z, x, y))) continue;
+                add(z, x, y, GeoHelper.distanceMeters(userLat, userLon,
+                        TileMath.centerLat(y, z), TileMath.centerLon(x, z)));
+            }
+        }
+    }
+
+    private void add(int z, int x, int y, double meters) {
+        long index = MapTileIndex.getTileIndex(z, x, y);
+        if (planned.add(index)) {
+            queue.add(new Pending(index, z, meters));
+        }
+    }
+
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    int size() {
+        return queue.size();
+    }
+
+    /**
+     * Next tile to fetch as a MapTileIndex, or -1 when the plan is exhausted
+     */
+    long poll() {
+        Pending next = queue.poll();
+        return next == null ? -1 : next.index;
+    }
+
+    /**
+     * Drop queued tiles; tiles planned before stay known so they are not queued again
+     */
+    void clearQueue() {
+        queue.clear();
+    }
+
+    void reset() {
+        queue.clear();
+        planned.clear();
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.sosapplication.data.tiles;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.util.Log;
+
+import com.example.sosapplication.SOSApplication;
+import com.example.sosapplication.data.routing.Route;
+
+import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.modules.IFilesystemCache;
+import org.osmdroid.tileprovider.modules.SqlTileWriter;
+import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.TileSourcePolicy;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Warms osmdroid's tile cache around the user and along the current route.
+ *
+ * Tiles for zooms {@value #MIN_ZOOM}-{@value #MAX_ZOOM} are fetched nearest-first by a
+ * small pool of workers and written to the same SQLite cache the map reads from. Tiles
+ * already in that cache or in the offline pack are skipped. Fetching stops when the
+ * byte budget is spent, the battery runs low or power saving is on, and {@link #cancel()}
+ * aborts everything including in-flight requests.
+ *
+ * Only tile servers whose usage policy allows preventive and bulk downloads may be
+ * prefetched from, see {@link #isAllowedFor}; the public OpenStreetMap servers do not.
+ *
+ * The map reports the tiles it actually loads through {@link #onTileRequested(long)},
+ * which gives the prefetch hit rate.
+ */
+public class TilePrefetcher {
+
+    private static final String TAG = "TilePrefetcher";
+
+    public static final int MIN_ZOOM = 14;
+    public static final int MAX_ZOOM = 17;
+
+    // Same lifetime osmdroid gives downloaded tiles
+    private static final long TILE_TTL_MS = TimeUnit.DAYS.toMillis(7);
+    private static final int BATTERY_CHECK_INTERVAL = 16;
+    private static final int MAX_CONCURRENCY = 4;
+
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(MAX_CONCURRENCY);
+
+    /** Prefetch limits; the defaults suit a city walk to an AED */
+    public static class Budget {
+        public double radiusMeters = 1500;
+        public int corridorTiles = 1;
+        public long maxBytes = 8L * 1024 * 1024;
+        public int minBatteryPercent = 20;
+        public int concurrency = 2;
+    }
+
+    private final Context context;
+    private final OnlineTileSourceBase source;
+    private final IFilesystemCache cache;
+    private final MbTilesArchive archive;
+    private final Budget budget;
+    private final OkHttpClient client;
+    private final int concurrency;
+
+    // Guarded by this
+    private final TilePlan plan = new TilePlan(MIN_ZOOM, MAX_ZOOM);
+    private final Set<Call> inFlight = new HashSet<>();
+    private final Set<Long> prefetched = new HashSet<>();
+    private final Set<Long> requested = new HashSet<>();
+    private int activeWorkers;
+    private int generation;
+    private boolean stopped;
+    private long bytes;
+    private int fetched;
+    private int skipped;
+    private int failed;
+    private int hits;
+
+    /**
+     * Whether the tile source's {@link TileSourcePolicy} allows prefetching its tiles
+     */
+    public static boolean isAllowedFor(OnlineTileSourceBase source) {
+        TileSourcePolicy policy = source.getTileSourcePolicy();
+        return policy.acceptsPreventive() && policy.acceptsBulkDownload();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the source's policy forbids prefetching
+     */
+    public TilePrefetcher(Context context, OnlineTileSourceBase source, MbTilesArchive archive,
+                          Budget budget) {
+        if (!isAllowedFor(source)) {
+            throw new IllegalArgumentException("Tile source " + source.name() + " does not allow prefetching");
+        }
+        this.context = context.getApplicationContext();
+        this.source = source;
+        this.cache = new SqlTileWriter();
+        this.archive = archive;
+        this.budget = budget;
+        // Tiles go to osmdroid's own cache, not the HTTP response cache
+        this.client = SOSApplication.from(context).getHttpClient().newBuilder()
+                .cache(null)
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .readTimeout(10, TimeUnit.SECONDS)
+                .build();
+        int maxConcurrent = source.getTileSourcePolicy().getMaxConcurrent();
+        this.concurrency = Math.max(1, Math.min(maxConcurrent > 0 ? maxConcurrent : MAX_CONCURRENCY,
+                Math.min(MAX_CONCURRENCY, budget.concurrency)));
+    }
+
+    /**
+     * Queue the tiles within the budget radius of the user
+     */
+    public void prefetchAround(double lat, double lon) {
+        synchronized (this) {
+            plan.addAround(lat, lon, budget.radiusMeters);
+        }
+        startWorkers();
+    }
+
+    /**
+     * Queue the tiles along a route, ordered by their distance from the user
+     */
+    public void prefetchRoute(double userLat, double userLon, Route route) {
+        synchronized (this) {
+            plan.addCorridor(userLat, userLon, route.latitudes, route.longitudes, route.size(),
+                    budget.corridorTiles);
+        }
+        startWorkers();
+    }
+
+    /**
+     * Stop fetching and abort in-flight requests; later prefetch calls start afresh
+     */
+    public void cancel() {
+        synchronized (this) {
+            // Workers of the old generation leave without touching the new count
+            generation++;
+            activeWorkers = 0;
+            plan.reset();
+            for (Call call : inFlight) {
+                call.cancel();
+            }
+            inFlight.clear();
+        }
+    }
+
+    /**
+     * Report a tile the map had to load; repeats while it is pending are ignored
+     */
+    public synchronized void onTileRequested(long mapTileIndex) {
+        int zoom = MapTileIndex.getZoom(mapTileIndex);
+        if (zoom < MIN_ZOOM || zoom > MAX_ZOOM) return;
+        if (requested.add(mapTileIndex) && prefetched.contains(mapTileIndex)) {
+            hits++;
+        }
+    }
+
+    /**
+     * Share of map-loaded tiles in the prefetch zooms that were prefetched beforehand
+     */
+    public synchronized double hitRate() {
+        return requested.isEmpty() ? 0 : (double) hits / requested.size();
+    }
+
+    public synchronized long bytesFetched() {
+        return bytes;
+    }
+
+    private void startWorkers() {
+        if (!batteryAllows()) {
+            Log.d(TAG, "Skipping prefetch, battery budget exhausted");
+            synchronized (this) {
+                plan.clearQueue();
+            }
+            return;
+        }
+        synchronized (this) {
+            stopped = false;
+            int gen = generation;
+            while (activeWorkers < concurrency && !plan.isEmpty()) {
+                activeWorkers++;
+                WORKERS.execute(() -> drain(gen));
+            }
+        }
+    }
+
+    private void drain(int gen) {
+        int sinceBatteryCheck = 0;
+        while (true) {
+            long index;
+            synchronized (this) {
+                if (gen != generation) return;
+                if (stopped || plan.isEmpty()) {
+                    activeWorkers--;
+                    return;
+                }
+                if (bytes >= budget.maxBytes) {
+                    stop("byte budget of " + budget.maxBytes / 1024 + " KB spent");
+                    continue;
+                }
+                index = plan.poll();
+            }
+
+            if (++sinceBatteryCheck >= BATTERY_CHECK_INTERVAL) {
+                sinceBatteryCheck = 0;
+                if (!batteryAllows()) {
+                    synchronized (this) {
+                        stop("battery low");
+                    }
+                    continue;
+                }
+            }
+
+            if (isAvailable(index)) {
+                synchronized (this) {
+                    skipped++;
+                }
+                continue;
+            }
+            fetch(gen, index);
+        }
+    }
+
+    // Called with the lock held
+    private void stop(String reason) {
+        if (!stopped) {
+            Log.d(TAG, "Prefetch stopped: " + reason + " (" + this + ")");
+        }
+        stopped = true;
+        plan.clearQueue();
+    }
+
+    private boolean isAvailable(long index) {
+        int z = MapTileIndex.getZoom(index), x = MapTileIndex.getX(index), y = MapTileIndex.getY(index);
+        if (archive != null && archive.covers(z, x, y) && archive.readTile(z, x, y) != null) {
+            return true;
+        }
+        return cache.exists(source, index);
+    }
+
+    private void fetch(int gen, long index) {
+        Request request = new Request.Builder()
+                .url(source.getTileURLString(index))
+                .header("User-Agent", Configuration.getInstance().getUserAgentValue())
+                .build();
+        Call call = client.newCall(request);
+        synchronized (this) {
+            if (gen != generation) return;
+            inFlight.add(call);
+        }
+
+        try (Response response = call.execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+            byte[] data = body.bytes();
+            synchronized (this) {
+                if (gen != generation) return;
+                bytes += data.length;
+                fetched++;
+                prefetched.add(index);
+            }
+            cache.saveFile(source, index, new ByteArrayInputStream(data),
+                    System.currentTimeMillis() + TILE_TTL_MS);
+        } catch (IOException e) {
+            if (call.isCanceled()) return;
+            synchronized (this) {
+                failed++;
+            }
+            Log.w(TAG, "Failed to prefetch " + MapTileIndex.toString(index) + ": " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                inFlight.remove(call);
+            }
+        }
+    }
+
+    private boolean batteryAllows() {
+        PowerManager power = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (power != null && power.isPowerSaveMode()) return false;
+
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) return true;
+        if (battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0) return true;
+
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        return level < 0 || scale <= 0 || level * 100 / scale >= budget.minBatteryPercent;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "TilePrefetcher{fetched=%d, skipped=%d, failed=%d, %d KB, "
+                        + "hits=%d/%d (%.0f%%)}", fetched, skipped, failed, bytes / 1024,
+                hits, requested.size(), hitRate() * 100);
+    }
+}
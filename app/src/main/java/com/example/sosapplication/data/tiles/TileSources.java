@@ -0,0 +1,39 @@
+package com.example.sosapplication.data.tiles;
+
+import com.example.sosapplication.BuildConfig;
+
+import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.tileprovider.tilesource.TileSourcePolicy;
+import org.osmdroid.tileprovider.tilesource.XYTileSource;
+
+/**
+ * The online tile source shared by the map and {@link TilePrefetcher}.
+ *
+ * With a tile server configured in app/build.gradle.kts (-Ptiles.url=..., for example
+ * the backend's /api/tiles/SK/) tiles come from there and may be prefetched. Without
+ * one the map uses the public OpenStreetMap servers, whose usage policy forbids
+ * prefetching, so nothing is warmed ahead.
+ */
+public final class TileSources {
+
+    // Parallel downloads from our own server, as many as osmdroid's default downloader threads
+    private static final int MAX_CONCURRENT = 4;
+
+    private static OnlineTileSourceBase online;
+
+    private TileSources() {
+    }
+
+    public static synchronized OnlineTileSourceBase online() {
+        if (online == null) {
+            String url = BuildConfig.TILE_SERVER_URL;
+            online = url.isEmpty() ? TileSourceFactory.MAPNIK
+                    : new XYTileSource("SOSTiles", 0, 19, 256, ".png",
+                            new String[]{url.endsWith("/") ? url : url + "/"},
+                            "© OpenStreetMap contributors",
+                            new TileSourcePolicy(MAX_CONCURRENT, TileSourcePolicy.FLAG_USER_AGENT_MEANINGFUL));
+        }
+        return online;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.sosapplication.network;
+
+import java.util.Locale;
+
+/**
+ * Milestones of one call measured from an outside starting point, such as the moment the
+ * SOS button was pressed. Attach it with {@code Request.Builder.tag(CallTiming.class, timing)};
+ * {@link HttpMetrics} fills it in as the call progresses.
+ */
+public class CallTiming {
+
+    /** {@link System#nanoTime()} of the starting point */
+    public final long startNanos;
+
+    volatile long sentNanos;
+    volatile long responseNanos;
+    volatile boolean reusedConnection;
+
+    public CallTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /** Start to request fully written, or -1 if it never was */
+    public long sentMillis() {
+        return sentNanos == 0 ? -1 : (sentNanos - startNanos) / 1_000_000;
+    }
+
+    /** Start to response headers received, or -1 if none arrived */
+    public long responseMillis() {
+        return responseNanos == 0 ? -1 : (responseNanos - startNanos) / 1_000_000;
+    }
+
+    /** True if the request went out on a pooled connection without a new handshake */
+    public boolean reusedConnection() {
+        return reusedConnection;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "sent after %d ms, response after %d ms, %s connection",
+                sentMillis(), responseMillis(), reusedConnection ? "reused" : "new");
+    }
+}
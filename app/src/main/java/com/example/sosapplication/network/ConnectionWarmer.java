@@ -0,0 +1,91 @@
+package com.example.sosapplication.network;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Opens a connection to the backend ahead of time so that a later request on the same
+ * client finds DNS resolved and a TCP/TLS connection waiting in the pool.
+ *
+ * A small GET is enough: once its response is read the connection goes back to the shared
+ * pool, where the next call to the same host picks it up. The server must keep idle
+ * connections open for at least {@link #WARM_MS}.
+ */
+public class ConnectionWarmer {
+
+    private static final String TAG = "ConnectionWarmer";
+
+    // How long a warmed connection is assumed to stay open; repeat calls inside it are no-ops
+    static final long WARM_MS = 30_000;
+
+    private final OkHttpClient client;
+    private final Request request;
+
+    private boolean inFlight;
+    private long warmedAtNanos;
+    private int warmups;
+
+    /**
+     * @param client the client whose connection pool should be warmed
+     * @param url    a cheap endpoint on the backend host
+     */
+    public ConnectionWarmer(OkHttpClient client, String url) {
+        // Never answer from the HTTP cache, that would not touch the socket
+        this.client = client.newBuilder().cache(null).build();
+        this.request = new Request.Builder().url(url).build();
+    }
+
+    /**
+     * Resolve the backend and open a connection in the background; cheap to call often
+     */
+    public void warm() {
+        synchronized (this) {
+            if (inFlight || isWarm()) return;
+            inFlight = true;
+        }
+
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                synchronized (ConnectionWarmer.this) {
+                    inFlight = false;
+                }
+                Log.d(TAG, "Warm-up failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                // Drain the body so the connection is released to the pool
+                try (ResponseBody body = response.body()) {
+                    if (body != null) body.string();
+                } catch (IOException e) {
+                    // The pool drops the connection; nothing else to do
+                }
+                synchronized (ConnectionWarmer.this) {
+                    inFlight = false;
+                    warmedAtNanos = System.nanoTime();
+                    warmups++;
+                }
+            }
+        });
+    }
+
+    /** True if a warm-up finished recently enough that its connection should still be open */
+    public synchronized boolean isWarm() {
+        return warmedAtNanos != 0
+                && System.nanoTime() - warmedAtNanos < TimeUnit.MILLISECONDS.toNanos(WARM_MS);
+    }
+
+    public synchronized int warmupCount() {
+        return warmups;
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.sosapplication.network;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Per-endpoint latency and connection reuse for every call of the shared client.
+ *
+ * Endpoints are keyed by host and path with digit runs collapsed ({@code /17/7000/4500.png}
+ * becomes {@code /#/#/#.png}), so tile and id-bearing URLs aggregate into one row. A call
+ * counts as reused when it got a pooled connection without a new TCP/TLS handshake.
+ * Requests tagged with a {@link CallTiming} also get their own milestones recorded there.
+ */
+public class HttpMetrics implements EventListener.Factory {
+
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+    public static class Endpoint {
+        public final String name;
+        public int calls;
+        public int failures;
+        public int cacheHits;
+        public int reusedConnections;
+        public int http2;
+        public long totalMillis;
+        public long maxMillis;
+        public long totalConnectMillis;
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        public double averageMillis() {
+            return calls == 0 ? 0 : (double) totalMillis / calls;
+        }
+
+        /** Share of network calls (not answered from the cache) that skipped the handshake */
+        public double reuseRate() {
+            int network = calls - cacheHits;
+            return network <= 0 ? 0 : (double) reusedConnections / network;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d calls, %d failed, %d cached, avg %.0f ms, "
+                            + "max %d ms, reused %.0f%%, h2 %d, handshakes %d ms", name, calls, failures,
+                    cacheHits, averageMillis(), maxMillis, reuseRate() * 100, http2, totalConnectMillis);
+        }
+    }
+
+    private final Map<String, Endpoint> endpoints = new TreeMap<>();
+
+    public static String endpointKey(HttpUrl url) {
+        return url.host() + DIGITS.matcher(url.encodedPath()).replaceAll("#");
+    }
+
+    @Override
+    public EventListener create(Call call) {
+        Request request = call.request();
+        return new CallListener(endpointKey(request.url()), request.tag(CallTiming.class));
+    }
+
+    private synchronized void record(String key, long millis, long connectMillis, boolean cacheHit,
+                                     boolean reused, boolean http2, boolean failed) {
+        Endpoint endpoint = endpoints.get(key);
+        if (endpoint == null) {
+            endpoint = new Endpoint(key);
+            endpoints.put(key, endpoint);
+        }
+        endpoint.calls++;
+        if (failed) endpoint.failures++;
+        if (cacheHit) endpoint.cacheHits++;
+        if (reused) endpoint.reusedConnections++;
+        if (http2) endpoint.http2++;
+        endpoint.totalMillis += millis;
+        endpoint.maxMillis = Math.max(endpoint.maxMillis, millis);
+        endpoint.totalConnectMillis += connectMillis;
+    }
+
+    /**
+     * Copy of the current per-endpoint figures, sorted by endpoint
+     */
+    public synchronized List<Endpoint> snapshot() {
+        List<Endpoint> copy = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints.values()) {
+            copy.add(copyOf(endpoint));
+        }
+        return copy;
+    }
+
+    public synchronized Endpoint get(String key) {
+        Endpoint endpoint = endpoints.get(key);
+        return endpoint == null ? null : copyOf(endpoint);
+    }
+
+    private static Endpoint copyOf(Endpoint e) {
+        Endpoint c = new Endpoint(e.name);
+        c.calls = e.calls;
+        c.failures = e.failures;
+        c.cacheHits = e.cacheHits;
+        c.reusedConnections = e.reusedConnections;
+        c.http2 = e.http2;
+        c.totalMillis = e.totalMillis;
+        c.maxMillis = e.maxMillis;
+        c.totalConnectMillis = e.totalConnectMillis;
+        return c;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder out = new StringBuilder("HttpMetrics");
+        for (Endpoint endpoint : endpoints.values()) {
+            out.append("\n  ").append(endpoint);
+        }
+        return out.toString();
+    }
+
+    private final class CallListener extends EventListener {
+        private final String key;
+        private final CallTiming timing;
+        private long callStart;
+        private long connectStart;
+        private long connectMillis;
+        private boolean acquired;
+        private boolean connected;
+        private boolean cacheHit;
+        private boolean http2;
+
+        CallListener(String key, CallTiming timing) {
+            this.key = key;
+            this.timing = timing;
+        }
+
+        @Override
+        public void callStart(Call call) {
+            callStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            connected = true;
+            connectStart = System.nanoTime();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+            connectMillis += (System.nanoTime() - connectStart) / 1_000_000;
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            acquired = true;
+            http2 = connection.protocol() == Protocol.HTTP_2;
+            if (timing != null) timing.reusedConnection = !connected;
+        }
+
+        @Override
+        public void requestHeadersEnd(Call call, Request request) {
+            if (timing != null) timing.sentNanos = System.nanoTime();
+        }
+
+        @Override
+        public void requestBodyEnd(Call call, long byteCount) {
+            if (timing != null) timing.sentNanos = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            if (timing != null) timing.responseNanos = System.nanoTime();
+        }
+
+        @Override
+        public void cacheHit(Call call, Response response) {
+            cacheHit = true;
+        }
+
+        @Override
+        public void callEnd(Call call) {
+            finish(false);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            finish(true);
+        }
+
+        private void finish(boolean failed) {
+            long millis = (System.nanoTime() - callStart) / 1_000_000;
+            record(key, millis, connectMillis, cacheHit, acquired && !connected, http2, failed);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.sosapplication.network;
+
+/**
+ * The JSON documents the backend's pydantic models describe, written straight into the
+ * buffer without building an object tree.
+ */
+public class JsonPayloadCodec implements PayloadCodec {
+
+    public static final JsonPayloadCodec INSTANCE = new JsonPayloadCodec();
+
+    @Override
+    public String contentType() {
+        return "application/json; charset=utf-8";
+    }
+
+    @Override
+    public void encodeSos(PayloadBuffer out, String userId, String externalId, double lat, double lon,
+                          int innerRadiusMeters, int radiusMeters, String alertId, String message) {
+        out.reset();
+        out.writeAscii("{\"user_id\":");
+        out.writeJsonString(userId);
+        out.writeAscii(",\"external_id\":");
+        out.writeJsonString(externalId);
+        out.writeAscii(",\"latitude\":");
+        out.writeJsonNumber(lat);
+        out.writeAscii(",\"longitude\":");
+        out.writeJsonNumber(lon);
+        out.writeAscii(",\"radius_meters\":");
+        out.writeJsonNumber(radiusMeters);
+        if (innerRadiusMeters > 0) {
+            out.writeAscii(",\"inner_radius_meters\":");
+            out.writeJsonNumber(innerRadiusMeters);
+        }
+        if (alertId != null) {
+            out.writeAscii(",\"alert_id\":");
+            out.writeJsonString(alertId);
+        }
+        out.writeAscii(",\"message\":");
+        out.writeJsonString(message);
+        out.write('}');
+    }
+
+    @Override
+    public void encodeCancel(PayloadBuffer out, String userId) {
+        out.reset();
+        out.writeAscii("{\"user_id\":");
+        out.writeJsonString(userId);
+        out.writeAscii(",\"action\":\"cancel\"}");
+    }
+
+    /**
+     * Fixes are {@code [lat, lon, millis after base_time]} with coordinates rounded to
+     * 1e-6 degrees (about 10 cm)
+     */
+    @Override
+    public void encodeLocations(PayloadBuffer out, String userId, String externalId, double[] lat,
+                                double[] lon, long[] time, int count) {
+        out.reset();
+        out.writeAscii("{\"user_id\":");
+        out.writeJsonString(userId);
+        out.writeAscii(",\"external_id\":");
+        out.writeJsonString(externalId);
+        out.writeAscii(",\"device_type\":\"android\",\"base_time\":");
+        out.writeJsonNumber(time[0]);
+        out.writeAscii(",\"fixes\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) out.write(',');
+            out.write('[');
+            out.writeJsonNumber(Math.round(lat[i] * 1e6) / 1e6);
+            out.write(',');
+            out.writeJsonNumber(Math.round(lon[i] * 1e6) / 1e6);
+            out.write(',');
+            out.writeJsonNumber(time[i] - time[0]);
+            out.write(']');
+        }
+        out.writeAscii("]}");
+    }
+}
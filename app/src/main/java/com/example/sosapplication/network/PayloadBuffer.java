@@ -0,0 +1,162 @@
+package com.example.sosapplication.network;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+
+/**
+ * Growable byte buffer that {@link PayloadCodec}s encode into. A sender keeps one and
+ * resets it for every request, so steady-state encoding allocates nothing but the final
+ * copy (if any). Not thread-safe.
+ */
+public class PayloadBuffer extends OutputStream {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buf;
+    private int count;
+
+    public PayloadBuffer(int initialCapacity) {
+        buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /** The backing array, valid up to {@link #size()}; replaced when the buffer grows */
+    public byte[] array() {
+        return buf;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Request body over the current contents without copying them; the buffer must not be
+     * reset until the call has finished
+     */
+    public RequestBody toRequestBody(MediaType type) {
+        return RequestBody.create(buf, type, 0, count);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, count, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void write(int b) {
+        if (count == buf.length) grow(1);
+        buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (count + len > buf.length) grow(len);
+        System.arraycopy(b, off, buf, count, len);
+        count += len;
+    }
+
+    private void grow(int extra) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + extra));
+    }
+
+    // ---- binary ----
+
+    /** Unsigned LEB128 varint */
+    public void writeVarint(long value) {
+        if (count + 10 > buf.length) grow(10);
+        while ((value & ~0x7FL) != 0) {
+            buf[count++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[count++] = (byte) value;
+    }
+
+    /** Zigzag varint: small magnitudes of either sign stay short */
+    public void writeSignedVarint(long value) {
+        writeVarint((value << 1) ^ (value >> 63));
+    }
+
+    /** Varint byte length followed by UTF-8 */
+    public void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        write(bytes, 0, bytes.length);
+    }
+
+    // ---- JSON ----
+
+    /** Raw ASCII, for punctuation and names that need no escaping */
+    public void writeAscii(String value) {
+        int length = value.length();
+        if (count + length > buf.length) grow(length);
+        for (int i = 0; i < length; i++) {
+            buf[count++] = (byte) value.charAt(i);
+        }
+    }
+
+    /** Quoted and escaped JSON string */
+    public void writeJsonString(String value) {
+        write('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                // Line and paragraph separators too, they break JavaScript parsers
+                writeEscape(c);
+            } else if (c < 0x80) {
+                write(c);
+            } else {
+                // Copy the run of non-ASCII characters as UTF-8 in one go
+                int end = i + 1;
+                while (end < length && value.charAt(end) >= 0x80
+                        && value.charAt(end) != '\u2028' && value.charAt(end) != '\u2029') {
+                    end++;
+                }
+                byte[] bytes = value.substring(i, end).getBytes(StandardCharsets.UTF_8);
+                write(bytes, 0, bytes.length);
+                i = end - 1;
+            }
+        }
+        write('"');
+    }
+
+    private void writeEscape(char c) {
+        write('\\');
+        switch (c) {
+            case '\n': write('n'); break;
+            case '\r': write('r'); break;
+            case '\t': write('t'); break;
+            case '\b': write('b'); break;
+            case '\f': write('f'); break;
+            default:
+                write('u');
+                write(HEX[(c >> 12) & 0xF]);
+                write(HEX[(c >> 8) & 0xF]);
+                write(HEX[(c >> 4) & 0xF]);
+                write(HEX[c & 0xF]);
+        }
+    }
+
+    public void writeJsonNumber(long value) {
+        writeAscii(Long.toString(value));
+    }
+
+    /** Finite values only, as JSON has no NaN or infinity */
+    public void writeJsonNumber(double value) {
+        writeAscii(Double.toString(value));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.sosapplication.network;
+
+/**
+ * Wire format of the requests sent to the SOS backend.
+ *
+ * Every method replaces the contents of {@code out}, so a sender can reuse a single
+ * {@link PayloadBuffer} for all of its requests. {@link JsonPayloadCodec} is the default;
+ * {@link BinaryPayloadCodec} is several times smaller on the location path.
+ */
+public interface PayloadCodec {
+
+    /** Value of the Content-Type header for payloads of this codec */
+    String contentType();
+
+    /**
+     * @param innerRadiusMeters users this close were already alerted by an earlier ring of
+     *                          the same alert; 0 for a single alert
+     * @param alertId           shared by all rings of an escalating alert, or null
+     */
+    void encodeSos(PayloadBuffer out, String userId, String externalId, double lat, double lon,
+                   int innerRadiusMeters, int radiusMeters, String alertId, String message);
+
+    void encodeCancel(PayloadBuffer out, String userId);
+
+    /** Fixes {@code 0..count-1} in time order */
+    void encodeLocations(PayloadBuffer out, String userId, String externalId, double[] lat,
+                         double[] lon, long[] time, int count);
+}
@@ -0,0 +1,346 @@
+package com.example.sosapplication.services;
+
+import android.util.Log;
+
+import com.example.sosapplication.network.CallTiming;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Persistent queue of SOS, cancel and location requests with its own sender thread.
+ *
+ * Entries are written to an {@link OutboxLog} before anything is sent and stay there until
+ * the server accepted them, so an alert raised offline or just before the process died still
+ * goes out later. The sender posts entries one at a time, alerts in queue order ahead of
+ * the location update, each with an {@code Idempotency-Key} header; the backend answers a
+ * repeated key with the stored response, which makes retrying after a lost response safe.
+ * Failures back off exponentially with jitter, and {@link #retryNow()} skips the wait when
+ * connectivity returns.
+ */
+public class AlertOutbox {
+
+    private static final String TAG = "AlertOutbox";
+
+    public static final String KIND_SOS = "sos";
+    public static final String KIND_CANCEL = "cancel";
+    public static final String KIND_LOCATION = "location";
+
+    public static class Config {
+        public long baseDelayMs = 1_000;
+        public long maxDelayMs = 60_000;
+        public long compactBytes = 64 * 1024;
+        /** Older location updates are dropped instead of sent */
+        public long locationMaxAgeMs = 15 * 60_000;
+    }
+
+    /** Called on the sender thread */
+    public interface DeliveryCallback {
+        void onDelivered(String responseBody);
+        /** A failed attempt; the entry stays queued */
+        void onRetrying(int attempt, String error);
+        /** The server refused the request, it will not be retried */
+        void onRejected(String error);
+    }
+
+    private final OkHttpClient client;
+    private final String backendUrl;
+    private final File file;
+    private final Config config;
+    private final Random random = new Random();
+    private final ScheduledThreadPoolExecutor worker = new ScheduledThreadPoolExecutor(1);
+
+    // Sender thread only
+    private OutboxLog log;
+    private final Map<String, DeliveryCallback> callbacks = new HashMap<>();
+    private final Map<String, CallTiming> timings = new HashMap<>();
+    private ScheduledFuture<?> scheduledDrain;
+    private int attempt;
+
+    private volatile int pending;
+    private int delivered;
+    private int retries;
+    private int rejected;
+    private int duplicates;
+    private int dropped;
+    private long totalDelayMs;
+    private long maxDelayMs;
+
+    /**
+     * @param file the queue file, or null to keep the queue in memory only
+     */
+    public AlertOutbox(OkHttpClient client, String backendUrl, File file, Config config) {
+        this.client = client;
+        this.backendUrl = backendUrl;
+        this.file = file;
+        this.config = config;
+    }
+
+    public static String newKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Send whatever an earlier process left in the queue
+     */
+    public void start() {
+        worker.execute(this::drain);
+    }
+
+    /**
+     * Queue a POST to {@code backendUrl + path}
+     *
+     * A key that is already queued is not added twice; its callback is replaced. A new
+     * location update replaces older queued ones, only the newest position matters.
+     *
+     * @param body     owned by the outbox from now on
+     * @param timing   filled in for the attempt that gets through, may be null
+     * @param callback may be null
+     */
+    public void enqueue(String kind, String path, String contentType, byte[] body, String key,
+                        CallTiming timing, DeliveryCallback callback) {
+        OutboxLog.Entry entry = new OutboxLog.Entry(key, kind, path, contentType, body,
+                System.currentTimeMillis());
+        worker.execute(() -> {
+            OutboxLog queue = log();
+            try {
+                if (KIND_LOCATION.equals(kind)) {
+                    for (OutboxLog.Entry old : queue.pending()) {
+                        if (KIND_LOCATION.equals(old.kind)) {
+                            finish(old.key);
+                            dropped++;
+                        }
+                    }
+                }
+                if (!queue.add(entry)) {
+                    duplicates++;
+                }
+            } catch (IOException e) {
+                // Still try to send it from memory
+                Log.e(TAG, "Failed to persist " + kind + " " + key, e);
+            }
+            if (callback != null) callbacks.put(key, callback);
+            if (timing != null) timings.put(key, timing);
+            pending = queue.size();
+
+            if (scheduledDrain != null && !KIND_LOCATION.equals(kind)) {
+                // An alert does not wait out the backoff of whatever failed before it
+                scheduledDrain.cancel(false);
+                scheduledDrain = null;
+                attempt = 0;
+            }
+            if (scheduledDrain == null) {
+                drain();
+            }
+        });
+    }
+
+    /**
+     * Retry now instead of waiting for the backoff, e.g. because the network came back
+     */
+    public void retryNow() {
+        worker.execute(() -> {
+            if (scheduledDrain == null) return;
+            scheduledDrain.cancel(false);
+            scheduledDrain = null;
+            attempt = 0;
+            drain();
+        });
+    }
+
+    /**
+     * Drop queued entries of one kind without sending them, e.g. a location update that a
+     * newer one already replaced on the server
+     */
+    public void discard(String kind) {
+        worker.execute(() -> {
+            for (OutboxLog.Entry entry : log().pending()) {
+                if (kind.equals(entry.kind)) {
+                    dropped++;
+                    finish(entry.key);
+                }
+            }
+        });
+    }
+
+    public int pendingCount() {
+        return pending;
+    }
+
+    /**
+     * Stop the sender; queued entries stay in the file for the next process
+     */
+    public void shutdown() {
+        worker.shutdownNow();
+        try {
+            worker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close outbox", e);
+            }
+        }
+    }
+
+    private OutboxLog log() {
+        if (log == null) {
+            try {
+                log = new OutboxLog(file, config.compactBytes);
+                if (log.size() > 0) {
+                    Log.d(TAG, "Replaying " + log.size() + " queued requests");
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Outbox file unusable, queueing in memory", e);
+                try {
+                    log = new OutboxLog(null, config.compactBytes);
+                } catch (IOException impossible) {
+                    throw new IllegalStateException(impossible);
+                }
+            }
+        }
+        return log;
+    }
+
+    private void drain() {
+        scheduledDrain = null;
+        OutboxLog queue = log();
+        OutboxLog.Entry entry;
+        while ((entry = next(queue)) != null && !worker.isShutdown()) {
+            long age = System.currentTimeMillis() - entry.createdAt;
+            if (KIND_LOCATION.equals(entry.kind) && age > config.locationMaxAgeMs) {
+                dropped++;
+                finish(entry.key);
+                continue;
+            }
+
+            String error = null;
+            long retryAfterMs = 0;
+            DeliveryCallback callback = callbacks.get(entry.key);
+            Request.Builder request = new Request.Builder()
+                    .url(backendUrl + entry.path)
+                    .header("Idempotency-Key", entry.key)
+                    .post(RequestBody.create(entry.body, MediaType.get(entry.contentType)));
+            CallTiming timing = timings.get(entry.key);
+            if (timing != null) {
+                request.tag(CallTiming.class, timing);
+            }
+
+            try (Response response = client.newCall(request.build()).execute()) {
+                ResponseBody body = response.body();
+                String text = body != null ? body.string() : "";
+                if (response.isSuccessful()) {
+                    delivered++;
+                    age = System.currentTimeMillis() - entry.createdAt;
+                    totalDelayMs += age;
+                    maxDelayMs = Math.max(maxDelayMs, age);
+                    finish(entry.key);
+                    attempt = 0;
+                    if (callback != null) callback.onDelivered(text);
+                    continue;
+                }
+                if (!isRetryable(response.code())) {
+                    rejected++;
+                    Log.w(TAG, "Server rejected " + entry.kind + " " + entry.key + ": " + response.code());
+                    finish(entry.key);
+                    attempt = 0;
+                    if (callback != null) callback.onRejected("Server error: " + response.code());
+                    continue;
+                }
+                error = "Server error: " + response.code();
+                retryAfterMs = retryAfterMillis(response.header("Retry-After"));
+            } catch (IOException e) {
+                error = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+
+            attempt++;
+            retries++;
+            long delay = Math.max(retryAfterMs,
+                    backoffMillis(attempt, config.baseDelayMs, config.maxDelayMs, random.nextDouble()));
+            Log.w(TAG, "Sending " + entry.kind + " failed (" + error + "), attempt " + attempt
+                    + ", retrying in " + delay + " ms");
+            if (callback != null) callback.onRetrying(attempt, error);
+            if (!worker.isShutdown()) {
+                scheduledDrain = worker.schedule(this::drain, delay, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+    }
+
+    // Alerts in queue order, then the (single) location update
+    private static OutboxLog.Entry next(OutboxLog queue) {
+        OutboxLog.Entry first = queue.first();
+        if (first == null || !KIND_LOCATION.equals(first.kind) || queue.size() == 1) {
+            return first;
+        }
+        for (OutboxLog.Entry entry : queue.pending()) {
+            if (!KIND_LOCATION.equals(entry.kind)) return entry;
+        }
+        return first;
+    }
+
+    private void finish(String key) {
+        try {
+            log.done(key);
+        } catch (IOException e) {
+            // Worst case it is sent again after a restart, the key makes that harmless
+            Log.e(TAG, "Failed to record delivery of " + key, e);
+        }
+        callbacks.remove(key);
+        timings.remove(key);
+        pending = log.size();
+    }
+
+    static boolean isRetryable(int code) {
+        return code >= 500 || code == 408 || code == 429;
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half of the capped delay is fixed, the other
+     * half random, so retries spread out without ever coming back immediately
+     *
+     * @param attempt consecutive failures so far, from 1
+     * @param random  uniform in [0, 1)
+     */
+    static long backoffMillis(int attempt, long baseMs, long maxMs, double random) {
+        long delay = baseMs << Math.min(attempt - 1, 20);
+        if (delay <= 0 || delay > maxMs) delay = maxMs;
+        return delay / 2 + (long) (random * (delay - delay / 2));
+    }
+
+    static long retryAfterMillis(String header) {
+        if (header == null) return 0;
+        try {
+            return Math.max(0, Long.parseLong(header.trim())) * 1000;
+        } catch (NumberFormatException e) {
+            // HTTP dates are not worth supporting here
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        // Counters are written by the sender thread; good enough for a log line
+        return String.format(Locale.US, "AlertOutbox{pending=%d, delivered=%d, retries=%d, rejected=%d, "
+                        + "duplicates=%d, dropped=%d, avgDelay=%d ms, maxDelay=%d ms}", pending, delivered,
+                retries, rejected, duplicates, dropped, delivered == 0 ? 0 : totalDelayMs / delivered, maxDelayMs);
+    }
+}
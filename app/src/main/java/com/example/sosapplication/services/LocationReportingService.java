@@ -0,0 +1,226 @@
+package com.example.sosapplication.services;
+
+import android.Manifest;
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.location.Location;
+import android.os.Build;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import com.example.sosapplication.MainActivity;
+import com.example.sosapplication.R;
+import com.example.sosapplication.SOSApplication;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+/**
+ * Foreground service that keeps this user's position on the backend fresh, so SOS alerts
+ * of people nearby can reach them.
+ *
+ * Runs only while the user has turned it on, see {@link #setEnabled}, or while their own
+ * SOS is active, see {@link #startForSos}.
+ *
+ * Sampling adapts to how the user moves, see {@link LocationSamplingPolicy}; the fused
+ * provider batches fixes so the app wakes up once per several fixes. Fixes that are worth
+ * reporting go through {@link SOSAlertService#updateLocation}, which coalesces and batches
+ * the uploads.
+ */
+public class LocationReportingService extends Service {
+
+    private static final String TAG = "LocationReporting";
+    private static final String CHANNEL_ID = "location_reporting";
+    private static final int NOTIFICATION_ID = 1001;
+    private static final String PREFS_NAME = "sos_prefs";
+    private static final String KEY_ENABLED = "location_reporting";
+
+    private FusedLocationProviderClient locationClient;
+    private LocationSamplingPolicy policy;
+    private SOSAlertService sosService;
+    private boolean requesting;
+
+    private final LocationCallback callback = new LocationCallback() {
+        @Override
+        public void onLocationResult(@NonNull LocationResult result) {
+            onLocations(result);
+        }
+    };
+
+    /** Whether the user turned on reporting; it is off until they do */
+    public static boolean isEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_ENABLED, false);
+    }
+
+    /** Remember the user's choice and start or stop reporting to match */
+    public static void setEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(KEY_ENABLED, enabled).apply();
+        if (enabled) {
+            launch(context);
+        } else {
+            context.stopService(new Intent(context, LocationReportingService.class));
+        }
+    }
+
+    /**
+     * Start reporting if the user turned it on and granted location access; safe to call
+     * repeatedly
+     */
+    public static void start(Context context) {
+        if (isEnabled(context)) {
+            launch(context);
+        }
+    }
+
+    /** Report while the user's own SOS is active, even if reporting is turned off */
+    public static void startForSos(Context context) {
+        launch(context);
+    }
+
+    /** End reporting started by {@link #startForSos} unless the user turned it on */
+    public static void stop(Context context) {
+        if (!isEnabled(context)) {
+            context.stopService(new Intent(context, LocationReportingService.class));
+        }
+    }
+
+    public static boolean hasLocationPermission(Context context) {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED
+                || ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static void launch(Context context) {
+        if (!hasLocationPermission(context)) return;
+        try {
+            ContextCompat.startForegroundService(context, new Intent(context, LocationReportingService.class));
+        } catch (IllegalStateException | SecurityException e) {
+            // Not allowed from the background on Android 12+; the next app start retries
+            Log.w(TAG, "Cannot start location reporting", e);
+        }
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        locationClient = LocationServices.getFusedLocationProviderClient(this);
+        policy = new LocationSamplingPolicy(new LocationSamplingPolicy.Config());
+        sosService = SOSApplication.from(this).getSosAlertService();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        try {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                startForeground(NOTIFICATION_ID, buildNotification(),
+                        ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION);
+            } else {
+                startForeground(NOTIFICATION_ID, buildNotification());
+            }
+        } catch (RuntimeException e) {
+            // Permission revoked or start not allowed any more
+            Log.w(TAG, "Cannot run in the foreground, stopping", e);
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        if (!requesting) {
+            requestUpdates();
+        }
+        return START_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        locationClient.removeLocationUpdates(callback);
+        requesting = false;
+        Log.d(TAG, "Stopped: " + policy);
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void requestUpdates() {
+        if (!hasLocationPermission(this)) {
+            stopSelf();
+            return;
+        }
+        LocationSamplingPolicy.Request wanted = policy.current();
+        LocationRequest request = new LocationRequest.Builder(wanted.intervalMs)
+                .setPriority(wanted.accuracy == LocationSamplingPolicy.Accuracy.LOW_POWER
+                        ? Priority.PRIORITY_LOW_POWER : Priority.PRIORITY_BALANCED_POWER_ACCURACY)
+                .setMinUpdateIntervalMillis(wanted.intervalMs / 2)
+                .setMaxUpdateDelayMillis(wanted.maxDelayMs)
+                .build();
+        try {
+            locationClient.requestLocationUpdates(request, callback, Looper.getMainLooper());
+            requesting = true;
+            Log.d(TAG, "Sampling " + wanted);
+        } catch (SecurityException e) {
+            Log.w(TAG, "Location permission revoked, stopping", e);
+            stopSelf();
+        }
+    }
+
+    private void onLocations(LocationResult result) {
+        long cpuStart = SystemClock.currentThreadTimeMillis();
+        for (Location location : result.getLocations()) {
+            long time = location.getTime() > 0 ? location.getTime() : System.currentTimeMillis();
+            double speed = location.hasSpeed() ? location.getSpeed() : -1;
+            if (policy.onFix(location.getLatitude(), location.getLongitude(), time, speed)) {
+                sosService.updateLocation(location, null);
+            }
+        }
+        long cpuMs = SystemClock.currentThreadTimeMillis() - cpuStart;
+        if (policy.onDelivered(SystemClock.elapsedRealtime(), cpuMs)) {
+            // Re-registering replaces the previous request for the same callback
+            requestUpdates();
+        }
+    }
+
+    private Notification buildNotification() {
+        NotificationManager manager = getSystemService(NotificationManager.class);
+        if (manager != null && manager.getNotificationChannel(CHANNEL_ID) == null) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    getString(R.string.location_reporting_channel), NotificationManager.IMPORTANCE_MIN);
+            channel.setShowBadge(false);
+            manager.createNotificationChannel(channel);
+        }
+
+        PendingIntent open = PendingIntent.getActivity(this, 0, new Intent(this, MainActivity.class),
+                PendingIntent.FLAG_IMMUTABLE);
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_sos)
+                .setContentTitle(getString(R.string.location_reporting_title))
+                .setContentText(getString(R.string.location_reporting_text))
+                .setContentIntent(open)
+                .setOngoing(true)
+                .setPriority(NotificationCompat.PRIORITY_MIN)
+                .setCategory(NotificationCompat.CATEGORY_SERVICE)
+                .build();
+    }
+}
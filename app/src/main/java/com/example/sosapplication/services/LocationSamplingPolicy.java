@@ -0,0 +1,247 @@
+package com.example.sosapplication.services;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * Decides how often {@link LocationReportingService} samples the location and which fixes
+ * are worth uploading.
+ *
+ * The motion state follows the speed of recent fixes: a still phone is sampled every few
+ * minutes, a walking one every minute, a driving one every half minute, each with an
+ * OS-side batching delay so fixes arrive several at a time. Fixes are not filtered by
+ * distance at the source; a still phone has to keep seeing fixes to be classified still.
+ * Switching to a faster state takes two fast fixes, back to a slower one three slow fixes.
+ *
+ * Wakeups (delivered location batches) and CPU time spent handling them are counted over
+ * a sliding hour. Over either budget, the interval is stretched until usage is back
+ * within it. A fix is only reported once the user moved {@link Config#reportDistanceMeters}
+ * from the last reported one, or when {@link Config#heartbeatMs} passed so the backend
+ * still knows the position is current.
+ *
+ * Not thread-safe; the service calls it from the location callback thread.
+ */
+public class LocationSamplingPolicy {
+
+    public enum Motion { STILL, WALKING, DRIVING }
+
+    /** Location request accuracy, mapped to the fused provider's priorities */
+    public enum Accuracy { LOW_POWER, BALANCED }
+
+    public static class Config {
+        public double walkingSpeedMps = 0.7;
+        public double drivingSpeedMps = 4.5;
+
+        public long stillIntervalMs = 5 * 60_000;
+        public long walkingIntervalMs = 60_000;
+        public long drivingIntervalMs = 30_000;
+
+        public double reportDistanceMeters = 50;
+        public long heartbeatMs = 15 * 60_000;
+
+        /** Location deliveries per hour */
+        public int maxWakeupsPerHour = 60;
+        /** Main-thread CPU spent handling locations, per hour */
+        public long maxCpuMsPerHour = 3_000;
+        /** Budget throttling never stretches the interval beyond this */
+        public long maxIntervalMs = 30 * 60_000;
+    }
+
+    /** What to ask the fused location provider for */
+    public static class Request {
+        public final Motion motion;
+        public final Accuracy accuracy;
+        public final long intervalMs;
+        /** Let the OS hold fixes back this long and deliver them in one wakeup */
+        public final long maxDelayMs;
+
+        Request(Motion motion, Accuracy accuracy, long intervalMs, long maxDelayMs) {
+            this.motion = motion;
+            this.accuracy = accuracy;
+            this.intervalMs = intervalMs;
+            this.maxDelayMs = maxDelayMs;
+        }
+
+        boolean sameAs(Request other) {
+            return other != null && motion == other.motion && accuracy == other.accuracy
+                    && intervalMs == other.intervalMs && maxDelayMs == other.maxDelayMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s/%s every %d s, batched %d s", motion, accuracy,
+                    intervalMs / 1000, maxDelayMs / 1000);
+        }
+    }
+
+    private static final long HOUR_MS = 60 * 60_000;
+
+    private final Config config;
+
+    private Motion motion = Motion.WALKING;
+    private Motion candidate;
+    private int candidateFixes;
+    private int throttle = 1;
+    private Request request;
+
+    private boolean hasFix;
+    private double lastLat;
+    private double lastLon;
+    private long lastTime;
+
+    private boolean hasReported;
+    private double reportedLat;
+    private double reportedLon;
+    private long reportedTime;
+
+    // Wakeup times and (time, cpu ms) pairs of the last hour
+    private final ArrayDeque<Long> wakeups = new ArrayDeque<>();
+    private final ArrayDeque<long[]> cpu = new ArrayDeque<>();
+    private long cpuMsInWindow;
+
+    private int fixes;
+    private int reported;
+    private int suppressed;
+
+    public LocationSamplingPolicy(Config config) {
+        this.config = config;
+        this.request = buildRequest();
+    }
+
+    public Request current() {
+        return request;
+    }
+
+    public Motion motion() {
+        return motion;
+    }
+
+    /**
+     * Feed one fix, oldest first within a delivery
+     *
+     * @param speedMps the fix's own speed, or a negative value if it has none
+     * @return true if the fix should be uploaded
+     */
+    public boolean onFix(double lat, double lon, long timeMs, double speedMps) {
+        fixes++;
+        if (speedMps < 0 && hasFix && timeMs > lastTime) {
+            speedMps = GeoHelper.distanceMeters(lastLat, lastLon, lat, lon) / ((timeMs - lastTime) / 1000.0);
+        }
+        hasFix = true;
+        lastLat = lat;
+        lastLon = lon;
+        lastTime = timeMs;
+        if (speedMps >= 0) {
+            classify(speedMps);
+        }
+
+        boolean report = !hasReported
+                || timeMs - reportedTime >= config.heartbeatMs
+                || GeoHelper.distanceMeters(reportedLat, reportedLon, lat, lon) >= config.reportDistanceMeters;
+        if (!report) {
+            suppressed++;
+            return false;
+        }
+        hasReported = true;
+        reportedLat = lat;
+        reportedLon = lon;
+        reportedTime = timeMs;
+        reported++;
+        return true;
+    }
+
+    /**
+     * Record a delivery of fixes, after they went through {@link #onFix}, and re-evaluate
+     * motion and budgets
+     *
+     * @param cpuMs CPU time spent handling the delivery
+     * @return true if the location request changed and has to be registered again
+     */
+    public boolean onDelivered(long nowMs, long cpuMs) {
+        wakeups.addLast(nowMs);
+        cpu.addLast(new long[]{nowMs, cpuMs});
+        cpuMsInWindow += cpuMs;
+        expire(nowMs);
+        boolean overBudget = wakeups.size() > config.maxWakeupsPerHour
+                || cpuMsInWindow > config.maxCpuMsPerHour;
+        if (overBudget && intervalFor(motion) * throttle * 2 <= config.maxIntervalMs) {
+            throttle *= 2;
+        } else if (!overBudget && throttle > 1 && withinHalfBudget()) {
+            throttle /= 2;
+        }
+
+        Request next = buildRequest();
+        if (next.sameAs(request)) return false;
+        request = next;
+        return true;
+    }
+
+    private void classify(double speedMps) {
+        Motion observed = speedMps >= config.drivingSpeedMps ? Motion.DRIVING
+                : speedMps >= config.walkingSpeedMps ? Motion.WALKING : Motion.STILL;
+        if (observed == motion) {
+            candidate = null;
+            candidateFixes = 0;
+            return;
+        }
+        if (observed != candidate) {
+            candidate = observed;
+            candidateFixes = 0;
+        }
+        candidateFixes++;
+        int needed = observed.ordinal() > motion.ordinal() ? 2 : 3;
+        if (candidateFixes >= needed) {
+            motion = observed;
+            candidate = null;
+            candidateFixes = 0;
+        }
+    }
+
+    // Relaxing only well inside the budget keeps the interval from flapping
+    private boolean withinHalfBudget() {
+        return wakeups.size() * 2 <= config.maxWakeupsPerHour && cpuMsInWindow * 2 <= config.maxCpuMsPerHour;
+    }
+
+    private void expire(long nowMs) {
+        while (!wakeups.isEmpty() && wakeups.peekFirst() <= nowMs - HOUR_MS) {
+            wakeups.removeFirst();
+        }
+        while (!cpu.isEmpty() && cpu.peekFirst()[0] <= nowMs - HOUR_MS) {
+            cpuMsInWindow -= cpu.removeFirst()[1];
+        }
+    }
+
+    private long intervalFor(Motion m) {
+        switch (m) {
+            case STILL:
+                return config.stillIntervalMs;
+            case DRIVING:
+                return config.drivingIntervalMs;
+            default:
+                return config.walkingIntervalMs;
+        }
+    }
+
+    private Request buildRequest() {
+        long base = intervalFor(motion);
+        long interval = Math.min(base * throttle, Math.max(config.maxIntervalMs, base));
+        switch (motion) {
+            case STILL:
+                // Cell and Wi-Fi are enough to notice the phone started moving
+                return new Request(motion, Accuracy.LOW_POWER, interval, 3 * interval);
+            case DRIVING:
+                return new Request(motion, Accuracy.BALANCED, interval, 4 * interval);
+            default:
+                return new Request(motion, Accuracy.BALANCED, interval, 5 * interval);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "LocationSamplingPolicy{%s, throttle=%dx, fixes=%d, reported=%d, "
+                        + "suppressed=%d, wakeups/h=%d, cpu/h=%d ms}", request, throttle, fixes, reported,
+                suppressed, wakeups.size(), cpuMsInWindow);
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.sosapplication.services;
+
+import android.util.Log;
+
+import com.example.sosapplication.network.JsonPayloadCodec;
+import com.example.sosapplication.network.PayloadBuffer;
+import com.example.sosapplication.network.PayloadCodec;
+import com.example.sosapplication.utils.GeoHelper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Collects location fixes and uploads them in batches from a single worker thread.
+ *
+ * A fix closer than {@link Config#minDistanceMeters} to the last accepted one is dropped
+ * unless {@link Config#minIntervalMs} has passed. Accepted fixes are sent together after
+ * {@link Config#flushDelayMs} (immediately for the very first fix or a full batch) as one
+ * compact document in the configured {@link PayloadCodec}, and the newest fix is mirrored
+ * into OneSignal tags with a single bulk call. Only one upload is in flight at a time;
+ * fixes arriving meanwhile collapse to the newest one. A failed upload is retried with the newest fix, or handed to the
+ * {@link AlertOutbox} if one is set.
+ */
+public class LocationUploadBatcher {
+
+    private static final String TAG = "LocationUploadBatcher";
+
+    public static class Config {
+        public double minDistanceMeters = 25;
+        public long minIntervalMs = 60_000;
+        public long flushDelayMs = 15_000;
+        public int maxBatchSize = 20;
+        public long retryDelayMs = 30_000;
+        public PayloadCodec codec = JsonPayloadCodec.INSTANCE;
+    }
+
+    /** Receives the OneSignal tags for the newest uploaded fix */
+    public interface TagSink {
+        void addTags(Map<String, String> tags);
+    }
+
+    /** Called on the worker thread */
+    public interface UploadCallback {
+        void onUploaded();
+        void onFailed(String error);
+    }
+
+    private final OkHttpClient client;
+    private final String url;
+    private final String userId;
+    private final String externalId;
+    private final TagSink tagSink;
+    private final Config config;
+    private final ScheduledThreadPoolExecutor worker = new ScheduledThreadPoolExecutor(1);
+    private volatile AlertOutbox outbox;
+
+    // Guarded by this; pending fixes in arrival order
+    private final double[] pendingLat;
+    private final double[] pendingLon;
+    private final long[] pendingTime;
+    private int pendingCount;
+    private List<UploadCallback> pendingCallbacks = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private boolean inFlight;
+
+    private boolean hasAccepted;
+    private double acceptedLat;
+    private double acceptedLon;
+    private long acceptedTime;
+
+    // Worker-only copy of the batch being sent
+    private final double[] sendingLat;
+    private final double[] sendingLon;
+    private final long[] sendingTime;
+    private final PayloadBuffer payload = new PayloadBuffer(256);
+    private final MediaType contentType;
+
+    private int coalesced;
+    private int superseded;
+    private int batches;
+    private int uploaded;
+
+    public LocationUploadBatcher(OkHttpClient client, String backendUrl, String userId,
+                                 String externalId, TagSink tagSink, Config config) {
+        this.client = client;
+        this.url = backendUrl + "/users/location/batch";
+        this.userId = userId;
+        this.externalId = externalId;
+        this.tagSink = tagSink;
+        this.config = config;
+        this.contentType = MediaType.get(config.codec.contentType());
+
+        // The worker thread only lives while uploads are due
+        worker.setKeepAliveTime(config.flushDelayMs + 10_000, TimeUnit.MILLISECONDS);
+        worker.allowCoreThreadTimeOut(true);
+
+        int capacity = Math.max(1, config.maxBatchSize);
+        pendingLat = new double[capacity];
+        pendingLon = new double[capacity];
+        pendingTime = new long[capacity];
+        sendingLat = new double[capacity];
+        sendingLon = new double[capacity];
+        sendingTime = new long[capacity];
+    }
+
+    /**
+     * Queue a fix for upload
+     *
+     * @param callback notified once the batch holding this fix was sent (or right away if
+     *                 the fix was coalesced into the previous one), may be null
+     */
+    public void offer(double lat, double lon, long timeMillis, UploadCallback callback) {
+        boolean coalesce;
+        synchronized (this) {
+            coalesce = hasAccepted
+                    && timeMillis - acceptedTime < config.minIntervalMs
+                    && GeoHelper.distanceMeters(acceptedLat, acceptedLon, lat, lon) < config.minDistanceMeters;
+            if (coalesce) {
+                coalesced++;
+            } else {
+                boolean first = !hasAccepted;
+                accept(lat, lon, timeMillis);
+                if (callback != null) {
+                    pendingCallbacks.add(callback);
+                }
+                scheduleFlush(first || pendingCount == pendingLat.length ? 0 : config.flushDelayMs);
+            }
+        }
+        if (coalesce && callback != null) {
+            callback.onUploaded();
+        }
+    }
+
+    /**
+     * Queue the newest fix of a failed upload in the outbox, which keeps it across restarts,
+     * instead of retrying here
+     */
+    public void setOutbox(AlertOutbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Send pending fixes now instead of waiting for the flush delay
+     */
+    public synchronized void flush() {
+        scheduleFlush(0);
+    }
+
+    /**
+     * Stop the worker; pending fixes are dropped
+     */
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // Called with the lock held
+    private void accept(double lat, double lon, long timeMillis) {
+        hasAccepted = true;
+        acceptedLat = lat;
+        acceptedLon = lon;
+        acceptedTime = timeMillis;
+
+        if (inFlight || pendingCount == pendingLat.length) {
+            // Backpressure: the server only needs the newest position
+            superseded += pendingCount;
+            pendingCount = 0;
+        }
+        pendingLat[pendingCount] = lat;
+        pendingLon[pendingCount] = lon;
+        pendingTime[pendingCount] = timeMillis;
+        pendingCount++;
+    }
+
+    // Called with the lock held; an earlier flush is never pushed back
+    private void scheduleFlush(long delayMs) {
+        if (inFlight || worker.isShutdown()) return;
+        if (scheduledFlush != null && !scheduledFlush.isDone()) {
+            if (scheduledFlush.getDelay(TimeUnit.MILLISECONDS) <= delayMs) return;
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = worker.schedule(this::send, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void send() {
+        int count;
+        List<UploadCallback> callbacks;
+        synchronized (this) {
+            scheduledFlush = null;
+            if (inFlight || pendingCount == 0) return;
+            count = pendingCount;
+            System.arraycopy(pendingLat, 0, sendingLat, 0, count);
+            System.arraycopy(pendingLon, 0, sendingLon, 0, count);
+            System.arraycopy(pendingTime, 0, sendingTime, 0, count);
+            pendingCount = 0;
+            callbacks = pendingCallbacks;
+            pendingCallbacks = new ArrayList<>();
+            inFlight = true;
+        }
+
+        String error = null;
+        try {
+            config.codec.encodeLocations(payload, userId, externalId, sendingLat, sendingLon, sendingTime, count);
+            Request request = new Request.Builder()
+                    .url(url)
+                    .post(payload.toRequestBody(contentType))
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    error = "Server error: " + response.code();
+                }
+            }
+        } catch (IOException e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+
+        AlertOutbox fallback = outbox;
+        if (error == null) {
+            tagSink.addTags(tags(sendingLat[count - 1], sendingLon[count - 1], sendingTime[count - 1]));
+            if (fallback != null) {
+                // A queued older position must not overwrite this one later
+                fallback.discard(AlertOutbox.KIND_LOCATION);
+            }
+        } else if (fallback != null) {
+            config.codec.encodeLocations(payload, userId, externalId, new double[]{sendingLat[count - 1]},
+                    new double[]{sendingLon[count - 1]}, new long[]{sendingTime[count - 1]}, 1);
+            fallback.enqueue(AlertOutbox.KIND_LOCATION, "/users/location/batch", config.codec.contentType(),
+                    payload.toByteArray(), AlertOutbox.newKey(), null, null);
+        }
+
+        synchronized (this) {
+            inFlight = false;
+            if (error == null) {
+                batches++;
+                uploaded += count;
+                Log.d(TAG, "Uploaded " + count + " fixes (" + this + ")");
+            } else {
+                Log.w(TAG, "Location upload failed: " + error);
+                if (pendingCount == 0 && fallback == null) {
+                    // Nothing newer arrived; retry with the last known position
+                    pendingLat[0] = sendingLat[count - 1];
+                    pendingLon[0] = sendingLon[count - 1];
+                    pendingTime[0] = sendingTime[count - 1];
+                    pendingCount = 1;
+                }
+            }
+            if (pendingCount > 0) {
+                scheduleFlush(error != null ? config.retryDelayMs
+                        : pendingCount == pendingLat.length ? 0 : config.flushDelayMs);
+            }
+        }
+
+        for (UploadCallback callback : callbacks) {
+            if (error == null) {
+                callback.onUploaded();
+            } else {
+                callback.onFailed(error);
+            }
+        }
+    }
+
+    static Map<String, String> tags(double lat, double lon, long timeMillis) {
+        Map<String, String> tags = new HashMap<>(4);
+        tags.put("latitude", String.valueOf(lat));
+        tags.put("longitude", String.valueOf(lon));
+        tags.put("last_update", String.valueOf(timeMillis));
+        return tags;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "LocationUploadBatcher{batches=%d, uploaded=%d, coalesced=%d, "
+                + "superseded=%d, pending=%d}", batches, uploaded, coalesced, superseded, pendingCount);
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.sosapplication.services;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of outgoing requests that survives process death.
+ *
+ * Every change is one record: an entry being added or an entry being done (delivered or
+ * given up). Opening the file replays the records, so whatever was added and never marked
+ * done is pending again. Records carry a CRC; a torn write at the end is cut off rather than
+ * failing the whole log. Once most of the file is finished entries it is rewritten with only
+ * the pending ones.
+ *
+ * Not thread-safe; {@link AlertOutbox} uses it from its single worker thread.
+ */
+public class OutboxLog {
+
+    private static final int MAGIC = 0x534f5331; // "SOS1"
+    private static final byte ADD = 1;
+    private static final byte DONE = 2;
+
+    public static class Entry {
+        /** Idempotency key, also sent to the server */
+        public final String key;
+        /** "sos", "cancel", "location" */
+        public final String kind;
+        /** Path below the backend root, e.g. {@code /alerts/sos} */
+        public final String path;
+        public final String contentType;
+        public final byte[] body;
+        /** Wall-clock time the entry was queued */
+        public final long createdAt;
+
+        public Entry(String key, String kind, String path, String contentType, byte[] body,
+                     long createdAt) {
+            this.key = key;
+            this.kind = kind;
+            this.path = path;
+            this.contentType = contentType;
+            this.body = body;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private final File file;
+    private final long compactBytes;
+    private final LinkedHashMap<String, Entry> pending = new LinkedHashMap<>();
+    private FileOutputStream out;
+    private long size;
+    private int doneRecords;
+
+    /**
+     * Open the log, replaying any existing file
+     *
+     * @param file         the log file, or null to keep entries in memory only
+     * @param compactBytes rewrite the file once it is at least this big and mostly finished entries
+     */
+    public OutboxLog(File file, long compactBytes) throws IOException {
+        this.file = file;
+        this.compactBytes = compactBytes;
+        if (file == null) return;
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        replay();
+        out = new FileOutputStream(file, true);
+        if (size == 0) {
+            writeHeader();
+        }
+    }
+
+    /**
+     * Add an entry unless one with the same key is already pending. If writing fails the
+     * entry is still pending in memory and the exception is thrown.
+     *
+     * @return false for a duplicate key
+     */
+    public boolean add(Entry entry) throws IOException {
+        if (pending.containsKey(entry.key)) return false;
+        pending.put(entry.key, entry);
+        append(ADD, encode(entry));
+        return true;
+    }
+
+    /**
+     * Mark an entry finished, it will not be replayed; unknown keys are ignored
+     */
+    public void done(String key) throws IOException {
+        if (pending.remove(key) == null) return;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(key.length() + 2);
+        new DataOutputStream(bytes).writeUTF(key);
+        append(DONE, bytes.toByteArray());
+        doneRecords++;
+        if (file != null && size >= compactBytes && doneRecords > pending.size()) {
+            compact();
+        }
+    }
+
+    public Entry get(String key) {
+        return pending.get(key);
+    }
+
+    /** Oldest pending entry, or null */
+    public Entry first() {
+        return pending.isEmpty() ? null : pending.values().iterator().next();
+    }
+
+    /** Pending entries, oldest first */
+    public List<Entry> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    public long fileBytes() {
+        return size;
+    }
+
+    public void close() throws IOException {
+        if (out != null) out.close();
+    }
+
+    private static byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96 + entry.body.length);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeUTF(entry.key);
+        data.writeUTF(entry.kind);
+        data.writeUTF(entry.path);
+        data.writeUTF(entry.contentType);
+        data.writeInt(entry.body.length);
+        data.write(entry.body);
+        data.writeLong(entry.createdAt);
+        return bytes.toByteArray();
+    }
+
+    private void append(byte type, byte[] payload) throws IOException {
+        if (out == null) return;
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(payload.length + 9);
+        DataOutputStream data = new DataOutputStream(record);
+        data.writeByte(type);
+        data.writeInt(payload.length);
+        data.write(payload);
+        data.writeInt((int) crc.getValue());
+
+        // One write per record, flushed to the disk before the caller treats it as stored
+        out.write(record.toByteArray());
+        out.getFD().sync();
+        size += record.size();
+    }
+
+    private void writeHeader() throws IOException {
+        out.write(new byte[]{(byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC});
+        out.getFD().sync();
+        size = 4;
+    }
+
+    private void replay() throws IOException {
+        size = 0;
+        if (!file.exists()) return;
+        long good;
+        try (InputStream raw = Files.newInputStream(file.toPath());
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw))) {
+            if (file.length() < 4 || in.readInt() != MAGIC) {
+                // Torn header or not our file: start over
+                good = 0;
+            } else {
+                good = 4;
+                good += replayRecords(in);
+            }
+        }
+
+        if (good < file.length()) {
+            // Torn or corrupt tail from a crash mid-write
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(good);
+            }
+        }
+        size = good;
+    }
+
+    // Applies records up to the first incomplete or damaged one; returns the bytes applied
+    private long replayRecords(DataInputStream in) throws IOException {
+        long good = 0;
+        while (true) {
+            int type = in.read();
+            if (type < 0) break;
+            byte[] payload;
+            int crcValue;
+            try {
+                int length = in.readInt();
+                if (length < 0 || length > file.length()) break;
+                payload = new byte[length];
+                in.readFully(payload);
+                crcValue = in.readInt();
+            } catch (EOFException e) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(payload);
+            if ((int) crc.getValue() != crcValue) break;
+
+            apply((byte) type, payload);
+            good += 9 + payload.length;
+        }
+        return good;
+    }
+
+    private void apply(byte type, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (type == ADD) {
+            String key = in.readUTF();
+            String kind = in.readUTF();
+            String path = in.readUTF();
+            String contentType = in.readUTF();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            pending.put(key, new Entry(key, kind, path, contentType, body, in.readLong()));
+        } else if (type == DONE) {
+            if (pending.remove(in.readUTF()) != null) doneRecords++;
+        }
+    }
+
+    private void compact() throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream log = out;
+        long logSize = size;
+        try {
+            out = new FileOutputStream(tmp, false);
+            writeHeader();
+            for (Entry entry : pending.values()) {
+                append(ADD, encode(entry));
+            }
+            out.close();
+        } catch (IOException e) {
+            // Keep appending to the old file, it is still complete
+            if (out != log) out.close();
+            out = log;
+            size = logSize;
+            tmp.delete();
+            throw e;
+        }
+
+        log.close();
+        boolean replaced = tmp.renameTo(file);
+        out = new FileOutputStream(file, true);
+        if (!replaced) {
+            size = logSize;
+            tmp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+        doneRecords = 0;
+    }
+}
@@ -6,40 +6,48 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
+import com.example.sosapplication.network.CallTiming;
+import com.example.sosapplication.network.PayloadBuffer;
+import com.example.sosapplication.network.PayloadCodec;
 import com.onesignal.OneSignal;
 
 import org.json.JSONObject;
 
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
 
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
 
 /**
  * Service for managing SOS alerts and location updates
+ *
+ * Alerts and cancellations go through the {@link AlertOutbox}, so they are retried until
+ * delivered; location uploads that fail are handed to it as well.
  */
 public class SOSAlertService {
     
     private static final String TAG = "SOSAlertService";
-    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
     
     private final Context context;
-    private final OkHttpClient client;
-    private final String backendUrl;
     private final Handler mainHandler;
+    private final LocationUploadBatcher locationBatcher;
+    private final AlertOutbox outbox;
+    private final PayloadCodec codec;
+    // Guarded by itself; alerts are encoded here and copied into the outbox
+    private final PayloadBuffer payload = new PayloadBuffer(256);
     
     private String userId;
     private String externalId;
+    private volatile CallTiming lastSosTiming;
+    private volatile SosEscalation lastEscalation;
     
     public interface SOSCallback {
         void onSuccess(int recipientsCount);
+        /** Not delivered yet; the request stays queued and is retried */
         void onError(String error);
+        /** Refused by the backend or never queued; it will not be retried */
+        default void onRejected(String error) {
+            onError(error);
+        }
     }
     
     public interface LocationUpdateCallback {
@@ -47,23 +55,32 @@ public class SOSAlertService {
         void onError(String error);
     }
     
-    public SOSAlertService(Context context, String backendUrl) {
-        this.context = context;
-        this.backendUrl = backendUrl;
+    /**
+     * Use {@link com.example.sosapplication.SOSApplication#getSosAlertService()} rather than
+     * creating more instances; each one logs in to OneSignal
+     *
+     * @param oneSignal runs OneSignal calls once the SDK is initialized
+     */
+    public SOSAlertService(Context context, OkHttpClient client, String backendUrl, AlertOutbox outbox,
+                           PayloadCodec codec, Executor oneSignal) {
+        this.context = context.getApplicationContext();
         this.mainHandler = new Handler(Looper.getMainLooper());
-        
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .writeTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.outbox = outbox;
+        this.codec = codec;
         
         // Generate unique user ID if not set
         this.userId = getOrCreateUserId();
         this.externalId = this.userId;
         
         // Login to OneSignal with external ID
-        OneSignal.login(this.externalId);
+        String loginId = this.externalId;
+        oneSignal.execute(() -> OneSignal.login(loginId));
+        
+        LocationUploadBatcher.Config batchConfig = new LocationUploadBatcher.Config();
+        batchConfig.codec = codec;
+        this.locationBatcher = new LocationUploadBatcher(client, backendUrl, userId, externalId,
+                tags -> oneSignal.execute(() -> OneSignal.getUser().addTags(tags)), batchConfig);
+        this.locationBatcher.setOutbox(outbox);
     }
     
     /**
@@ -90,7 +107,8 @@ public class SOSAlertService {
     }
     
     /**
-     * Update user location on the backend server
+     * Queue a location update for the backend; nearby fixes are coalesced and
+     * uploaded in batches by {@link LocationUploadBatcher}
      */
     public void updateLocation(Location location, LocationUpdateCallback callback) {
         if (location == null) {
@@ -100,174 +118,183 @@ public class SOSAlertService {
             return;
         }
         
-        try {
-            JSONObject json = new JSONObject();
-            json.put("user_id", userId);
-            json.put("external_id", externalId);
-            json.put("latitude", location.getLatitude());
-            json.put("longitude", location.getLongitude());
-            json.put("timestamp", java.time.Instant.now().toString());
-            json.put("device_type", "android");
-            
-            RequestBody body = RequestBody.create(json.toString(), JSON);
-            Request request = new Request.Builder()
-                    .url(backendUrl + "/users/location")
-                    .post(body)
-                    .build();
-            
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    Log.e(TAG, "Failed to update location", e);
-                    if (callback != null) {
-                        mainHandler.post(() -> callback.onError(e.getMessage()));
+        long time = location.getTime() > 0 ? location.getTime() : System.currentTimeMillis();
+        locationBatcher.offer(location.getLatitude(), location.getLongitude(), time,
+                callback == null ? null : new LocationUploadBatcher.UploadCallback() {
+                    @Override
+                    public void onUploaded() {
+                        mainHandler.post(callback::onSuccess);
                     }
-                }
-                
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (response.isSuccessful()) {
-                        Log.d(TAG, "Location updated successfully");
-                        if (callback != null) {
-                            mainHandler.post(() -> callback.onSuccess());
-                        }
-                    } else {
-                        String error = "Server error: " + response.code();
-                        Log.e(TAG, error);
-                        if (callback != null) {
-                            mainHandler.post(() -> callback.onError(error));
-                        }
+                    
+                    @Override
+                    public void onFailed(String error) {
+                        mainHandler.post(() -> callback.onError(error));
                     }
-                    response.close();
-                }
-            });
-            
-            // Also update OneSignal tags with location
-            OneSignal.getUser().addTag("latitude", String.valueOf(location.getLatitude()));
-            OneSignal.getUser().addTag("longitude", String.valueOf(location.getLongitude()));
-            OneSignal.getUser().addTag("last_update", String.valueOf(System.currentTimeMillis()));
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating location request", e);
-            if (callback != null) {
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        }
+                });
+    }
+    
+    public LocationUploadBatcher getLocationBatcher() {
+        return locationBatcher;
     }
     
     /**
      * Trigger SOS alert to nearby users within specified radius
      */
     public void triggerSOSAlert(Location location, int radiusMeters, String message, SOSCallback callback) {
+        triggerSOSAlert(location, radiusMeters, message, System.nanoTime(), callback);
+    }
+    
+    /**
+     * Trigger SOS alert, measuring send and response latency from the button press
+     *
+     * @param pressedAtNanos {@link System#nanoTime()} when the user pressed SOS
+     */
+    public void triggerSOSAlert(Location location, int radiusMeters, String message,
+                                long pressedAtNanos, SOSCallback callback) {
+        triggerSOSAlert(location, 0, radiusMeters, null, message, pressedAtNanos, callback);
+    }
+    
+    /**
+     * Alert the people nearby in rings of growing radius until enough of them were reached,
+     * see {@link SosEscalation}
+     *
+     * @param pressedAtNanos {@link System#nanoTime()} when the user pressed SOS
+     * @param listener       called on the main thread
+     * @return the running escalation, e.g. to cancel it; null without a location
+     */
+    public SosEscalation startEscalatingSOSAlert(Location location, String message, long pressedAtNanos,
+                                                 SosEscalation.Config config, SosEscalation.Listener listener) {
+        if (location == null) {
+            mainHandler.post(() -> listener.onRejected("Location is null"));
+            return null;
+        }
+        
+        SosEscalation escalation = new SosEscalation(AlertOutbox.newKey(), config,
+                (inner, radius, alertId, callback) -> triggerSOSAlert(location, inner, radius, alertId, message,
+                        // The first ring is timed from the button press
+                        inner == 0 ? pressedAtNanos : System.nanoTime(), callback),
+                listener, mainHandler::post);
+        lastEscalation = escalation;
+        escalation.start();
+        return escalation;
+    }
+    
+    /**
+     * The most recent staged alert with its ring timings, or null
+     */
+    public SosEscalation getLastEscalation() {
+        return lastEscalation;
+    }
+    
+    private void triggerSOSAlert(Location location, int innerRadiusMeters, int radiusMeters, String alertId,
+                                 String message, long pressedAtNanos, SOSCallback callback) {
         if (location == null) {
             if (callback != null) {
-                mainHandler.post(() -> callback.onError("Location is null"));
+                mainHandler.post(() -> callback.onRejected("Location is null"));
             }
             return;
         }
         
         try {
-            JSONObject json = new JSONObject();
-            json.put("user_id", userId);
-            json.put("external_id", externalId);
-            json.put("latitude", location.getLatitude());
-            json.put("longitude", location.getLongitude());
-            json.put("radius_meters", radiusMeters);
-            json.put("message", message != null ? message : "SOS Alert! Someone nearby needs help!");
+            byte[] body;
+            synchronized (payload) {
+                codec.encodeSos(payload, userId, externalId, location.getLatitude(), location.getLongitude(),
+                        innerRadiusMeters, radiusMeters, alertId,
+                        message != null ? message : "SOS Alert! Someone nearby needs help!");
+                body = payload.toByteArray();
+            }
             
-            RequestBody body = RequestBody.create(json.toString(), JSON);
-            Request request = new Request.Builder()
-                    .url(backendUrl + "/alerts/sos")
-                    .post(body)
-                    .build();
+            CallTiming timing = new CallTiming(pressedAtNanos);
+            lastSosTiming = timing;
             
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    Log.e(TAG, "Failed to send SOS alert", e);
-                    if (callback != null) {
-                        mainHandler.post(() -> callback.onError(e.getMessage()));
-                    }
-                }
-                
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    try {
-                        if (response.isSuccessful()) {
-                            String responseBody = response.body().string();
-                            JSONObject result = new JSONObject(responseBody);
-                            int recipients = result.optInt("recipients_count", 0);
-                            
-                            Log.d(TAG, "SOS alert sent to " + recipients + " users");
-                            if (callback != null) {
-                                mainHandler.post(() -> callback.onSuccess(recipients));
+            // Queued durably first; delivered now or, failing that, once the network is back
+            outbox.enqueue(AlertOutbox.KIND_SOS, "/alerts/sos", codec.contentType(), body,
+                    AlertOutbox.newKey(), timing, new AlertOutbox.DeliveryCallback() {
+                        @Override
+                        public void onDelivered(String responseBody) {
+                            int recipients = 0;
+                            try {
+                                recipients = new JSONObject(responseBody).optInt("recipients_count", 0);
+                            } catch (Exception e) {
+                                Log.e(TAG, "Error parsing response", e);
                             }
-                        } else {
-                            String error = "Server error: " + response.code();
-                            Log.e(TAG, error);
+                            Log.d(TAG, "SOS alert sent to " + recipients + " users (" + timing + ")");
                             if (callback != null) {
+                                int count = recipients;
+                                mainHandler.post(() -> callback.onSuccess(count));
+                            }
+                        }
+                        
+                        @Override
+                        public void onRetrying(int attempt, String error) {
+                            Log.e(TAG, "Failed to send SOS alert, attempt " + attempt + ": " + error);
+                            // Report the first failure only; the alert stays queued
+                            if (callback != null && attempt == 1) {
                                 mainHandler.post(() -> callback.onError(error));
                             }
                         }
-                    } catch (Exception e) {
-                        Log.e(TAG, "Error parsing response", e);
-                        if (callback != null) {
-                            mainHandler.post(() -> callback.onError(e.getMessage()));
+                        
+                        @Override
+                        public void onRejected(String error) {
+                            Log.e(TAG, "SOS alert rejected: " + error);
+                            if (callback != null) {
+                                mainHandler.post(() -> callback.onRejected(error));
+                            }
                         }
-                    } finally {
-                        response.close();
-                    }
-                }
-            });
+                    });
             
         } catch (Exception e) {
             Log.e(TAG, "Error creating SOS request", e);
             if (callback != null) {
-                mainHandler.post(() -> callback.onError(e.getMessage()));
+                mainHandler.post(() -> callback.onRejected(e.getMessage()));
             }
         }
     }
     
+    /**
+     * Press-to-sent and press-to-response times of the most recent SOS alert, or null
+     */
+    public CallTiming getLastSosTiming() {
+        return lastSosTiming;
+    }
+    
     /**
      * Cancel an active SOS alert
      */
     public void cancelSOSAlert(SOSCallback callback) {
         try {
-            JSONObject json = new JSONObject();
-            json.put("user_id", userId);
-            json.put("action", "cancel");
-            
-            RequestBody body = RequestBody.create(json.toString(), JSON);
-            Request request = new Request.Builder()
-                    .url(backendUrl + "/alerts/cancel")
-                    .post(body)
-                    .build();
+            byte[] body;
+            synchronized (payload) {
+                codec.encodeCancel(payload, userId);
+                body = payload.toByteArray();
+            }
             
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    Log.e(TAG, "Failed to cancel SOS alert", e);
-                    if (callback != null) {
-                        mainHandler.post(() -> callback.onError(e.getMessage()));
-                    }
-                }
-                
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (response.isSuccessful()) {
-                        Log.d(TAG, "SOS alert cancelled");
-                        if (callback != null) {
-                            mainHandler.post(() -> callback.onSuccess(0));
+            outbox.enqueue(AlertOutbox.KIND_CANCEL, "/alerts/cancel", codec.contentType(), body,
+                    AlertOutbox.newKey(), null, new AlertOutbox.DeliveryCallback() {
+                        @Override
+                        public void onDelivered(String responseBody) {
+                            Log.d(TAG, "SOS alert cancelled");
+                            if (callback != null) {
+                                mainHandler.post(() -> callback.onSuccess(0));
+                            }
                         }
-                    } else {
-                        String error = "Server error: " + response.code();
-                        if (callback != null) {
-                            mainHandler.post(() -> callback.onError(error));
+                        
+                        @Override
+                        public void onRetrying(int attempt, String error) {
+                            Log.e(TAG, "Failed to cancel SOS alert, attempt " + attempt + ": " + error);
+                            if (callback != null && attempt == 1) {
+                                mainHandler.post(() -> callback.onError(error));
+                            }
                         }
-                    }
-                    response.close();
-                }
-            });
+                        
+                        @Override
+                        public void onRejected(String error) {
+                            Log.e(TAG, "SOS cancel rejected: " + error);
+                            if (callback != null) {
+                                mainHandler.post(() -> callback.onRejected(error));
+                            }
+                        }
+                    });
             
         } catch (Exception e) {
             Log.e(TAG, "Error creating cancel request", e);
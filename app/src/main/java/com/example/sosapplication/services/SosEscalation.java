@@ -0,0 +1,205 @@
+package com.example.sosapplication.services;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Staged fan-out of one SOS alert: the closest people are alerted first and the radius
+ * widens in rings (200 m, 500 m, 1 km, 2 km by default) until enough people were reached
+ * or the deadline passes.
+ *
+ * Every ring after the first covers only the area beyond the previous radius and carries
+ * the alert id of the first one, so the backend skips everyone an earlier ring already
+ * notified and the recipient counts add up. The timing of each ring is kept as a
+ * {@link Ring}.
+ */
+public class SosEscalation {
+
+    private static final String TAG = "SosEscalation";
+
+    // All escalations share one thread; rings are seconds apart
+    private static final ScheduledExecutorService WORKER = Executors.newSingleThreadScheduledExecutor();
+
+    public static class Config {
+        public int[] ringsMeters = {200, 500, 1_000, 2_000};
+        /** Stop widening once this many people were alerted */
+        public int targetRecipients = 3;
+        /** Head start of the closer people before the next ring goes out */
+        public long ringDelayMs = 10_000;
+        /** No ring starts later than this after the first one */
+        public long deadlineMs = 60_000;
+    }
+
+    /** Sends one ring of the alert, {@link SOSAlertService} in the app */
+    public interface RingSender {
+        void send(int innerRadiusMeters, int radiusMeters, String alertId, SOSAlertService.SOSCallback callback);
+    }
+
+    /** Called through the callback executor */
+    public interface Listener {
+        /** The alert now covers {@code ring.radiusMeters} */
+        void onRingStarted(Ring ring);
+        void onRingDelivered(Ring ring, int totalRecipients);
+        /** No further rings; not called after {@link #cancel()} */
+        void onFinished(int totalRecipients, int radiusMeters);
+        /** A ring could not be sent yet; it stays queued and escalation resumes once it is */
+        void onError(String error);
+        /**
+         * A ring was refused by the backend or could not be queued. No further rings are
+         * sent and {@link #onFinished} is not called; not called after {@link #cancel()}
+         */
+        void onRejected(String error);
+    }
+
+    public static class Ring {
+        public final int index;
+        public final int innerRadiusMeters;
+        public final int radiusMeters;
+        /** Milliseconds after the escalation started */
+        public final long startedAtMs;
+        /** Milliseconds after the escalation started, -1 until the backend answered */
+        public volatile long deliveredAtMs = -1;
+        /** People newly alerted by this ring, -1 until the backend answered */
+        public volatile int recipients = -1;
+
+        Ring(int index, int innerRadiusMeters, int radiusMeters, long startedAtMs) {
+            this.index = index;
+            this.innerRadiusMeters = innerRadiusMeters;
+            this.radiusMeters = radiusMeters;
+            this.startedAtMs = startedAtMs;
+        }
+
+        /** Ring start to backend answer, -1 while pending */
+        public long latencyMs() {
+            long delivered = deliveredAtMs;
+            return delivered < 0 ? -1 : delivered - startedAtMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d m: +%d at %d ms (%d ms)", radiusMeters, recipients,
+                    deliveredAtMs, latencyMs());
+        }
+    }
+
+    private final String alertId;
+    private final Config config;
+    private final RingSender sender;
+    private final Listener listener;
+    private final Executor callbackExecutor;
+    private final List<Ring> rings = new ArrayList<>();
+
+    // Worker thread only
+    private long startNanos;
+    private int totalRecipients;
+    private boolean cancelled;
+    private boolean finished;
+    private ScheduledFuture<?> nextRing;
+
+    public SosEscalation(String alertId, Config config, RingSender sender, Listener listener,
+                         Executor callbackExecutor) {
+        this.alertId = alertId;
+        this.config = config;
+        this.sender = sender;
+        this.listener = listener;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public void start() {
+        WORKER.execute(() -> {
+            startNanos = System.nanoTime();
+            startRing(0);
+        });
+    }
+
+    /** Send no further rings; rings already sent stay sent */
+    public void cancel() {
+        WORKER.execute(() -> {
+            cancelled = true;
+            if (nextRing != null) {
+                nextRing.cancel(false);
+                nextRing = null;
+            }
+        });
+    }
+
+    public String getAlertId() {
+        return alertId;
+    }
+
+    /** Rings started so far, first to last */
+    public List<Ring> getRings() {
+        synchronized (rings) {
+            return new ArrayList<>(rings);
+        }
+    }
+
+    private void startRing(int index) {
+        nextRing = null;
+        if (cancelled) return;
+
+        int inner = index == 0 ? 0 : config.ringsMeters[index - 1];
+        Ring ring = new Ring(index, inner, config.ringsMeters[index], elapsedMs());
+        synchronized (rings) {
+            rings.add(ring);
+        }
+        callbackExecutor.execute(() -> listener.onRingStarted(ring));
+
+        sender.send(inner, ring.radiusMeters, alertId, new SOSAlertService.SOSCallback() {
+            @Override
+            public void onSuccess(int recipientsCount) {
+                WORKER.execute(() -> delivered(ring, recipientsCount));
+            }
+
+            @Override
+            public void onError(String error) {
+                callbackExecutor.execute(() -> listener.onError(error));
+            }
+
+            @Override
+            public void onRejected(String error) {
+                WORKER.execute(() -> rejected(ring, error));
+            }
+        });
+    }
+
+    private void rejected(Ring ring, String error) {
+        Log.e(TAG, "Alert " + alertId + " ring " + ring.radiusMeters + " m rejected: " + error);
+        if (cancelled || finished) return;
+        finished = true;
+        callbackExecutor.execute(() -> listener.onRejected(error));
+    }
+
+    private void delivered(Ring ring, int recipients) {
+        ring.recipients = recipients;
+        ring.deliveredAtMs = elapsedMs();
+        totalRecipients += recipients;
+        int total = totalRecipients;
+        Log.d(TAG, "Alert " + alertId + " ring " + ring + ", " + total + " alerted in total");
+        callbackExecutor.execute(() -> listener.onRingDelivered(ring, total));
+        if (cancelled || finished) return;
+
+        int next = ring.index + 1;
+        if (total >= config.targetRecipients || next >= config.ringsMeters.length
+                || ring.deliveredAtMs + config.ringDelayMs > config.deadlineMs) {
+            finished = true;
+            Log.d(TAG, "Alert " + alertId + " settled at " + ring.radiusMeters + " m: " + getRings());
+            int radius = ring.radiusMeters;
+            callbackExecutor.execute(() -> listener.onFinished(total, radius));
+            return;
+        }
+        nextRing = WORKER.schedule(() -> startRing(next), config.ringDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private long elapsedMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
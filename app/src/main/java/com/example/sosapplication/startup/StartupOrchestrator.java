@@ -0,0 +1,222 @@
+package com.example.sosapplication.startup;
+
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the app's initializers in dependency order, in two phases.
+ *
+ * {@link Phase#CRITICAL} initializers run on the main thread in {@link #runCritical()},
+ * before the first activity is created; only what the SOS button needs belongs there.
+ * {@link Phase#DEFERRED} ones run one after another on the background executor once
+ * {@link #onFirstFrame()} is called. Each initializer is wrapped in a {@link Trace}
+ * section named {@code startup:<name>} and its duration is kept, see {@link #getTimings()}.
+ *
+ * Code that needs a deferred component posts to {@link #after(String)} instead of
+ * blocking on it.
+ */
+public class StartupOrchestrator {
+
+    private static final String TAG = "Startup";
+
+    public enum Phase { CRITICAL, DEFERRED }
+
+    public interface Initializer {
+        void run() throws Exception;
+    }
+
+    private static class Entry {
+        final String name;
+        final Phase phase;
+        final String[] dependsOn;
+        final Initializer initializer;
+
+        Entry(String name, Phase phase, String[] dependsOn, Initializer initializer) {
+            this.name = name;
+            this.phase = phase;
+            this.dependsOn = dependsOn;
+            this.initializer = initializer;
+        }
+    }
+
+    private final Executor background;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    private final Object lock = new Object();
+    // Guarded by lock
+    private final Set<String> done = new HashSet<>();
+    private final Map<String, List<Runnable>> waiting = new HashMap<>();
+    private final Map<String, Long> timings = new LinkedHashMap<>();
+    private boolean criticalStarted;
+    private boolean deferredStarted;
+
+    /**
+     * @param background runs the deferred initializers; a single thread keeps them in order
+     */
+    public StartupOrchestrator(Executor background) {
+        this.background = background;
+    }
+
+    /**
+     * Register an initializer; dependencies must be registered before {@link #runCritical()}.
+     * A critical initializer cannot depend on a deferred one.
+     */
+    public void add(String name, Phase phase, Initializer initializer, String... dependsOn) {
+        synchronized (lock) {
+            if (criticalStarted) {
+                throw new IllegalStateException("Startup already running, cannot add " + name);
+            }
+            if (entries.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate initializer " + name);
+            }
+            entries.put(name, new Entry(name, phase, dependsOn, initializer));
+        }
+    }
+
+    /**
+     * Run the critical initializers on the calling thread; call from Application.onCreate
+     */
+    public void runCritical() {
+        List<Entry> order;
+        synchronized (lock) {
+            if (criticalStarted) return;
+            criticalStarted = true;
+            order = sort();
+        }
+        for (Entry entry : order) {
+            if (entry.phase == Phase.CRITICAL) {
+                runEntry(entry);
+            }
+        }
+    }
+
+    /**
+     * Start the deferred initializers; safe to call more than once, only the first call counts
+     */
+    public void onFirstFrame() {
+        List<Entry> order;
+        synchronized (lock) {
+            if (!criticalStarted || deferredStarted) return;
+            deferredStarted = true;
+            order = sort();
+        }
+        for (Entry entry : order) {
+            if (entry.phase == Phase.DEFERRED) {
+                background.execute(() -> runEntry(entry));
+            }
+        }
+    }
+
+    /**
+     * Runs tasks on the calling thread once {@code name} has finished, right away if it
+     * already has; earlier tasks run on the thread that finished it. Tasks also run if
+     * the initializer failed.
+     */
+    public Executor after(String name) {
+        synchronized (lock) {
+            if (!entries.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown initializer " + name);
+            }
+        }
+        return command -> {
+            synchronized (lock) {
+                if (!done.contains(name)) {
+                    waiting.computeIfAbsent(name, k -> new ArrayList<>()).add(command);
+                    return;
+                }
+            }
+            command.run();
+        };
+    }
+
+    public boolean isDone(String name) {
+        synchronized (lock) {
+            return done.contains(name);
+        }
+    }
+
+    /** Wall time of each finished initializer in milliseconds, in the order they finished */
+    public Map<String, Long> getTimings() {
+        synchronized (lock) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(timings));
+        }
+    }
+
+    private void runEntry(Entry entry) {
+        long start = System.nanoTime();
+        Trace.beginSection("startup:" + entry.name);
+        try {
+            entry.initializer.run();
+        } catch (Exception e) {
+            Log.e(TAG, "Initializer " + entry.name + " failed", e);
+        } finally {
+            Trace.endSection();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        Log.d(TAG, entry.name + " (" + entry.phase + ") took " + elapsedMs + " ms on "
+                + Thread.currentThread().getName());
+
+        List<Runnable> pending;
+        synchronized (lock) {
+            done.add(entry.name);
+            timings.put(entry.name, elapsedMs);
+            pending = waiting.remove(entry.name);
+        }
+        if (pending == null) return;
+        for (Runnable task : pending) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Task waiting for " + entry.name + " failed", e);
+            }
+        }
+    }
+
+    /** Every initializer after the ones it depends on */
+    private List<Entry> sort() {
+        Map<String, Integer> missing = new HashMap<>();
+        Map<String, List<Entry>> dependents = new HashMap<>();
+        ArrayDeque<Entry> ready = new ArrayDeque<>();
+        for (Entry entry : entries.values()) {
+            for (String dependency : entry.dependsOn) {
+                Entry required = entries.get(dependency);
+                if (required == null) {
+                    throw new IllegalStateException(entry.name + " depends on unknown " + dependency);
+                }
+                if (entry.phase == Phase.CRITICAL && required.phase == Phase.DEFERRED) {
+                    throw new IllegalStateException("Critical " + entry.name + " depends on deferred " + dependency);
+                }
+                dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(entry);
+            }
+            missing.put(entry.name, entry.dependsOn.length);
+            if (entry.dependsOn.length == 0) {
+                ready.add(entry);
+            }
+        }
+
+        List<Entry> order = new ArrayList<>(entries.size());
+        while (!ready.isEmpty()) {
+            Entry entry = ready.removeFirst();
+            order.add(entry);
+            for (Entry dependent : dependents.getOrDefault(entry.name, Collections.emptyList())) {
+                if (missing.merge(dependent.name, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (order.size() != entries.size()) {
+            throw new IllegalStateException("Initializer dependency cycle");
+        }
+        return order;
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.sosapplication.ui.dashboard;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Point;
+import android.os.Trace;
+import android.view.MotionEvent;
+
+import com.example.sosapplication.data.aed.AedClusterer;
+import com.example.sosapplication.data.aed.AedDataset;
+import com.example.sosapplication.data.aed.AedRecord;
+import com.example.sosapplication.data.aed.AedSpatialIndex;
+
+import org.osmdroid.util.BoundingBox;
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Overlay;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws AEDs for the current viewport only.
+ *
+ * Up to {@link AedClusterer#MAX_CLUSTER_ZOOM} nearby AEDs are merged into count
+ * badges; closer in, individual icons are drawn. AEDs stay plain {@link AedRecord}s;
+ * the visible set is refreshed from the map's scroll/zoom events through
+ * {@link #updateViewport(BoundingBox, double)} and drawn from shared bitmaps,
+ * without creating a Marker per AED.
+ */
+public class AedOverlay extends Overlay {
+
+    public interface OnAedClickListener {
+        void onAedClick(AedRecord aed);
+    }
+
+    // Extra viewport fraction kept on each side so icons don't pop in while panning
+    private static final double VIEWPORT_MARGIN = 0.25;
+    private static final int CLUSTER_CELL_PIXELS = 64;
+    private static final double CLUSTER_TAP_ZOOM_STEP = 2.0;
+
+    private final List<AedRecord> aeds;
+    private final AedSpatialIndex index;
+    private final AedClusterer clusterer;
+    private final Bitmap icon;
+    private final ClusterBadgeRenderer badges;
+    private final OnAedClickListener listener;
+
+    // Point indices, or cluster indices of visibleLevel when it is set
+    private int[] visible = new int[64];
+    private int visibleCount;
+    private AedClusterer.Level visibleLevel;
+    private boolean viewportKnown;
+
+    private final GeoPoint scratchGeo = new GeoPoint(0.0, 0.0);
+    private final Point scratchPixel = new Point();
+
+    public AedOverlay(AedDataset dataset, Bitmap icon, ClusterBadgeRenderer badges,
+                      OnAedClickListener listener) {
+        this.aeds = dataset.aeds;
+        this.index = dataset.index;
+        this.clusterer = new AedClusterer(index, CLUSTER_CELL_PIXELS);
+        this.icon = icon;
+        this.badges = badges;
+        this.listener = listener;
+    }
+
+    public List<AedRecord> getAeds() {
+        return aeds;
+    }
+
+    public AedSpatialIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Recompute which AEDs or clusters are inside (or just around) the given viewport
+     */
+    public void updateViewport(BoundingBox box, double zoom) {
+        double marginLat = (box.getLatNorth() - box.getLatSouth()) * VIEWPORT_MARGIN;
+        double marginLon = (box.getLonEast() - box.getLonWest()) * VIEWPORT_MARGIN;
+        double south = box.getLatSouth() - marginLat;
+        double north = box.getLatNorth() + marginLat;
+        double west = box.getLonWest() - marginLon;
+        double east = box.getLonEast() + marginLon;
+
+        visibleCount = 0;
+        int level = (int) Math.floor(zoom);
+        if (level <= AedClusterer.MAX_CLUSTER_ZOOM) {
+            visibleLevel = clusterer.clusters(level);
+            for (int c = 0; c < visibleLevel.size; c++) {
+                double lat = visibleLevel.latitude[c];
+                double lon = visibleLevel.longitude[c];
+                if (lat >= south && lat <= north && lon >= west && lon <= east) {
+                    addVisible(c);
+                }
+            }
+        } else {
+            visibleLevel = null;
+            index.forEachInBox(south, west, north, east, this::addVisible);
+        }
+        viewportKnown = true;
+    }
+
+    public int getVisibleCount() {
+        return visibleCount;
+    }
+
+    private void addVisible(int i) {
+        if (visibleCount == visible.length) {
+            visible = Arrays.copyOf(visible, visibleCount * 2);
+        }
+        visible[visibleCount++] = i;
+    }
+
+    @Override
+    public void draw(Canvas canvas, Projection projection) {
+        // Measured by the map benchmark in :benchmark
+        Trace.beginSection("AedOverlay.draw");
+        if (!viewportKnown) {
+            updateViewport(projection.getBoundingBox(), projection.getZoomLevel());
+        }
+
+        for (int v = 0; v < visibleCount; v++) {
+            int i = visible[v];
+            if (visibleLevel == null || visibleLevel.count[i] == 1) {
+                drawIcon(canvas, projection, visibleLevel == null ? i : visibleLevel.firstPoint[i]);
+            } else {
+                scratchGeo.setCoords(visibleLevel.latitude[i], visibleLevel.longitude[i]);
+                projection.toPixels(scratchGeo, scratchPixel);
+                Bitmap badge = badges.badge(visibleLevel.count[i]);
+                canvas.drawBitmap(badge, scratchPixel.x - badge.getWidth() / 2f,
+                        scratchPixel.y - badge.getHeight() / 2f, null);
+            }
+        }
+        Trace.endSection();
+    }
+
+    private void drawIcon(Canvas canvas, Projection projection, int point) {
+        toPixels(projection, point);
+        // Anchored bottom-center, like the markers it replaces
+        canvas.drawBitmap(icon, scratchPixel.x - icon.getWidth() / 2f,
+                scratchPixel.y - icon.getHeight(), null);
+    }
+
+    @Override
+    public boolean onSingleTapConfirmed(MotionEvent event, MapView mapView) {
+        if (!isEnabled()) return false;
+
+        Projection projection = mapView.getProjection();
+        float x = event.getX();
+        float y = event.getY();
+
+        // Topmost (last drawn) item wins
+        for (int v = visibleCount - 1; v >= 0; v--) {
+            int i = visible[v];
+            if (visibleLevel == null || visibleLevel.count[i] == 1) {
+                int point = visibleLevel == null ? i : visibleLevel.firstPoint[i];
+                toPixels(projection, point);
+                float halfWidth = icon.getWidth() / 2f;
+                if (listener != null
+                        && x >= scratchPixel.x - halfWidth && x <= scratchPixel.x + halfWidth
+                        && y >= scratchPixel.y - icon.getHeight() && y <= scratchPixel.y) {
+                    listener.onAedClick(aeds.get(point));
+                    return true;
+                }
+            } else {
+                scratchGeo.setCoords(visibleLevel.latitude[i], visibleLevel.longitude[i]);
+                projection.toPixels(scratchGeo, scratchPixel);
+                float half = badges.badge(visibleLevel.count[i]).getWidth() / 2f;
+                if (Math.abs(x - scratchPixel.x) <= half && Math.abs(y - scratchPixel.y) <= half) {
+                    mapView.getController().animateTo(
+                            new GeoPoint(visibleLevel.latitude[i], visibleLevel.longitude[i]),
+                            mapView.getZoomLevelDouble() + CLUSTER_TAP_ZOOM_STEP, 300L);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void toPixels(Projection projection, int point) {
+        scratchGeo.setCoords(index.latitude(point), index.longitude(point));
+        projection.toPixels(scratchGeo, scratchPixel);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.sosapplication.ui.dashboard;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * Renders AED cluster count badges into the shared {@link MarkerIconCache}.
+ *
+ * Counts are bucketed ("2".."9", "10+", "50+", "100+", ...) so only a handful of
+ * bitmaps ever exist no matter how many clusters are on screen.
+ */
+public class ClusterBadgeRenderer {
+
+    private static final int[] BUCKETS = {10, 50, 100, 500, 1000};
+
+    private final MarkerIconCache cache;
+    private final float density;
+    // Built once so lookups while drawing don't allocate
+    private final String[] labels;
+    private final String[] keys;
+
+    private final Paint fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    public ClusterBadgeRenderer(Resources res, MarkerIconCache cache) {
+        this.cache = cache;
+        this.density = res.getDisplayMetrics().density;
+
+        labels = new String[BUCKETS[0] + BUCKETS.length];
+        keys = new String[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = i < BUCKETS[0] ? String.valueOf(i) : BUCKETS[i - BUCKETS[0]] + "+";
+            keys[i] = MarkerIconCache.variantKey(res, "cluster:" + labels[i]);
+        }
+
+        fillPaint.setColor(Color.parseColor("#2E7D32"));
+        fillPaint.setStyle(Paint.Style.FILL);
+
+        borderPaint.setColor(Color.WHITE);
+        borderPaint.setStyle(Paint.Style.STROKE);
+        borderPaint.setStrokeWidth(2 * density);
+
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setFakeBoldText(true);
+    }
+
+    static int bucket(int count) {
+        for (int i = BUCKETS.length - 1; i >= 0; i--) {
+            if (count >= BUCKETS[i]) return BUCKETS[0] + i;
+        }
+        return Math.max(0, count);
+    }
+
+    /**
+     * Badge bitmap for the given cluster size, rendered on first use
+     */
+    public Bitmap badge(int count) {
+        int bucket = bucket(count);
+        Bitmap bitmap = cache.getIfPresent(keys[bucket]);
+        if (bitmap == null) {
+            bitmap = render(labels[bucket]);
+            cache.put(keys[bucket], bitmap);
+        }
+        return bitmap;
+    }
+
+    private Bitmap render(String label) {
+        // Badges grow a little with the number of digits
+        int size = Math.round((28 + 4 * label.length()) * density);
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        float radius = size / 2f - borderPaint.getStrokeWidth();
+        canvas.drawCircle(size / 2f, size / 2f, radius, fillPaint);
+        canvas.drawCircle(size / 2f, size / 2f, radius, borderPaint);
+
+        textPaint.setTextSize(13 * density);
+        float baseline = size / 2f - (textPaint.descent() + textPaint.ascent()) / 2f;
+        canvas.drawText(label, size / 2f, baseline, textPaint);
+        return bitmap;
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.sosapplication.ui.dashboard;
 
 import android.Manifest;
-import android.animation.ValueAnimator;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
@@ -12,12 +11,13 @@ import android.location.Location;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.Trace;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.animation.AccelerateDecelerateInterpolator;
-import android.view.animation.LinearInterpolator;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
@@ -26,15 +26,28 @@ import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 
 import com.example.sosapplication.R;
+import com.example.sosapplication.SOSApplication;
+import com.example.sosapplication.data.aed.AedDataset;
+import com.example.sosapplication.data.aed.AedRecord;
+import com.example.sosapplication.data.aed.AedRepository;
+import com.example.sosapplication.data.routing.Route;
+import com.example.sosapplication.data.routing.RouteRepository;
+import com.example.sosapplication.data.tiles.MbTilesArchive;
+import com.example.sosapplication.data.tiles.OfflineFirstTileProvider;
+import com.example.sosapplication.data.tiles.OfflineTileRepository;
+import com.example.sosapplication.data.tiles.TilePrefetcher;
+import com.example.sosapplication.data.tiles.TileSources;
 import com.example.sosapplication.databinding.FragmentDashboardBinding;
+import com.example.sosapplication.services.LocationReportingService;
+import com.example.sosapplication.services.SOSAlertService;
+import com.example.sosapplication.services.SosEscalation;
+import com.example.sosapplication.utils.CircleHelper;
+import com.example.sosapplication.utils.GeoHelper;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.osmdroid.config.Configuration;
 import org.osmdroid.events.MapListener;
 import org.osmdroid.events.ScrollEvent;
 import org.osmdroid.events.ZoomEvent;
-import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
 import org.osmdroid.util.BoundingBox;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
@@ -44,13 +57,9 @@ import org.osmdroid.views.overlay.Polyline;
 import org.osmdroid.views.overlay.mylocation.GpsMyLocationProvider;
 import org.osmdroid.views.overlay.mylocation.MyLocationNewOverlay;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Locale;
 
 public class DashboardFragment extends Fragment {
 
@@ -60,13 +69,18 @@ public class DashboardFragment extends Fragment {
     private MyLocationNewOverlay myLocationOverlay;
     private GeoPoint userLocationPoint;
     private GeoPoint selectedAedPoint;
+    private AedRecord selectedAed;
     private Polyline currentRoute;
 
-    private final List<Marker> aedMarkers = new ArrayList<>();
+    private AedDataset aedDataset;
+    private AedOverlay aedOverlay;
+    private RouteRepository routeRepository;
+    private TilePrefetcher tilePrefetcher;
 
+    private static final String TAG = "DashboardFragment";
     private static final int LOCATION_REQUEST = 101;
     private static final int ROUTE_COLOR = 0xFF007AFF; // Blue color
-    private static final double SOS_RADIUS_METERS = 200;
+    private static final double SOS_ZOOM = 17.0;
 
     private final double north = 49.6138;
     private final double south = 47.7312;
@@ -75,18 +89,25 @@ public class DashboardFragment extends Fragment {
     
     private boolean isPanelVisible = false;
     private boolean isSosActive = false;
+    private boolean nearestAedPending = false;
+    // System.nanoTime() of the SOS press on the home screen, 0 once reported
+    private long sosPressedAtNanos;
+    private final int[] nearestAedIndices = new int[AedDataset.NEAREST_RESULTS];
+    private final double[] nearestAedMeters = new double[AedDataset.NEAREST_RESULTS];
     
     // SOS related
     private Marker sosMarker;
     private Polygon sosRadiusCircle;
-    private final List<Polygon> sosWaves = new ArrayList<>();
-    private Handler waveHandler;
-    private Runnable waveRunnable;
+    private final SosEscalation.Config sosEscalationConfig = new SosEscalation.Config();
+    private SosEscalation sosEscalation;
+    private SosWaveOverlay sosWaves;
+    private double[] circleBuffer = new double[CircleHelper.bufferSize(CircleHelper.MIN_VERTICES)];
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container,
                              Bundle savedInstanceState) {
+        Trace.beginSection("DashboardFragment.onCreateView");
 
         new ViewModelProvider(this).get(DashboardViewModel.class);
 
@@ -96,7 +117,7 @@ public class DashboardFragment extends Fragment {
         Configuration.getInstance().setUserAgentValue(requireContext().getPackageName());
 
         mapView = binding.mapView;
-        mapView.setTileSource(TileSourceFactory.MAPNIK);
+        mapView.setTileSource(TileSources.online());
         mapView.setBuiltInZoomControls(false);
         mapView.setMultiTouchControls(true);
 
@@ -107,9 +128,12 @@ public class DashboardFragment extends Fragment {
         mapView.zoomToBoundingBox(slovakiaBox, true);
 
         mapView.addMapListener(new MapListener() {
-            @Override public boolean onScroll(ScrollEvent event) { return true; }
+            @Override public boolean onScroll(ScrollEvent event) {
+                updateAedViewport();
+                return true;
+            }
             @Override public boolean onZoom(ZoomEvent event) {
-                updateAedByZoom();
+                updateAedViewport();
                 return true;
             }
         });
@@ -117,11 +141,17 @@ public class DashboardFragment extends Fragment {
         binding.btnMyLocation.bringToFront();
         binding.btnMyLocation.setZ(100f);
         
+        routeRepository = new RouteRepository(requireContext());
+
         initMyLocation();
+        loadOfflineTiles();
         loadAedMarkers();
 
         // Check if SOS was triggered
         if (getArguments() != null && getArguments().getBoolean("sos_triggered", false)) {
+            sosPressedAtNanos = getArguments().getLong("sos_pressed_at", System.nanoTime());
+            // Connect to the backend while we wait for a location fix
+            SOSApplication.from(requireContext()).getBackendWarmer().warm();
             // Wait for location to be available
             new Handler(Looper.getMainLooper()).postDelayed(this::activateSos, 1000);
         }
@@ -145,9 +175,9 @@ public class DashboardFragment extends Fragment {
         });
 
         binding.btnNavigate.setOnClickListener(v -> {
-            if (userLocationPoint != null && selectedAedPoint != null) {
+            if (userLocationPoint != null && selectedAed != null) {
                 animateButtonPress(v);
-                buildRoute(userLocationPoint, selectedAedPoint);
+                buildRoute(userLocationPoint, selectedAed);
                 zoomToUserAndAed(userLocationPoint, selectedAedPoint);
             }
         });
@@ -159,6 +189,7 @@ public class DashboardFragment extends Fragment {
         
         setupPanelSwipeToDismiss();
 
+        Trace.endSection();
         return root;
     }
     
@@ -171,6 +202,8 @@ public class DashboardFragment extends Fragment {
         }
         
         isSosActive = true;
+        // Keep the backend's idea of where we are fresh while help is on the way
+        LocationReportingService.startForSos(requireContext());
         
         // Show banner
         binding.sosBanner.setVisibility(View.VISIBLE);
@@ -179,23 +212,49 @@ public class DashboardFragment extends Fragment {
         
         // Center on user location
         mapView.getController().animateTo(userLocationPoint);
-        mapView.getController().setZoom(17.0);
+        mapView.getController().setZoom(SOS_ZOOM);
         
         // Add SOS marker
         addSosMarker();
         
-        // Add 200m radius circle
-        addSosRadius();
+        // Radius of the first ring; widened as the alert escalates
+        addSosRadius(sosEscalationConfig.ringsMeters[0]);
         
         // Start wave animation
         startWaveAnimation();
         
         // Send notification to nearby users (would need Firebase in real app)
         sendSosNotification();
+
+        // Point the user to the closest defibrillator
+        highlightNearestAed();
+    }
+
+    private void highlightNearestAed() {
+        if (aedDataset == null || userLocationPoint == null) {
+            // Picked up again once the AED data has loaded
+            nearestAedPending = true;
+            return;
+        }
+        nearestAedPending = false;
+
+        int count = aedDataset.nearest.nearest(userLocationPoint.getLatitude(),
+                userLocationPoint.getLongitude(), nearestAedIndices, nearestAedMeters);
+        if (count == 0) return;
+
+        selectAed(aedDataset.aeds.get(nearestAedIndices[0]), nearestAedMeters[0]);
+        zoomToUserAndAed(userLocationPoint, selectedAedPoint);
     }
     
     private void deactivateSos() {
         isSosActive = false;
+        nearestAedPending = false;
+        LocationReportingService.stop(requireContext());
+        if (sosEscalation != null) {
+            sosEscalation.cancel();
+            sosEscalation = null;
+        }
+        binding.sosBannerText.setText(R.string.sos_active);
         
         // Hide banner
         binding.sosBanner.animate()
@@ -239,6 +298,12 @@ public class DashboardFragment extends Fragment {
     }
     
     private BitmapDrawable createSosMarkerDrawable() {
+        Bitmap bitmap = MarkerIconCache.getInstance().get(
+                MarkerIconCache.variantKey(getResources(), "sos"), this::renderSosMarker);
+        return new BitmapDrawable(getResources(), bitmap);
+    }
+    
+    private Bitmap renderSosMarker() {
         int size = 80;
         Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
         Canvas canvas = new Canvas(bitmap);
@@ -264,16 +329,16 @@ public class DashboardFragment extends Fragment {
         textPaint.setFakeBoldText(true);
         canvas.drawText("SOS", size / 2f, size / 2f + 8, textPaint);
         
-        return new BitmapDrawable(getResources(), bitmap);
+        return bitmap;
     }
     
-    private void addSosRadius() {
+    private void addSosRadius(double radiusMeters) {
         if (sosRadiusCircle != null) {
             mapView.getOverlays().remove(sosRadiusCircle);
         }
         
         sosRadiusCircle = new Polygon();
-        sosRadiusCircle.setPoints(createCirclePoints(userLocationPoint, SOS_RADIUS_METERS));
+        sosRadiusCircle.setPoints(createCirclePoints(userLocationPoint, radiusMeters, SOS_ZOOM));
         sosRadiusCircle.setFillColor(0x22FF3B30);
         sosRadiusCircle.setStrokeColor(0x66FF3B30);
         sosRadiusCircle.setStrokeWidth(3);
@@ -281,83 +346,37 @@ public class DashboardFragment extends Fragment {
         mapView.getOverlays().add(0, sosRadiusCircle);
     }
     
-    private List<GeoPoint> createCirclePoints(GeoPoint center, double radiusMeters) {
-        List<GeoPoint> points = new ArrayList<>();
-        int numPoints = 60;
-        
-        for (int i = 0; i < numPoints; i++) {
-            double angle = Math.toRadians(i * (360.0 / numPoints));
-            double latOffset = (radiusMeters / 111320) * Math.cos(angle);
-            double lonOffset = (radiusMeters / (111320 * Math.cos(Math.toRadians(center.getLatitude())))) * Math.sin(angle);
-            
-            points.add(new GeoPoint(
-                    center.getLatitude() + latOffset,
-                    center.getLongitude() + lonOffset
-            ));
+    private List<GeoPoint> createCirclePoints(GeoPoint center, double radiusMeters, double zoom) {
+        float pixelRadius = mapView.getProjection()
+                .metersToPixels((float) radiusMeters, center.getLatitude(), zoom);
+        int vertices = CircleHelper.vertexCount(pixelRadius);
+        if (circleBuffer.length < CircleHelper.bufferSize(vertices)) {
+            circleBuffer = new double[CircleHelper.bufferSize(vertices)];
+        }
+        int count = CircleHelper.circle(center.getLatitude(), center.getLongitude(),
+                radiusMeters, vertices, circleBuffer);
+
+        List<GeoPoint> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            points.add(new GeoPoint(circleBuffer[2 * i], circleBuffer[2 * i + 1]));
         }
-        points.add(points.get(0)); // Close the circle
-        
         return points;
     }
     
     private void startWaveAnimation() {
-        waveHandler = new Handler(Looper.getMainLooper());
-        
-        waveRunnable = new Runnable() {
-            int waveIndex = 0;
-            
-            @Override
-            public void run() {
-                if (!isSosActive || userLocationPoint == null) return;
-                
-                // Create a new wave
-                final Polygon wave = new Polygon();
-                wave.setFillColor(0x00000000);
-                wave.setStrokeColor(0xFFFF3B30);
-                wave.setStrokeWidth(3);
-                wave.setPoints(createCirclePoints(userLocationPoint, 20));
-                
-                mapView.getOverlays().add(wave);
-                sosWaves.add(wave);
-                
-                // Animate the wave expanding
-                ValueAnimator animator = ValueAnimator.ofFloat(20f, 200f);
-                animator.setDuration(2000);
-                animator.setInterpolator(new LinearInterpolator());
-                animator.addUpdateListener(animation -> {
-                    float radius = (float) animation.getAnimatedValue();
-                    float alpha = 1f - (radius / 200f);
-                    
-                    wave.setPoints(createCirclePoints(userLocationPoint, radius));
-                    wave.setStrokeColor(Color.argb((int)(alpha * 255), 255, 59, 48));
-                    mapView.invalidate();
-                });
-                animator.addListener(new android.animation.AnimatorListenerAdapter() {
-                    @Override
-                    public void onAnimationEnd(android.animation.Animator animation) {
-                        mapView.getOverlays().remove(wave);
-                        sosWaves.remove(wave);
-                    }
-                });
-                animator.start();
-                
-                // Schedule next wave
-                waveHandler.postDelayed(this, 700);
-            }
-        };
-        
-        waveHandler.post(waveRunnable);
+        if (sosWaves == null) {
+            sosWaves = new SosWaveOverlay(mapView);
+        }
+        if (!mapView.getOverlays().contains(sosWaves)) {
+            mapView.getOverlays().add(sosWaves);
+        }
+        sosWaves.start(userLocationPoint);
     }
     
     private void stopWaveAnimation() {
-        if (waveHandler != null) {
-            waveHandler.removeCallbacks(waveRunnable);
-        }
-        
-        for (Polygon wave : sosWaves) {
-            mapView.getOverlays().remove(wave);
-        }
-        sosWaves.clear();
+        if (sosWaves == null) return;
+        sosWaves.stop();
+        mapView.getOverlays().remove(sosWaves);
     }
 
     private void sendSosNotification() {
@@ -374,24 +393,38 @@ public class DashboardFragment extends Fragment {
         location.setLatitude(userLocationPoint.getLatitude());
         location.setLongitude(userLocationPoint.getLongitude());
 
-        // Get backend URL from Application class
-        String backendUrl = com.example.sosapplication.SOSApplication.BACKEND_API_URL;
+        // Shared service: one OneSignal login and one warm HTTP client per process
+        SOSAlertService sosService = SOSApplication.from(requireContext()).getSosAlertService();
 
-        com.example.sosapplication.services.SOSAlertService sosService =
-                new com.example.sosapplication.services.SOSAlertService(requireContext(), backendUrl);
+        // Trigger the SOS alert first so it gets the pre-warmed connection,
+        // timed from the button press when we know it. It starts with the closest people
+        // and widens the radius while too few were reached.
+        long pressedAt = sosPressedAtNanos != 0 ? sosPressedAtNanos : System.nanoTime();
+        sosPressedAtNanos = 0;
+        if (sosEscalation != null) {
+            sosEscalation.cancel();
+        }
+        sosEscalation = sosService.startEscalatingSOSAlert(location,
+                getString(R.string.sos_sent_notification), pressedAt, sosEscalationConfig,
+                new SosEscalation.Listener() {
+                    @Override
+                    public void onRingStarted(SosEscalation.Ring ring) {
+                        if (binding == null || !isSosActive || userLocationPoint == null) return;
+                        addSosRadius(ring.radiusMeters);
+                        binding.sosBannerText.setText(getString(R.string.sos_active_radius, ring.radiusMeters));
+                        mapView.invalidate();
+                    }
 
-        // First update our location
-        sosService.updateLocation(location, null);
+                    @Override
+                    public void onRingDelivered(SosEscalation.Ring ring, int totalRecipients) {
+                    }
 
-        // Then trigger SOS alert
-        sosService.triggerSOSAlert(location, 200,
-                getString(R.string.sos_sent_notification),
-                new com.example.sosapplication.services.SOSAlertService.SOSCallback() {
                     @Override
-                    public void onSuccess(int recipientsCount) {
+                    public void onFinished(int totalRecipients, int radiusMeters) {
                         if (getContext() != null) {
-                            String message = recipientsCount > 0
-                                    ? "SOS отправлен " + recipientsCount + " пользователям рядом"
+                            String message = totalRecipients > 0
+                                    ? "SOS отправлен " + totalRecipients + " пользователям в радиусе "
+                                            + radiusMeters + " м"
                                     : "SOS активен (пользователей рядом не найдено)";
                             Toast.makeText(requireContext(), message, Toast.LENGTH_LONG).show();
                         }
@@ -400,13 +433,25 @@ public class DashboardFragment extends Fragment {
                     @Override
                     public void onError(String error) {
                         if (getContext() != null) {
-                            // Still show SOS is active locally even if network failed
+                            // The alert stays queued and is sent once the network is back
                             Toast.makeText(requireContext(), 
-                                    "SOS активен локально", 
-                                    Toast.LENGTH_SHORT).show();
+                                    "SOS активен локально, отправим при появлении сети", 
+                                    Toast.LENGTH_LONG).show();
+                        }
+                    }
+
+                    @Override
+                    public void onRejected(String error) {
+                        if (getContext() != null) {
+                            // Nothing is queued any more; do not promise a later send
+                            Toast.makeText(requireContext(), getString(R.string.sos_rejected, error),
+                                    Toast.LENGTH_LONG).show();
                         }
                     }
                 });
+
+        // Then update our location; the alert already carries it
+        sosService.updateLocation(location, null);
     }
     
     // ============== PANEL & LOCATION ==============
@@ -472,74 +517,127 @@ public class DashboardFragment extends Fragment {
             Location loc = myLocationOverlay.getLastFix();
             if (loc != null) {
                 userLocationPoint = new GeoPoint(loc.getLatitude(), loc.getLongitude());
+                mapView.post(this::prefetchTilesAroundUser);
             }
         });
         mapView.getOverlays().add(myLocationOverlay);
     }
 
-    private void loadAedMarkers() {
-        try {
-            String lang = getCurrentLang();
-            if (!lang.equals("en") && !lang.equals("sk") && !lang.equals("uk")) {
-                lang = "en";
+    private void loadOfflineTiles() {
+        new OfflineTileRepository(requireContext()).open(new OfflineTileRepository.OpenCallback() {
+            @Override
+            public void onOpened(MbTilesArchive archive) {
+                if (binding == null) {
+                    archive.close();
+                    return;
+                }
+                installTileProvider(archive);
             }
 
-            String fileName = "SK_" + lang + ".geojson";
-            InputStream is = requireContext().getAssets().open(fileName);
-            byte[] buffer = new byte[is.available()];
-            is.read(buffer);
-            is.close();
-
-            JSONObject json = new JSONObject(new String(buffer, StandardCharsets.UTF_8));
-            JSONArray features = json.getJSONArray("features");
-            aedMarkers.clear();
-
-            for (int i = 0; i < features.length(); i++) {
-                JSONObject feature = features.getJSONObject(i);
-                JSONArray coords = feature.getJSONObject("geometry").getJSONArray("coordinates");
-
-                double lon = coords.getDouble(0);
-                double lat = coords.getDouble(1);
-
-                JSONObject props = feature.getJSONObject("properties");
-                String location = props.optString("defibrillator:location", "AED");
-                String access = props.optString("access", "-");
-                String hours = props.optString("opening_hours", "-");
-
-                Marker marker = new Marker(mapView);
-                marker.setPosition(new GeoPoint(lat, lon));
-                marker.setIcon(requireContext().getDrawable(R.drawable.ic_aed));
-                marker.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
-                marker.setTitle(location);
-
-                final String loc = location;
-                final String acc = access;
-                final String hrs = hours;
-                
-                marker.setOnMarkerClickListener((m, map) -> {
-                    selectedAedPoint = m.getPosition();
-                    showAedPanel(loc, acc, hrs);
-                    mapView.getController().animateTo(selectedAedPoint);
-                    return true;
-                });
+            @Override
+            public void onUnavailable() {
+                if (binding == null) return;
+                installTileProvider(null);
+                downloadOfflineTiles();
+            }
+        });
+    }
 
-                mapView.getOverlays().add(marker);
-                aedMarkers.add(marker);
+    /** Fetch the pack in the background; the online map is used until it is installed */
+    private void downloadOfflineTiles() {
+        new OfflineTileRepository(requireContext()).download(new OfflineTileRepository.OpenCallback() {
+            @Override
+            public void onOpened(MbTilesArchive archive) {
+                if (binding == null) {
+                    archive.close();
+                    return;
+                }
+                installTileProvider(archive);
             }
 
-            updateAedByZoom();
-            mapView.invalidate();
+            @Override
+            public void onUnavailable() {
+                // Keep the online map; the next app start tries again
+            }
+        });
+    }
+
+    private void installTileProvider(MbTilesArchive archive) {
+        OfflineFirstTileProvider provider = OfflineFirstTileProvider.create(
+                requireContext(), TileSources.online(), archive);
+        if (tilePrefetcher != null) {
+            tilePrefetcher.cancel();
+            tilePrefetcher = null;
+        }
+        // Only with a configured tile server; the public OSM ones forbid prefetching
+        if (TilePrefetcher.isAllowedFor(TileSources.online())) {
+            tilePrefetcher = new TilePrefetcher(requireContext(), TileSources.online(),
+                    archive, new TilePrefetcher.Budget());
+            provider.setTileRequestListener(tilePrefetcher::onTileRequested);
+        }
+        mapView.setTileProvider(provider);
+        prefetchTilesAroundUser();
+    }
+
+    private void prefetchTilesAroundUser() {
+        if (binding == null || tilePrefetcher == null || userLocationPoint == null) return;
+        tilePrefetcher.prefetchAround(userLocationPoint.getLatitude(), userLocationPoint.getLongitude());
+    }
+
+    private void loadAedMarkers() {
+        new AedRepository(requireContext()).load(getCurrentLang(), new AedRepository.LoadCallback() {
+            @Override
+            public void onLoaded(AedDataset dataset) {
+                if (binding == null) return;
+                aedDataset = dataset;
+                addAedMarkers(dataset);
+                if (nearestAedPending && isSosActive) {
+                    highlightNearestAed();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.e(TAG, "Failed to load AEDs", e);
+            }
+        });
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    private void addAedMarkers(AedDataset dataset) {
+        if (aedOverlay != null) {
+            mapView.getOverlays().remove(aedOverlay);
         }
+
+        MarkerIconCache iconCache = MarkerIconCache.getInstance();
+        aedOverlay = new AedOverlay(dataset, iconCache.getResource(getResources(), R.drawable.ic_aed),
+                new ClusterBadgeRenderer(getResources(), iconCache), aed -> {
+            double meters = userLocationPoint == null ? Double.NaN : GeoHelper.distanceMeters(
+                    userLocationPoint.getLatitude(), userLocationPoint.getLongitude(),
+                    aed.latitude, aed.longitude);
+            selectAed(aed, meters);
+            mapView.getController().animateTo(selectedAedPoint);
+        });
+        mapView.getOverlays().add(aedOverlay);
+
+        updateAedViewport();
+        mapView.invalidate();
     }
 
-    private void showAedPanel(String location, String access, String hours) {
+    private void selectAed(AedRecord aed, double distanceMeters) {
+        selectedAed = aed;
+        selectedAedPoint = new GeoPoint(aed.latitude, aed.longitude);
+        showAedPanel(aed.location, aed.access, aed.openingHours, distanceMeters);
+    }
+
+    private void showAedPanel(String location, String access, String hours, double distanceMeters) {
         isPanelVisible = true;
         binding.aedInfoPanel.setVisibility(View.VISIBLE);
         binding.txtAedTitle.setText(location);
-        binding.txtAedInfo.setText(getString(R.string.aed_access) + ": " + access + "\n" + getString(R.string.aed_hours) + ": " + hours);
+        String info = getString(R.string.aed_access) + ": " + access + "\n" + getString(R.string.aed_hours) + ": " + hours;
+        if (!Double.isNaN(distanceMeters)) {
+            info = getString(R.string.aed_distance) + ": " + formatDistance(distanceMeters) + "\n" + info;
+        }
+        binding.txtAedInfo.setText(info);
 
         binding.aedInfoPanel.measure(View.MeasureSpec.UNSPECIFIED, View.MeasureSpec.UNSPECIFIED);
         final int panelHeight = binding.aedInfoPanel.getMeasuredHeight();
@@ -560,6 +658,12 @@ public class DashboardFragment extends Fragment {
                 .start();
     }
     
+    private static String formatDistance(double meters) {
+        return meters < 1000
+                ? Math.round(meters) + " m"
+                : String.format(Locale.US, "%.1f km", meters / 1000);
+    }
+
     private void hideAedPanel() {
         isPanelVisible = false;
         final int panelHeight = binding.aedInfoPanel.getHeight();
@@ -582,6 +686,7 @@ public class DashboardFragment extends Fragment {
                 .start();
         
         selectedAedPoint = null;
+        selectedAed = null;
         
         if (currentRoute != null) {
             mapView.getOverlays().remove(currentRoute);
@@ -590,54 +695,55 @@ public class DashboardFragment extends Fragment {
         }
     }
 
-    private void updateAedByZoom() {
-        double zoom = mapView.getZoomLevelDouble();
-        for (Marker m : aedMarkers) {
-            m.setEnabled(zoom >= 12);
-        }
+    private void updateAedViewport() {
+        if (aedOverlay == null) return;
+        aedOverlay.updateViewport(mapView.getBoundingBox(), mapView.getZoomLevelDouble());
     }
 
-    private void buildRoute(GeoPoint start, GeoPoint end) {
+    private void buildRoute(GeoPoint start, AedRecord aed) {
         if (currentRoute != null) {
             mapView.getOverlays().remove(currentRoute);
         }
 
-        new Thread(() -> {
-            try {
-                String url = "https://router.project-osrm.org/route/v1/foot/"
-                        + start.getLongitude() + "," + start.getLatitude()
-                        + ";" + end.getLongitude() + "," + end.getLatitude()
-                        + "?overview=full&geometries=geojson";
-
-                HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
-                Scanner sc = new Scanner(conn.getInputStream()).useDelimiter("\\A");
-                String json = sc.hasNext() ? sc.next() : "";
-
-                JSONArray coords = new JSONObject(json)
-                        .getJSONArray("routes")
-                        .getJSONObject(0)
-                        .getJSONObject("geometry")
-                        .getJSONArray("coordinates");
-
-                List<GeoPoint> points = new ArrayList<>();
-                for (int i = 0; i < coords.length(); i++) {
-                    JSONArray c = coords.getJSONArray(i);
-                    points.add(new GeoPoint(c.getDouble(1), c.getDouble(0)));
-                }
+        routeRepository.route(aed.osmId, start.getLatitude(), start.getLongitude(),
+                aed.latitude, aed.longitude, new RouteRepository.RouteCallback() {
+                    @Override
+                    public void onRoute(Route route) {
+                        if (binding == null) return;
+                        showRoute(route);
+                    }
 
-                requireActivity().runOnUiThread(() -> {
-                    currentRoute = new Polyline();
-                    currentRoute.setPoints(points);
-                    currentRoute.setColor(ROUTE_COLOR);
-                    currentRoute.setWidth(10f);
-                    mapView.getOverlays().add(currentRoute);
-                    mapView.invalidate();
+                    @Override
+                    public void onError(String error) {
+                        if (getContext() != null) {
+                            Toast.makeText(requireContext(), getString(R.string.route_not_available),
+                                    Toast.LENGTH_SHORT).show();
+                        }
+                    }
                 });
+    }
 
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }).start();
+    private void showRoute(Route route) {
+        if (currentRoute != null) {
+            mapView.getOverlays().remove(currentRoute);
+        }
+
+        List<GeoPoint> points = new ArrayList<>(route.size());
+        for (int i = 0; i < route.size(); i++) {
+            points.add(new GeoPoint(route.latitudes[i], route.longitudes[i]));
+        }
+
+        currentRoute = new Polyline();
+        currentRoute.setPoints(points);
+        currentRoute.setColor(ROUTE_COLOR);
+        currentRoute.setWidth(10f);
+        mapView.getOverlays().add(currentRoute);
+        mapView.invalidate();
+
+        if (tilePrefetcher != null && userLocationPoint != null) {
+            tilePrefetcher.prefetchRoute(userLocationPoint.getLatitude(),
+                    userLocationPoint.getLongitude(), route);
+        }
     }
 
     private void zoomToUserAndAed(GeoPoint user, GeoPoint aed) {
@@ -659,7 +765,14 @@ public class DashboardFragment extends Fragment {
     @Override 
     public void onDestroyView() { 
         super.onDestroyView(); 
+        if (isSosActive) {
+            LocationReportingService.stop(requireContext());
+        }
         stopWaveAnimation();
+        routeRepository.cancel();
+        if (tilePrefetcher != null) {
+            tilePrefetcher.cancel();
+        }
         binding = null; 
     }
 }
@@ -0,0 +1,113 @@
+package com.example.sosapplication.ui.dashboard;
+
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import androidx.annotation.DrawableRes;
+import androidx.core.content.res.ResourcesCompat;
+
+/**
+ * Process-wide cache of rendered map marker icons.
+ *
+ * Every icon variant is rendered once per screen density and day/night theme and the
+ * bitmap is shared by all markers that use it. Entries are evicted least-recently-used
+ * once the byte budget is exceeded.
+ */
+public class MarkerIconCache {
+
+    private static final int DEFAULT_BUDGET_BYTES = 2 * 1024 * 1024;
+
+    private static MarkerIconCache instance;
+
+    private final LruCache<String, Bitmap> cache;
+
+    public interface Renderer {
+        Bitmap render();
+    }
+
+    public static synchronized MarkerIconCache getInstance() {
+        if (instance == null) {
+            instance = new MarkerIconCache(DEFAULT_BUDGET_BYTES);
+        }
+        return instance;
+    }
+
+    MarkerIconCache(int budgetBytes) {
+        cache = new LruCache<String, Bitmap>(budgetBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Cache key for an icon in the density and theme of the given resources.
+     * Callers on hot paths should build their keys once and keep them.
+     */
+    public static String variantKey(Resources res, String name) {
+        int night = res.getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        return name + "@" + res.getDisplayMetrics().densityDpi
+                + (night == Configuration.UI_MODE_NIGHT_YES ? "-night" : "");
+    }
+
+    /**
+     * Shared bitmap for the key, rendering it on a miss
+     */
+    public Bitmap get(String key, Renderer renderer) {
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            bitmap = renderer.render();
+            cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Cached bitmap or null; counts as a hit or miss like {@link #get}
+     */
+    public Bitmap getIfPresent(String key) {
+        return cache.get(key);
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        cache.put(key, bitmap);
+    }
+
+    /**
+     * Shared bitmap of a drawable resource at its intrinsic size
+     */
+    public Bitmap getResource(Resources res, @DrawableRes int id) {
+        return get(variantKey(res, "res:" + id), () -> {
+            Drawable drawable = ResourcesCompat.getDrawable(res, id, null);
+            Bitmap bitmap = Bitmap.createBitmap(drawable.getIntrinsicWidth(),
+                    drawable.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(bitmap);
+            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
+            drawable.draw(canvas);
+            return bitmap;
+        });
+    }
+
+    public int hitCount() {
+        return cache.hitCount();
+    }
+
+    public int missCount() {
+        return cache.missCount();
+    }
+
+    public int sizeBytes() {
+        return cache.size();
+    }
+
+    @Override
+    public String toString() {
+        return "MarkerIconCache[hits=" + hitCount() + ", misses=" + missCount()
+                + ", bytes=" + sizeBytes() + "/" + cache.maxSize() + "]";
+    }
+}
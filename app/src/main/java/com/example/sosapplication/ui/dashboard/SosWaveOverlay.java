@@ -0,0 +1,92 @@
+package com.example.sosapplication.ui.dashboard;
+
+import android.animation.TimeAnimator;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Point;
+
+import org.osmdroid.util.GeoPoint;
+import org.osmdroid.views.MapView;
+import org.osmdroid.views.Projection;
+import org.osmdroid.views.overlay.Overlay;
+
+/**
+ * Expanding SOS rings around the user's position.
+ *
+ * A new ring starts every {@link #WAVE_INTERVAL_MS}, grows from {@link #START_RADIUS_METERS}
+ * to {@link #END_RADIUS_METERS} and fades out on the way. All rings are derived from one
+ * {@link TimeAnimator} clock and drawn with {@link Canvas#drawCircle} in screen space, so
+ * a running animation allocates nothing per frame.
+ */
+public class SosWaveOverlay extends Overlay {
+
+    private static final long WAVE_INTERVAL_MS = 700;
+    private static final long WAVE_DURATION_MS = 2000;
+    private static final float START_RADIUS_METERS = 20f;
+    private static final float END_RADIUS_METERS = 200f;
+    private static final float STROKE_WIDTH = 3f;
+
+    private final TimeAnimator clock = new TimeAnimator();
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final GeoPoint center = new GeoPoint(0.0, 0.0);
+    private final Point centerPixel = new Point();
+    private long elapsedMs;
+
+    public SosWaveOverlay(MapView mapView) {
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeWidth(STROKE_WIDTH);
+        clock.setTimeListener((animation, totalTime, deltaTime) -> {
+            elapsedMs = totalTime;
+            mapView.postInvalidateOnAnimation();
+        });
+    }
+
+    /**
+     * Start (or restart) the rings around the given position
+     */
+    public void start(GeoPoint position) {
+        center.setCoords(position.getLatitude(), position.getLongitude());
+        elapsedMs = 0;
+        if (clock.isStarted()) clock.cancel();
+        clock.start();
+    }
+
+    public void stop() {
+        clock.cancel();
+        elapsedMs = 0;
+    }
+
+    public boolean isRunning() {
+        return clock.isStarted();
+    }
+
+    @Override
+    public void draw(Canvas canvas, Projection projection) {
+        if (!clock.isStarted()) return;
+
+        projection.toPixels(center, centerPixel);
+        double zoom = projection.getZoomLevel();
+
+        // Newest ring first; older ones are still alive while younger than the duration
+        for (long wave = elapsedMs / WAVE_INTERVAL_MS; wave >= 0; wave--) {
+            long age = elapsedMs - wave * WAVE_INTERVAL_MS;
+            if (age >= WAVE_DURATION_MS) break;
+
+            float progress = (float) age / WAVE_DURATION_MS;
+            float meters = START_RADIUS_METERS + (END_RADIUS_METERS - START_RADIUS_METERS) * progress;
+            float alpha = 1f - meters / END_RADIUS_METERS;
+
+            paint.setColor(Color.argb((int) (alpha * 255), 255, 59, 48));
+            float radius = projection.metersToPixels(meters, center.getLatitude(), zoom);
+            canvas.drawCircle(centerPixel.x, centerPixel.y, radius, paint);
+        }
+    }
+
+    @Override
+    public void onDetach(MapView mapView) {
+        stop();
+        super.onDetach(mapView);
+    }
+}
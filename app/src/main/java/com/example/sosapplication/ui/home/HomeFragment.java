@@ -1,5 +1,6 @@
 package com.example.sosapplication.ui.home;
 
+import android.Manifest;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -7,6 +8,8 @@ import android.view.ViewGroup;
 import android.view.animation.AccelerateDecelerateInterpolator;
 import android.widget.TextView;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
@@ -14,13 +17,30 @@ import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 
 import com.example.sosapplication.R;
+import com.example.sosapplication.SOSApplication;
 import com.example.sosapplication.databinding.FragmentHomeBinding;
+import com.example.sosapplication.services.LocationReportingService;
 import com.example.sosapplication.utils.LocaleHelper;
 import com.example.sosapplication.utils.ThemeHelper;
 
 public class HomeFragment extends Fragment {
 
     private FragmentHomeBinding binding;
+    private ActivityResultLauncher<String> locationPermissionLauncher;
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        // Location sharing is only turned on once the user allowed location access
+        locationPermissionLauncher = registerForActivityResult(
+                new ActivityResultContracts.RequestPermission(),
+                granted -> {
+                    LocationReportingService.setEnabled(requireContext(), granted);
+                    if (binding != null) {
+                        binding.switchLocationReporting.setChecked(granted);
+                    }
+                });
+    }
 
     @Override
     public View onCreateView(
@@ -67,11 +87,13 @@ public class HomeFragment extends Fragment {
     private void setupClickListeners() {
         // SOS Button - Navigate to map with SOS mode
         binding.btnSOS.setOnClickListener(v -> {
+            long pressedAt = System.nanoTime();
             animateButtonPress(v);
             
             // Create bundle with SOS flag
             Bundle args = new Bundle();
             args.putBoolean("sos_triggered", true);
+            args.putLong("sos_pressed_at", pressedAt);
             
             NavController navController = NavHostFragment.findNavController(this);
             navController.navigate(R.id.navigation_dashboard, args);
@@ -90,6 +112,16 @@ public class HomeFragment extends Fragment {
             ThemeHelper.toggleTheme(requireContext());
         });
 
+        // Location sharing, off until the user turns it on
+        binding.switchLocationReporting.setChecked(LocationReportingService.isEnabled(requireContext()));
+        binding.switchLocationReporting.setOnCheckedChangeListener((button, checked) -> {
+            if (checked && !LocationReportingService.hasLocationPermission(requireContext())) {
+                locationPermissionLauncher.launch(Manifest.permission.ACCESS_FINE_LOCATION);
+                return;
+            }
+            LocationReportingService.setEnabled(requireContext(), checked);
+        });
+
         // Language Buttons
         binding.btnEN.setOnClickListener(v -> changeLang("en"));
         binding.btnSK.setOnClickListener(v -> changeLang("sk"));
@@ -143,6 +175,13 @@ public class HomeFragment extends Fragment {
         requireActivity().recreate();
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // The SOS button is on screen: have a backend connection ready for it
+        SOSApplication.from(requireContext()).getBackendWarmer().warm();
+    }
+
     @Override
     public void onDestroyView() {
         super.onDestroyView();
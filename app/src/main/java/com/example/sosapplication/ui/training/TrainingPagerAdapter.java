@@ -10,6 +10,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.sosapplication.R;
+import com.example.sosapplication.utils.ImageLoader;
 
 import java.util.List;
 
@@ -37,7 +38,8 @@ public class TrainingPagerAdapter
             @NonNull ViewHolder holder, int position) {
 
         TrainingStep step = steps.get(position);
-        holder.image.setImageResource(step.imageRes);
+        // Decoded off the main thread so swiping never waits for an image
+        ImageLoader.getInstance().load(holder.image, step.imageRes);
         holder.title.setText(step.title);
         holder.description.setText(step.description);
         
@@ -53,6 +55,11 @@ public class TrainingPagerAdapter
         }
     }
 
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        ImageLoader.getInstance().cancel(holder.image);
+    }
+
     @Override
     public int getItemCount() {
         return steps.size();
@@ -0,0 +1,41 @@
+package com.example.sosapplication.utils;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class AssetHelper {
+
+    /**
+     * Memory-map an uncompressed asset, falling back to reading it into the heap.
+     * Returns null if the asset does not exist.
+     */
+    public static ByteBuffer mapAsset(Context context, String name) throws IOException {
+        try (AssetFileDescriptor afd = context.getAssets().openFd(name);
+             FileInputStream in = afd.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                    afd.getStartOffset(), afd.getLength());
+        } catch (FileNotFoundException compressedOrMissing) {
+            // openFd() fails for compressed assets too, so try a plain read
+        }
+
+        try (InputStream in = context.getAssets().open(name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } catch (FileNotFoundException missing) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.sosapplication.utils;
+
+/**
+ * Builds circles of a given radius in meters as closed lat/lon rings.
+ *
+ * Vertices come from a static unit-circle table, so generating a ring costs one cosine
+ * for the centre latitude and a multiply-add per vertex. Output goes into a caller-owned
+ * {@code double[]} laid out as {@code lat0, lon0, lat1, lon1, ...}.
+ */
+public class CircleHelper {
+
+    /** Finest ring; every other vertex count is a power of two dividing it */
+    public static final int MAX_VERTICES = 256;
+    public static final int MIN_VERTICES = 16;
+
+    // Target on-screen length of one ring segment
+    private static final double SEGMENT_PIXELS = 6.0;
+
+    private static final double[] SIN = new double[MAX_VERTICES];
+    private static final double[] COS = new double[MAX_VERTICES];
+
+    static {
+        for (int i = 0; i < MAX_VERTICES; i++) {
+            double angle = 2 * Math.PI * i / MAX_VERTICES;
+            SIN[i] = Math.sin(angle);
+            COS[i] = Math.cos(angle);
+        }
+    }
+
+    /**
+     * Vertex count that keeps segments around {@value #SEGMENT_PIXELS} px long for a ring
+     * drawn with the given on-screen radius
+     */
+    public static int vertexCount(double pixelRadius) {
+        double wanted = 2 * Math.PI * Math.max(0, pixelRadius) / SEGMENT_PIXELS;
+        int vertices = MIN_VERTICES;
+        while (vertices < wanted && vertices < MAX_VERTICES) vertices <<= 1;
+        return vertices;
+    }
+
+    /**
+     * Doubles needed to hold a closed ring of the given vertex count
+     */
+    public static int bufferSize(int vertices) {
+        return 2 * (vertices + 1);
+    }
+
+    /**
+     * Write a closed ring (first vertex repeated at the end) around the centre.
+     *
+     * @param vertices power of two between {@link #MIN_VERTICES} and {@link #MAX_VERTICES},
+     *                 usually from {@link #vertexCount(double)}
+     * @param out      at least {@link #bufferSize(int)} doubles
+     * @return number of points written, {@code vertices + 1}
+     */
+    public static int circle(double centerLat, double centerLon, double radiusMeters,
+                             int vertices, double[] out) {
+        if (vertices < MIN_VERTICES || vertices > MAX_VERTICES || (vertices & (vertices - 1)) != 0) {
+            throw new IllegalArgumentException("Unsupported vertex count: " + vertices);
+        }
+        if (out.length < bufferSize(vertices)) {
+            throw new IllegalArgumentException("Buffer too small for " + vertices + " vertices");
+        }
+
+        // Local tangent plane around the centre; well under a meter off for SOS-sized radii
+        double latRadius = radiusMeters / GeoHelper.METERS_PER_DEGREE;
+        double lonRadius = latRadius / Math.cos(Math.toRadians(centerLat));
+        int stride = MAX_VERTICES / vertices;
+
+        int o = 0;
+        for (int i = 0; i < MAX_VERTICES; i += stride) {
+            out[o++] = centerLat + latRadius * COS[i];
+            out[o++] = centerLon + lonRadius * SIN[i];
+        }
+        out[o++] = out[0];
+        out[o] = out[1];
+        return vertices + 1;
+    }
+}
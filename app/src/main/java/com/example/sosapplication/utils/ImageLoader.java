@@ -0,0 +1,171 @@
+package com.example.sosapplication.utils;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Loads bitmap drawables into image views off the main thread.
+ *
+ * Images are decoded on a background thread at the smallest power-of-two sample size
+ * that still fills the view (centerInside), without density scaling, and kept in an LRU
+ * cache keyed by resource and view size. A view that is rebound before its image is
+ * decoded gets the image of its latest request only. Vector and other non-bitmap
+ * drawables are cheap to inflate and are set directly.
+ *
+ * Call from the main thread.
+ */
+public class ImageLoader {
+
+    private static final String TAG = "ImageLoader";
+
+    private static final long MAX_BUDGET_BYTES = 16L * 1024 * 1024;
+
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor();
+
+    private static ImageLoader instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final LruCache<String, Bitmap> cache;
+    private final Set<Integer> notBitmaps = ConcurrentHashMap.newKeySet();
+    // Latest request per view; main thread only
+    private final Map<ImageView, String> requests = new WeakHashMap<>();
+
+    public static synchronized ImageLoader getInstance() {
+        if (instance == null) {
+            // An eighth of the heap, as for other caches of decoded images
+            long budget = Math.min(Runtime.getRuntime().maxMemory() / 8, MAX_BUDGET_BYTES);
+            instance = new ImageLoader((int) budget);
+        }
+        return instance;
+    }
+
+    ImageLoader(int budgetBytes) {
+        cache = new LruCache<String, Bitmap>(budgetBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Show the drawable in the view, decoded to the view's size once it is laid out
+     */
+    public void load(ImageView view, @DrawableRes int resId) {
+        if (notBitmaps.contains(resId)) {
+            requests.remove(view);
+            view.setImageResource(resId);
+            return;
+        }
+
+        int width = view.getWidth() - view.getPaddingLeft() - view.getPaddingRight();
+        int height = view.getHeight() - view.getPaddingTop() - view.getPaddingBottom();
+        if (width <= 0 || height <= 0) {
+            // Freshly inflated page; its size is known after the next layout
+            String pending = "pending:" + resId;
+            requests.put(view, pending);
+            view.setImageDrawable(null);
+            view.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+                @Override
+                public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                    v.removeOnLayoutChangeListener(this);
+                    if (pending.equals(requests.get(view)) && v.getWidth() > 0 && v.getHeight() > 0) {
+                        load(view, resId);
+                    }
+                }
+            });
+            return;
+        }
+
+        String key = resId + "@" + width + "x" + height;
+        requests.put(view, key);
+        Bitmap cached = cache.get(key);
+        if (cached != null) {
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        // Do not show the previous page's image while decoding
+        view.setImageDrawable(null);
+        Resources res = view.getResources();
+        DECODER.execute(() -> {
+            Bitmap bitmap = cache.get(key);
+            if (bitmap == null) {
+                try {
+                    bitmap = decode(res, resId, width, height);
+                } catch (OutOfMemoryError e) {
+                    // Leave the view empty; the next bind tries again with an emptied cache
+                    Log.w(TAG, "Out of memory decoding " + key, e);
+                    cache.evictAll();
+                    return;
+                }
+            }
+            if (bitmap != null) {
+                cache.put(key, bitmap);
+            } else {
+                notBitmaps.add(resId);
+            }
+            Bitmap result = bitmap;
+            mainHandler.post(() -> {
+                if (!key.equals(requests.get(view))) return;
+                requests.remove(view);
+                if (result != null) {
+                    view.setImageBitmap(result);
+                } else {
+                    view.setImageResource(resId);
+                }
+            });
+        });
+    }
+
+    /** Forget a view's pending request, e.g. when its page is recycled */
+    public void cancel(ImageView view) {
+        requests.remove(view);
+    }
+
+    /** Null if the resource is not a bitmap */
+    private static Bitmap decode(Resources res, int resId, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        // The density bucket already picked the right resolution; do not scale it again
+        options.inScaled = false;
+        BitmapFactory.decodeResource(res, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, width, height);
+        return BitmapFactory.decodeResource(res, resId, options);
+    }
+
+    /**
+     * Largest power of two to subsample an image by so that, scaled to fit inside the
+     * requested size, it is still not enlarged
+     */
+    static int sampleSize(int width, int height, int reqWidth, int reqHeight) {
+        double fit = Math.min((double) reqWidth / width, (double) reqHeight / height);
+        int size = 1;
+        while (size * 2 * fit <= 1) {
+            size *= 2;
+        }
+        return size;
+    }
+}
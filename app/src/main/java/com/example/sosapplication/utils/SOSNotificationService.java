@@ -6,11 +6,10 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.example.sosapplication.SOSApplication;
+import com.example.sosapplication.network.PayloadBuffer;
 
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
 
 import okhttp3.Call;
 import okhttp3.Callback;
@@ -29,6 +28,7 @@ public class SOSNotificationService {
 
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     private static final int RADIUS_METERS = 200;
+    private static final byte[] STATIC_FIELDS = buildStaticFields();
 
     private final Context context;
     private final OkHttpClient client;
@@ -36,10 +36,7 @@ public class SOSNotificationService {
 
     public SOSNotificationService(Context context) {
         this.context = context;
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .readTimeout(30, TimeUnit.SECONDS)
-                .build();
+        this.client = SOSApplication.from(context).getHttpClient();
         this.mainHandler = new Handler(Looper.getMainLooper());
     }
 
@@ -51,11 +48,13 @@ public class SOSNotificationService {
         }
 
         try {
-            JSONObject payload = buildNotificationPayload(location);
+            PayloadBuffer payload = new PayloadBuffer(STATIC_FIELDS.length + 160);
+            buildNotificationPayload(payload, location.getLatitude(), location.getLongitude(),
+                    System.currentTimeMillis());
 
             Log.d(TAG, "Sending SOS alert to users within " + RADIUS_METERS + "m");
 
-            RequestBody body = RequestBody.create(payload.toString(), JSON);
+            RequestBody body = payload.toRequestBody(JSON);
 
             Request request = new Request.Builder()
                     .url(ONESIGNAL_API_URL)
@@ -91,42 +90,48 @@ public class SOSNotificationService {
         }
     }
 
-    private JSONObject buildNotificationPayload(Location location) throws Exception {
-        JSONObject payload = new JSONObject();
-
-        payload.put("app_id", ONESIGNAL_APP_ID);
-
-        JSONArray filters = new JSONArray();
-        JSONObject locationFilter = new JSONObject();
-        locationFilter.put("field", "location");
-        locationFilter.put("radius", RADIUS_METERS);
-        locationFilter.put("lat", location.getLatitude());
-        locationFilter.put("long", location.getLongitude());
-        filters.put(locationFilter);
-        payload.put("filters", filters);
-
-        JSONObject headings = new JSONObject();
-        headings.put("en", "🚨 SOS Alert Nearby!");
-        headings.put("sk", "🚨 SOS Výstraha v blízkosti!");
-        headings.put("uk", "🚨 SOS Сигнал поруч!");
-        payload.put("headings", headings);
-
-        JSONObject contents = new JSONObject();
-        contents.put("en", "Someone nearby needs help! Tap to see location.");
-        contents.put("sk", "Niekto v blízkosti potrebuje pomoc!");
-        contents.put("uk", "Комусь поруч потрібна допомога!");
-        payload.put("contents", contents);
-
-        JSONObject data = new JSONObject();
-        data.put("type", "SOS_ALERT");
-        data.put("sender_lat", location.getLatitude());
-        data.put("sender_long", location.getLongitude());
-        data.put("timestamp", System.currentTimeMillis());
-        payload.put("data", data);
-
-        payload.put("priority", 10);
-
-        return payload;
+    /**
+     * Everything but the filters and the data, identical for every alert; the headings and
+     * contents in three languages make up most of the payload, so they are encoded once
+     */
+    private static byte[] buildStaticFields() {
+        PayloadBuffer out = new PayloadBuffer(512);
+        out.writeAscii("\"app_id\":");
+        out.writeJsonString(ONESIGNAL_APP_ID);
+        out.writeAscii(",\"headings\":{\"en\":");
+        out.writeJsonString("🚨 SOS Alert Nearby!");
+        out.writeAscii(",\"sk\":");
+        out.writeJsonString("🚨 SOS Výstraha v blízkosti!");
+        out.writeAscii(",\"uk\":");
+        out.writeJsonString("🚨 SOS Сигнал поруч!");
+        out.writeAscii("},\"contents\":{\"en\":");
+        out.writeJsonString("Someone nearby needs help! Tap to see location.");
+        out.writeAscii(",\"sk\":");
+        out.writeJsonString("Niekto v blízkosti potrebuje pomoc!");
+        out.writeAscii(",\"uk\":");
+        out.writeJsonString("Комусь поруч потрібна допомога!");
+        out.writeAscii("},\"priority\":10");
+        return out.toByteArray();
+    }
+
+    // OneSignal only takes JSON; the per-alert part is written around the prebuilt fields
+    static void buildNotificationPayload(PayloadBuffer out, double lat, double lon, long timestamp) {
+        out.reset();
+        out.write('{');
+        out.write(STATIC_FIELDS, 0, STATIC_FIELDS.length);
+        out.writeAscii(",\"filters\":[{\"field\":\"location\",\"radius\":");
+        out.writeJsonNumber(RADIUS_METERS);
+        out.writeAscii(",\"lat\":");
+        out.writeJsonNumber(lat);
+        out.writeAscii(",\"long\":");
+        out.writeJsonNumber(lon);
+        out.writeAscii("}],\"data\":{\"type\":\"SOS_ALERT\",\"sender_lat\":");
+        out.writeJsonNumber(lat);
+        out.writeAscii(",\"sender_long\":");
+        out.writeJsonNumber(lon);
+        out.writeAscii(",\"timestamp\":");
+        out.writeJsonNumber(timestamp);
+        out.writeAscii("}}");
     }
 
     public interface SOSCallback {
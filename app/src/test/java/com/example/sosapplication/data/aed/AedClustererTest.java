@@ -0,0 +1,66 @@
+package com.example.sosapplication.data.aed;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AedClustererTest {
+
+    @Test
+    public void everyLevel_accountsForAllPoints() {
+        double[][] points = AedSpatialIndexTest.randomPoints(1000, 5);
+        AedClusterer clusterer = new AedClusterer(new AedSpatialIndex(points[0], points[1]), 64);
+
+        int previousSize = Integer.MAX_VALUE;
+        for (int zoom = AedClusterer.MAX_CLUSTER_ZOOM; zoom >= 0; zoom--) {
+            AedClusterer.Level level = clusterer.clusters(zoom);
+            int total = 0;
+            for (int c = 0; c < level.size; c++) {
+                total += level.count[c];
+            }
+            assertEquals(1000, total);
+            assertTrue(level.size <= previousSize);
+            previousSize = level.size;
+        }
+        // The whole country fits in one 64px cell at world zoom
+        assertEquals(1, clusterer.clusters(0).size);
+    }
+
+    @Test
+    public void mergedLevel_matchesLevelBuiltFromPoints() {
+        double[][] points = AedSpatialIndexTest.randomPoints(500, 9);
+        AedSpatialIndex index = new AedSpatialIndex(points[0], points[1]);
+
+        // Zoom 10 is derived by merging down from MAX_CLUSTER_ZOOM; compare it
+        // against bucketing every point directly at zoom 10
+        AedClusterer.Level level = new AedClusterer(index, 64).clusters(10);
+        double cells = 256.0 / 64 * (1 << 10);
+        for (int c = 0; c < level.size; c++) {
+            double sumLat = 0, sumLon = 0;
+            int count = 0;
+            for (int i = 0; i < index.size(); i++) {
+                int cx = (int) Math.floor(AedClusterer.mercatorX(index.longitude(i)) * cells);
+                int cy = (int) Math.floor(AedClusterer.mercatorY(index.latitude(i)) * cells);
+                if (cx == level.cellX[c] && cy == level.cellY[c]) {
+                    sumLat += index.latitude(i);
+                    sumLon += index.longitude(i);
+                    count++;
+                }
+            }
+            assertEquals(count, level.count[c]);
+            assertEquals(sumLat / count, level.latitude[c], 1e-9);
+            assertEquals(sumLon / count, level.longitude[c], 1e-9);
+        }
+    }
+
+    @Test
+    public void singleCluster_pointsAtItsOnlyMember() {
+        AedSpatialIndex index = new AedSpatialIndex(new double[]{48.14, 49.0}, new double[]{17.10, 21.0});
+        AedClusterer.Level level = new AedClusterer(index, 64).clusters(AedClusterer.MAX_CLUSTER_ZOOM);
+        assertEquals(2, level.size);
+        for (int c = 0; c < level.size; c++) {
+            assertEquals(1, level.count[c]);
+            assertEquals(index.latitude(level.firstPoint[c]), level.latitude[c], 1e-12);
+        }
+    }
+}
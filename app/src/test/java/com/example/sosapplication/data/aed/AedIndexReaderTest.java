@@ -0,0 +1,185 @@
+package com.example.sosapplication.data.aed;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AedIndexReaderTest {
+
+    private static final long[] IDS = {101, 202, 3_000_000_000L};
+    private static final double[] LAT = {48.1485965, 49.2234, 47.7312};
+    private static final double[] LON = {17.1077478, 18.7394, 22.5657};
+
+    /**
+     * An index in the layout compileAedIndex writes (see app/build.gradle.kts), with a
+     * table per language of {location, access, opening hours} per AED
+     */
+    private static ByteBuffer index(String[] languages, String[][][] tables) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(AedIndexReader.MAGIC);
+        out.writeInt(AedIndexReader.VERSION);
+        out.writeInt(IDS.length);
+        for (long id : IDS) out.writeLong(id);
+        for (double lat : LAT) out.writeInt((int) Math.round(lat * 1e7));
+        for (double lon : LON) out.writeInt((int) Math.round(lon * 1e7));
+
+        out.writeInt(languages.length);
+        for (int l = 0; l < languages.length; l++) {
+            List<String> strings = new ArrayList<>();
+            int[][] columns = new int[3][IDS.length];
+            for (int i = 0; i < IDS.length; i++) {
+                for (int c = 0; c < 3; c++) {
+                    String value = tables[l][i][c];
+                    if (!strings.contains(value)) strings.add(value);
+                    columns[c][i] = strings.indexOf(value);
+                }
+            }
+
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            DataOutputStream table = new DataOutputStream(block);
+            table.writeInt(strings.size());
+            for (String value : strings) {
+                writeString(table, value);
+            }
+            for (int[] column : columns) {
+                for (int value : column) table.writeShort(value);
+            }
+
+            writeString(out, languages[l]);
+            out.writeInt(block.size());
+            block.writeTo(out);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    private static final String[][] ENGLISH = {
+            {"Entrance hall", "yes", "24/7"},
+            {"Pharmacy", "customers", "Mo-Fr 08:00-18:00"},
+            {"Entrance hall", "yes", "24/7"},
+    };
+    private static final String[][] SLOVAK = {
+            {"Vstupná hala", "yes", "24/7"},
+            {"Lekáreň", "customers", "Po-Pi 08:00-18:00"},
+            {"Vstupná hala", "yes", "24/7"},
+    };
+
+    @Test
+    public void read_returnsTheRequestedLanguage() throws IOException {
+        ByteBuffer buffer = index(new String[]{"en", "sk"}, new String[][][]{ENGLISH, SLOVAK});
+
+        List<AedRecord> aeds = AedIndexReader.read(buffer, "sk");
+        assertEquals(IDS.length, aeds.size());
+        for (int i = 0; i < IDS.length; i++) {
+            AedRecord aed = aeds.get(i);
+            assertEquals(IDS[i], aed.osmId);
+            assertEquals(LAT[i], aed.latitude, 1e-7);
+            assertEquals(LON[i], aed.longitude, 1e-7);
+            assertEquals(SLOVAK[i][0], aed.location);
+            assertEquals(SLOVAK[i][1], aed.access);
+            assertEquals(SLOVAK[i][2], aed.openingHours);
+        }
+        // Reading does not move the caller's buffer
+        assertEquals(0, buffer.position());
+        assertEquals("Entrance hall", AedIndexReader.read(buffer, "en").get(0).location);
+    }
+
+    @Test
+    public void read_unknownLanguage_fallsBackToTheFirstTable() throws IOException {
+        ByteBuffer buffer = index(new String[]{"en", "sk"}, new String[][][]{ENGLISH, SLOVAK});
+
+        List<AedRecord> aeds = AedIndexReader.read(buffer, "uk");
+        assertEquals(IDS.length, aeds.size());
+        assertEquals(ENGLISH[1][0], aeds.get(1).location);
+        assertEquals(ENGLISH[1][2], aeds.get(1).openingHours);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws IOException {
+        AedIndexReader.read(ByteBuffer.wrap("{\"type\":\"FeatureCollection\"}".getBytes(StandardCharsets.UTF_8)), "en");
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsAnIndexWithoutLanguageTables() throws IOException {
+        AedIndexReader.read(index(new String[0], new String[0][][]), "en");
+    }
+
+    /**
+     * The index compileAedIndex built from src/main/geojson; the Gradle test tasks pass
+     * its directory in the aed.indexDir system property
+     */
+    @Test
+    public void compiledIndex_matchesItsGeoJson() throws IOException {
+        String indexDir = System.getProperty("aed.indexDir");
+        Assume.assumeNotNull(indexDir);
+        ByteBuffer index = ByteBuffer.wrap(Files.readAllBytes(new File(indexDir, "aed/SK.aedx").toPath()));
+
+        List<JsonObject> features = features(new File("src/main/geojson/SK.geojson"));
+        Map<Long, JsonObject> slovak = new HashMap<>();
+        for (JsonObject feature : features(new File("src/main/geojson/SK_sk.geojson"))) {
+            slovak.put(osmId(feature), feature.getAsJsonObject("properties"));
+        }
+
+        List<AedRecord> aeds = AedIndexReader.read(index, "sk");
+        assertEquals(features.size(), aeds.size());
+        for (int i = 0; i < aeds.size(); i++) {
+            JsonObject feature = features.get(i);
+            AedRecord aed = aeds.get(i);
+            assertEquals(osmId(feature), aed.osmId);
+            JsonElement coordinates = feature.getAsJsonObject("geometry").get("coordinates");
+            assertEquals(coordinates.getAsJsonArray().get(1).getAsDouble(), aed.latitude, 1e-7);
+            assertEquals(coordinates.getAsJsonArray().get(0).getAsDouble(), aed.longitude, 1e-7);
+
+            JsonObject properties = slovak.getOrDefault(aed.osmId, feature.getAsJsonObject("properties"));
+            assertEquals(string(properties, "defibrillator:location", "AED"), aed.location);
+            assertEquals(string(properties, "access", "-"), aed.access);
+            assertEquals(string(properties, "opening_hours", "-"), aed.openingHours);
+        }
+    }
+
+    private static List<JsonObject> features(File file) throws IOException {
+        List<JsonObject> points = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            for (JsonElement element : JsonParser.parseReader(reader).getAsJsonObject().getAsJsonArray("features")) {
+                JsonObject feature = element.getAsJsonObject();
+                if ("Point".equals(feature.getAsJsonObject("geometry").get("type").getAsString())) {
+                    points.add(feature);
+                }
+            }
+        }
+        return points;
+    }
+
+    private static long osmId(JsonObject feature) {
+        return feature.getAsJsonObject("properties").get("@osm_id").getAsLong();
+    }
+
+    private static String string(JsonObject properties, String key, String fallback) {
+        JsonElement value = properties.get(key);
+        return value == null || value.isJsonNull() ? fallback : value.getAsString();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.sosapplication.data.aed;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Micro-benchmark of the grid index against the linear scan the map used to do.
+ * Prints per-query timings; not part of the unit tests, run it with
+ * {@code ./gradlew :app:benchmarkUnitTest}.
+ */
+public class AedSpatialIndexBenchmark {
+
+    private static final int POINTS = 5_000;
+    private static final int QUERIES = 2_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void viewportAndNearestQueries() {
+        double[][] points = AedSpatialIndexTest.randomPoints(POINTS, 1);
+        double[] lat = points[0];
+        double[] lon = points[1];
+        AedSpatialIndex index = new AedSpatialIndex(lat, lon);
+
+        Random random = new Random(3);
+        double[] qLat = new double[QUERIES];
+        double[] qLon = new double[QUERIES];
+        for (int q = 0; q < QUERIES; q++) {
+            qLat[q] = AedSpatialIndexTest.SOUTH
+                    + random.nextDouble() * (AedSpatialIndexTest.NORTH - AedSpatialIndexTest.SOUTH);
+            qLon[q] = AedSpatialIndexTest.WEST
+                    + random.nextDouble() * (AedSpatialIndexTest.EAST - AedSpatialIndexTest.WEST);
+        }
+
+        // City-sized viewport, roughly Bratislava at zoom 13
+        double halfLat = 0.05, halfLon = 0.08;
+        long linearNanos = Long.MAX_VALUE, indexNanos = Long.MAX_VALUE;
+        long linearHits = 0, indexHits = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            linearHits = 0;
+            for (int q = 0; q < QUERIES; q++) {
+                for (int i = 0; i < POINTS; i++) {
+                    if (lat[i] >= qLat[q] - halfLat && lat[i] <= qLat[q] + halfLat
+                            && lon[i] >= qLon[q] - halfLon && lon[i] <= qLon[q] + halfLon) {
+                        linearHits++;
+                    }
+                }
+            }
+            linearNanos = Math.min(linearNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            long[] hits = {0};
+            for (int q = 0; q < QUERIES; q++) {
+                index.forEachInBox(qLat[q] - halfLat, qLon[q] - halfLon,
+                        qLat[q] + halfLat, qLon[q] + halfLon, i -> hits[0]++);
+            }
+            indexHits = hits[0];
+            indexNanos = Math.min(indexNanos, System.nanoTime() - start);
+        }
+        assertEquals(linearHits, indexHits);
+        report("viewport", linearNanos, indexNanos);
+
+        int k = 3;
+        int[] indices = new int[k];
+        double[] best = new double[k];
+        linearNanos = Long.MAX_VALUE;
+        indexNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                Arrays.fill(best, Double.MAX_VALUE);
+                double cos = Math.cos(Math.toRadians(qLat[q]));
+                for (int i = 0; i < POINTS; i++) {
+                    double dx = (lon[i] - qLon[q]) * cos;
+                    double dy = lat[i] - qLat[q];
+                    double d = dx * dx + dy * dy;
+                    if (d < best[k - 1]) {
+                        int j = k - 1;
+                        while (j > 0 && best[j - 1] > d) {
+                            best[j] = best[j - 1];
+                            j--;
+                        }
+                        best[j] = d;
+                    }
+                }
+            }
+            linearNanos = Math.min(linearNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int q = 0; q < QUERIES; q++) {
+                index.nearest(qLat[q], qLon[q], k, indices, null);
+            }
+            indexNanos = Math.min(indexNanos, System.nanoTime() - start);
+        }
+        report("nearest-" + k, linearNanos, indexNanos);
+    }
+
+    private static void report(String name, long linearNanos, long indexNanos) {
+        System.out.printf("%-10s linear %8.2f us/query, index %8.2f us/query (%.1fx)%n", name,
+                linearNanos / 1000.0 / QUERIES, indexNanos / 1000.0 / QUERIES,
+                (double) linearNanos / indexNanos);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.sosapplication.data.aed;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AedSpatialIndexTest {
+
+    // Slovakia bounding box, as used by the map
+    static final double NORTH = 49.6138, SOUTH = 47.7312, EAST = 22.5657, WEST = 16.8332;
+
+    private double[] lat;
+    private double[] lon;
+    private AedSpatialIndex index;
+
+    static double[][] randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            lat[i] = SOUTH + random.nextDouble() * (NORTH - SOUTH);
+            lon[i] = WEST + random.nextDouble() * (EAST - WEST);
+        }
+        return new double[][]{lat, lon};
+    }
+
+    @Before
+    public void setUp() {
+        double[][] points = randomPoints(2000, 42);
+        lat = points[0];
+        lon = points[1];
+        index = new AedSpatialIndex(lat, lon);
+    }
+
+    @Test
+    public void boxQuery_matchesLinearScan() {
+        Random random = new Random(7);
+        for (int q = 0; q < 200; q++) {
+            double south = SOUTH + random.nextDouble() * (NORTH - SOUTH);
+            double west = WEST + random.nextDouble() * (EAST - WEST);
+            double north = south + random.nextDouble() * 0.5;
+            double east = west + random.nextDouble() * 0.8;
+
+            int[] expected = linearBox(south, west, north, east);
+            assertArrayEquals(expected, index.query(south, west, north, east));
+        }
+    }
+
+    @Test
+    public void boxQuery_coveringEverything_returnsAllPoints() {
+        assertEquals(lat.length, index.query(-90, -180, 90, 180).length);
+    }
+
+    @Test
+    public void nearest_matchesLinearScan() {
+        Random random = new Random(11);
+        int k = 5;
+        int[] indices = new int[k];
+        double[] meters = new double[k];
+        for (int q = 0; q < 200; q++) {
+            double qLat = SOUTH + random.nextDouble() * (NORTH - SOUTH);
+            double qLon = WEST + random.nextDouble() * (EAST - WEST);
+
+            assertEquals(k, index.nearest(qLat, qLon, k, indices, meters));
+            double[] expected = linearNearestMeters(qLat, qLon, k);
+            for (int j = 0; j < k; j++) {
+                assertEquals(expected[j], meters[j], 1.0);
+            }
+        }
+    }
+
+    @Test
+    public void nearest_queryOutsideGrid_stillFindsClosest() {
+        int[] indices = new int[1];
+        double[] meters = new double[1];
+        assertEquals(1, index.nearest(50.5, 15.0, 1, indices, meters));
+        assertEquals(linearNearestMeters(50.5, 15.0, 1)[0], meters[0], 1.0);
+    }
+
+    @Test
+    public void nearest_kLargerThanSize_returnsAll() {
+        AedSpatialIndex small = new AedSpatialIndex(
+                new double[]{48.14, 48.15, 48.16}, new double[]{17.10, 17.11, 17.12});
+        int[] indices = new int[10];
+        assertEquals(3, small.nearest(48.141, 17.101, 10, indices, null));
+        assertEquals(0, indices[0]);
+        assertEquals(1, indices[1]);
+        assertEquals(2, indices[2]);
+    }
+
+    @Test
+    public void emptyIndex_returnsNothing() {
+        AedSpatialIndex empty = new AedSpatialIndex(new double[0], new double[0]);
+        assertEquals(0, empty.query(SOUTH, WEST, NORTH, EAST).length);
+        assertEquals(0, empty.nearest(48.1, 17.1, 3, new int[3], new double[3]));
+    }
+
+    private int[] linearBox(double south, double west, double north, double east) {
+        int[] out = new int[lat.length];
+        int n = 0;
+        for (int i = 0; i < lat.length; i++) {
+            if (lat[i] >= south && lat[i] <= north && lon[i] >= west && lon[i] <= east) {
+                out[n++] = i;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private double[] linearNearestMeters(double qLat, double qLon, int k) {
+        double[] all = new double[lat.length];
+        for (int i = 0; i < lat.length; i++) {
+            all[i] = GeoHelper.distanceMeters(qLat, qLon, lat[i], lon[i]);
+        }
+        Arrays.sort(all);
+        return Arrays.copyOf(all, k);
+    }
+}
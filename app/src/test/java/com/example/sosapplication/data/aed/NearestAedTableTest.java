@@ -0,0 +1,116 @@
+package com.example.sosapplication.data.aed;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NearestAedTableTest {
+
+    @Test
+    public void nearest_matchesBruteForce() {
+        double[][] points = AedSpatialIndexTest.randomPoints(525, 21);
+        NearestAedTable table = new NearestAedTable(new AedSpatialIndex(points[0], points[1]), 3);
+
+        Random random = new Random(4);
+        int[] indices = new int[3];
+        double[] meters = new double[3];
+        for (int q = 0; q < 2000; q++) {
+            // Include queries in the margin around the data and outside the table
+            double lat = AedSpatialIndexTest.SOUTH - 1 + random.nextDouble() * (AedSpatialIndexTest.NORTH - AedSpatialIndexTest.SOUTH + 2);
+            double lon = AedSpatialIndexTest.WEST - 1 + random.nextDouble() * (AedSpatialIndexTest.EAST - AedSpatialIndexTest.WEST + 2);
+
+            assertEquals(3, table.nearest(lat, lon, indices, meters));
+            double[] expected = new double[points[0].length];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = GeoHelper.distanceMeters(lat, lon, points[0][i], points[1][i]);
+            }
+            Arrays.sort(expected);
+            for (int j = 0; j < 3; j++) {
+                assertEquals(expected[j], meters[j], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void nearest_inDenseSouthernTown_matchesBruteForce() {
+        // A town on the southern border a few hundred metres between AEDs, and a few
+        // AEDs up north so the grid spans the whole country
+        Random random = new Random(9);
+        int n = 400;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int i = 0; i < n; i++) {
+            if (i < 4) {
+                lat[i] = AedSpatialIndexTest.NORTH;
+                lon[i] = AedSpatialIndexTest.WEST + i * 1.5;
+            } else {
+                lat[i] = 47.74 + random.nextDouble() * 0.05;
+                lon[i] = 18.10 + random.nextDouble() * 0.08;
+            }
+        }
+        NearestAedTable table = new NearestAedTable(new AedSpatialIndex(lat, lon), 3);
+
+        int[] indices = new int[3];
+        double[] meters = new double[3];
+        for (int q = 0; q < 5000; q++) {
+            double qLat = 47.73 + random.nextDouble() * 0.07;
+            double qLon = 18.08 + random.nextDouble() * 0.12;
+
+            assertEquals(3, table.nearest(qLat, qLon, indices, meters));
+            double[] expected = new double[n];
+            for (int i = 0; i < n; i++) {
+                expected[i] = GeoHelper.distanceMeters(qLat, qLon, lat[i], lon[i]);
+            }
+            Arrays.sort(expected);
+            for (int j = 0; j < 3; j++) {
+                assertEquals(expected[j], meters[j], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public void nearest_atSouthernCellCorner_findsAedJustInsideTheBound() {
+        // Two AEDs span the grid over Slovakia; the cell and its corner follow the
+        // layout NearestAedTable builds for that extent
+        double south = AedSpatialIndexTest.SOUTH - 0.5, north = AedSpatialIndexTest.NORTH + 0.5;
+        double west = AedSpatialIndexTest.WEST - 0.5, east = AedSpatialIndexTest.EAST + 0.5;
+        double ky = GeoHelper.METERS_PER_DEGREE;
+        double kx = ky * Math.cos(Math.toRadians(south));
+        int rows = (int) Math.ceil((north - south) * ky / 2000);
+        int cols = (int) Math.ceil((east - west) * kx / 2000);
+        double cellLat = (north - south) / rows, cellLon = (east - west) / cols;
+        int r = (int) ((47.8 - south) / cellLat), c = (int) ((18.1 - west) / cellLon);
+        double centerLat = south + (r + 0.5) * cellLat, centerLon = west + (c + 0.5) * cellLon;
+        double cornerLat = centerLat - cellLat / 2 + 1e-7, cornerLon = centerLon - cellLon / 2 + 1e-7;
+
+        // A 20 m from the center away from the corner, B on the far side of the corner
+        // just 5 m nearer to it than A: B is the corner's nearest AED
+        double toCorner = GeoHelper.distanceMeters(centerLat, centerLon, cornerLat, cornerLon);
+        double a = -20 / toCorner, b = (2 * toCorner + 20 - 5) / toCorner;
+        double[] lat = {AedSpatialIndexTest.NORTH, AedSpatialIndexTest.SOUTH,
+                centerLat + a * (cornerLat - centerLat), centerLat + b * (cornerLat - centerLat)};
+        double[] lon = {AedSpatialIndexTest.WEST, AedSpatialIndexTest.EAST,
+                centerLon + a * (cornerLon - centerLon), centerLon + b * (cornerLon - centerLon)};
+        NearestAedTable table = new NearestAedTable(new AedSpatialIndex(lat, lon), 1);
+
+        int[] indices = new int[1];
+        double[] meters = new double[1];
+        assertEquals(1, table.nearest(cornerLat, cornerLon, indices, meters));
+        assertEquals(3, indices[0]);
+    }
+
+    @Test
+    public void nearest_withFewerAedsThanResults() {
+        NearestAedTable table = new NearestAedTable(
+                new AedSpatialIndex(new double[]{48.1486}, new double[]{17.1077}), 3);
+        int[] indices = new int[3];
+        double[] meters = new double[3];
+        assertEquals(1, table.nearest(48.15, 17.11, indices, meters));
+        assertEquals(0, indices[0]);
+    }
+}
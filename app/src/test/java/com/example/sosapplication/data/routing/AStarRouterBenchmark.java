@@ -0,0 +1,40 @@
+package com.example.sosapplication.data.routing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Time of one on-device route to a nearby AED on a city-sized street grid.
+ * Prints the timing; not part of the unit tests, run it with
+ * {@code ./gradlew :app:benchmarkUnitTest}.
+ */
+public class AStarRouterBenchmark {
+
+    private static final int SIDE = 300;
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void routeToNearbyAed() {
+        RoadGraph graph = AStarRouterTest.gridGraph(SIDE, 5);
+        AStarRouter router = new AStarRouter(graph);
+        // Walk of roughly 2 km from the middle of a 90k-node city graph
+        int from = (SIDE / 2) * SIDE + SIDE / 2;
+        int to = from + 12 * SIDE + 8;
+        for (int i = 0; i < ROUNDS; i++) {
+            router.route(from, to); // warm-up
+        }
+
+        long bestNanos = Long.MAX_VALUE;
+        Route route = null;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            route = router.route(from, to);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        assertNotNull(route);
+
+        System.out.printf("A* over %d nodes: %d us, %d settled, %d m%n", graph.nodeCount(),
+                bestNanos / 1000, router.lastVisitedCount(), Math.round(route.lengthMeters));
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.sosapplication.data.routing;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AStarRouterTest {
+
+    /**
+     * Street grid around Bratislava's old town: side x side intersections ~100 m apart,
+     * two-way streets with a random detour factor, and a few streets removed.
+     */
+    static RoadGraph gridGraph(int side, long seed) {
+        Random random = new Random(seed);
+        int n = side * side;
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                lat[r * side + c] = 48.14 + r * 0.0009;
+                lon[r * side + c] = 17.10 + c * 0.00135;
+            }
+        }
+
+        int[][] neighbours = new int[n][];
+        float[][] lengths = new float[n][];
+        for (int i = 0; i < n; i++) {
+            neighbours[i] = new int[0];
+            lengths[i] = new float[0];
+        }
+        for (int r = 0; r < side; r++) {
+            for (int c = 0; c < side; c++) {
+                int i = r * side + c;
+                if (c + 1 < side && random.nextInt(10) > 0) link(neighbours, lengths, lat, lon, i, i + 1, random);
+                if (r + 1 < side && random.nextInt(10) > 0) link(neighbours, lengths, lat, lon, i, i + side, random);
+            }
+        }
+
+        int[] firstEdge = new int[n + 1];
+        for (int i = 0; i < n; i++) firstEdge[i + 1] = firstEdge[i] + neighbours[i].length;
+        int[] target = new int[firstEdge[n]];
+        float[] length = new float[firstEdge[n]];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(neighbours[i], 0, target, firstEdge[i], neighbours[i].length);
+            System.arraycopy(lengths[i], 0, length, firstEdge[i], lengths[i].length);
+        }
+        return new RoadGraph(lat, lon, firstEdge, target, length);
+    }
+
+    private static void link(int[][] neighbours, float[][] lengths, double[] lat, double[] lon,
+                             int a, int b, Random random) {
+        float meters = (float) (GeoHelper.distanceMeters(lat[a], lon[a], lat[b], lon[b])
+                * (1 + random.nextDouble() * 0.5));
+        for (int[] pair : new int[][]{{a, b}, {b, a}}) {
+            int from = pair[0];
+            neighbours[from] = Arrays.copyOf(neighbours[from], neighbours[from].length + 1);
+            lengths[from] = Arrays.copyOf(lengths[from], lengths[from].length + 1);
+            neighbours[from][neighbours[from].length - 1] = pair[1];
+            lengths[from][lengths[from].length - 1] = meters;
+        }
+    }
+
+    /** Plain O(n^2) Dijkstra as the reference */
+    private static double dijkstra(RoadGraph graph, int from, int to) {
+        int n = graph.nodeCount();
+        double[] dist = new double[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[from] = 0;
+        for (int step = 0; step < n; step++) {
+            int best = -1;
+            for (int i = 0; i < n; i++) {
+                if (!done[i] && (best < 0 || dist[i] < dist[best])) best = i;
+            }
+            if (best < 0 || dist[best] == Double.POSITIVE_INFINITY) break;
+            done[best] = true;
+            for (int e = graph.firstEdge[best]; e < graph.firstEdge[best + 1]; e++) {
+                dist[graph.edgeTarget[e]] = Math.min(dist[graph.edgeTarget[e]], dist[best] + graph.edgeLength[e]);
+            }
+        }
+        return dist[to];
+    }
+
+    @Test
+    public void route_matchesDijkstra() {
+        RoadGraph graph = gridGraph(20, 1);
+        AStarRouter router = new AStarRouter(graph);
+        Random random = new Random(2);
+        for (int q = 0; q < 50; q++) {
+            int from = random.nextInt(graph.nodeCount());
+            int to = random.nextInt(graph.nodeCount());
+            double expected = dijkstra(graph, from, to);
+            Route route = router.route(from, to);
+            if (expected == Double.POSITIVE_INFINITY) {
+                assertNull(route);
+            } else {
+                assertNotNull(route);
+                assertEquals(expected, route.lengthMeters, 1e-3);
+                assertEquals(graph.latitude(from), route.latitudes[0], 0);
+                assertEquals(graph.latitude(to), route.latitudes[route.size() - 1], 0);
+            }
+        }
+    }
+
+    @Test
+    public void route_unreachableTarget_returnsNull() {
+        RoadGraph graph = new RoadGraph(
+                new double[]{48.14, 48.15, 48.16}, new double[]{17.10, 17.10, 17.10},
+                new int[]{0, 1, 2, 2}, new int[]{1, 0}, new float[]{1100f, 1100f});
+        assertNull(new AStarRouter(graph).route(0, 2));
+        assertNotNull(new AStarRouter(graph).route(0, 1));
+    }
+
+    @Test
+    public void read_roundTripsWrittenGraph() throws IOException {
+        RoadGraph graph = gridGraph(5, 3);
+        RoadGraph read = RoadGraph.read(ByteBuffer.wrap(write(graph)));
+
+        assertEquals(graph.nodeCount(), read.nodeCount());
+        assertEquals(graph.edgeCount(), read.edgeCount());
+        assertArrayEquals(graph.firstEdge, read.firstEdge);
+        assertArrayEquals(graph.edgeTarget, read.edgeTarget);
+        assertEquals(graph.latitude(7), read.latitude(7), 1e-7);
+        assertEquals(graph.longitude(7), read.longitude(7), 1e-7);
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws IOException {
+        RoadGraph.read(ByteBuffer.wrap(new byte[32]));
+    }
+
+    @Test
+    public void nearestNode_respectsSnapDistance() {
+        RoadGraph graph = gridGraph(5, 4);
+        assertEquals(0, graph.nearestNode(48.14001, 17.10001, 50));
+        assertEquals(-1, graph.nearestNode(48.0, 17.0, 50));
+    }
+
+    @Test
+    public void route_toNearbyAed_settlesOnlyTheNeighbourhood() {
+        int side = 300;
+        RoadGraph graph = gridGraph(side, 5);
+        AStarRouter router = new AStarRouter(graph);
+        // Walk of roughly 2 km from the middle of a 90k-node city graph
+        int from = (side / 2) * side + side / 2;
+        int to = from + 12 * side + 8;
+
+        Route route = router.route(from, to);
+        assertNotNull(route);
+        // The heuristic keeps the search near the straight line instead of the whole city
+        assertTrue(router.lastVisitedCount() < graph.nodeCount() / 20);
+    }
+
+    static byte[] write(RoadGraph graph) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(RoadGraph.MAGIC);
+        out.writeInt(RoadGraph.VERSION);
+        out.writeInt(graph.nodeCount());
+        out.writeInt(graph.edgeCount());
+        for (double v : graph.lat) out.writeInt((int) Math.round(v * 1e7));
+        for (double v : graph.lon) out.writeInt((int) Math.round(v * 1e7));
+        for (int v : graph.firstEdge) out.writeInt(v);
+        for (int v : graph.edgeTarget) out.writeInt(v);
+        for (float v : graph.edgeLength) out.writeFloat(v);
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
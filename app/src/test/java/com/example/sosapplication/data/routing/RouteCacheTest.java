@@ -0,0 +1,87 @@
+package com.example.sosapplication.data.routing;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class RouteCacheTest {
+
+    private static Route route(int points) {
+        double[] lat = new double[points];
+        double[] lon = new double[points];
+        for (int i = 0; i < points; i++) {
+            lat[i] = 48.14 + i * 1e-4;
+            lon[i] = 17.10 + i * 1e-4;
+        }
+        return new Route(lat, lon, points * 10.0, false);
+    }
+
+    @Test
+    public void key_ignoresSmallMovements() {
+        assertEquals(RouteCache.key(42, 48.148601, 17.107701), RouteCache.key(42, 48.148602, 17.107703));
+        assertNotEquals(RouteCache.key(42, 48.1486, 17.1077), RouteCache.key(43, 48.1486, 17.1077));
+        assertNotEquals(RouteCache.key(42, 48.1486, 17.1077), RouteCache.key(42, 48.1500, 17.1077));
+    }
+
+    @Test
+    public void geohash_matchesReferenceEncoding() {
+        assertEquals("u4pruydqqvj", GeoHelper.geohash(57.64911, 10.40744, 11));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedOverBudget() {
+        Route r = route(100);
+        RouteCache cache = new RouteCache(RouteCache.sizeOf(r) * 2);
+        cache.put("a", r);
+        cache.put("b", r);
+        assertNotNull(cache.get("a")); // "b" is now the eldest
+        cache.put("c", r);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.evictionCount());
+        assertTrue(cache.sizeBytes() <= RouteCache.sizeOf(r) * 2);
+    }
+
+    @Test
+    public void hitRate_countsLookups() {
+        RouteCache cache = new RouteCache(1 << 20);
+        cache.put("a", route(3));
+        cache.get("a");
+        cache.get("a");
+        cache.get("a");
+        cache.get("missing");
+        assertEquals(0.75, cache.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void saveAndLoad_keepMostRecentRoutes() throws IOException {
+        RouteCache cache = new RouteCache(1 << 20);
+        cache.put("old", route(5));
+        cache.put("mid", route(6));
+        cache.put("new", route(7));
+
+        File file = File.createTempFile("routes", ".bin");
+        try {
+            cache.save(file, 2);
+            RouteCache restored = new RouteCache(1 << 20);
+            restored.load(file);
+
+            assertEquals(2, restored.size());
+            assertNull(restored.get("old"));
+            Route route = restored.get("new");
+            assertNotNull(route);
+            assertEquals(7, route.size());
+            assertEquals(70.0, route.lengthMeters, 0);
+            assertEquals(48.14 + 6e-4, route.latitudes[6], 1e-12);
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.sosapplication.data.tiles;
+
+import com.example.sosapplication.utils.GeoHelper;
+
+import org.junit.Test;
+import org.osmdroid.util.MapTileIndex;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TilePlanTest {
+
+    private static final double LAT = 48.1486;
+    private static final double LON = 17.1077;
+
+    private static double distanceToTile(long index) {
+        int z = MapTileIndex.getZoom(index);
+        return GeoHelper.distanceMeters(LAT, LON,
+                TileMath.centerLat(MapTileIndex.getY(index), z),
+                TileMath.centerLon(MapTileIndex.getX(index), z));
+    }
+
+    @Test
+    public void tileMath_centreLiesInsideTile() {
+        for (int z = 0; z <= 18; z++) {
+            int x = TileMath.tileX(LON, z), y = TileMath.tileY(LAT, z);
+            assertEquals(x, TileMath.tileX(TileMath.centerLon(x, z), z));
+            assertEquals(y, TileMath.tileY(TileMath.centerLat(y, z), z));
+        }
+    }
+
+    @Test
+    public void addAround_pollsNearestTilesFirst() {
+        TilePlan plan = new TilePlan(14, 17);
+        plan.addAround(LAT, LON, 1000);
+        assertFalse(plan.isEmpty());
+
+        double last = -1;
+        Set<Integer> zooms = new HashSet<>();
+        while (!plan.isEmpty()) {
+            long index = plan.poll();
+            double meters = distanceToTile(index);
+            assertTrue(meters >= last);
+            int z = MapTileIndex.getZoom(index);
+            boolean usersTile = MapTileIndex.getX(index) == TileMath.tileX(LON, z)
+                    && MapTileIndex.getY(index) == TileMath.tileY(LAT, z);
+            assertTrue(meters <= 1000 || usersTile);
+            zooms.add(z);
+            last = meters;
+        }
+        assertEquals(4, zooms.size());
+        assertEquals(-1, plan.poll());
+    }
+
+    @Test
+    public void addAround_coversTheUsersTileAtEveryZoom() {
+        TilePlan plan = new TilePlan(14, 17);
+        plan.addAround(LAT, LON, 1);
+
+        Set<Long> tiles = new HashSet<>();
+        while (!plan.isEmpty()) tiles.add(plan.poll());
+        for (int z = 14; z <= 17; z++) {
+            assertTrue(tiles.contains(MapTileIndex.getTileIndex(z,
+                    TileMath.tileX(LON, z), TileMath.tileY(LAT, z))));
+        }
+        assertEquals(4, tiles.size());
+    }
+
+    @Test
+    public void addCorridor_followsRouteWithoutDuplicates() {
+        // About 3 km east, beyond a 500 m radius
+        double[] lat = {LAT, LAT + 0.002, LAT};
+        double[] lon = {LON, LON + 0.02, LON + 0.04};
+        TilePlan plan = new TilePlan(17, 17);
+        plan.addAround(LAT, LON, 500);
+        int around = plan.size();
+        plan.addCorridor(LAT, LON, lat, lon, lat.length, 0);
+        plan.addCorridor(LAT, LON, lat, lon, lat.length, 0);
+
+        Set<Long> tiles = new HashSet<>();
+        while (!plan.isEmpty()) assertTrue(tiles.add(plan.poll()));
+        assertTrue(tiles.size() > around);
+
+        // Every sampled point along the route falls into a planned tile
+        for (int i = 0; i < 2; i++) {
+            for (double t = 0; t <= 1; t += 0.01) {
+                double pLat = lat[i] + (lat[i + 1] - lat[i]) * t;
+                double pLon = lon[i] + (lon[i + 1] - lon[i]) * t;
+                assertTrue(tiles.contains(MapTileIndex.getTileIndex(17,
+                        TileMath.tileX(pLon, 17), TileMath.tileY(pLat, 17))));
+            }
+        }
+    }
+
+    @Test
+    public void reset_allowsPlanningAgain() {
+        TilePlan plan = new TilePlan(15, 15);
+        plan.addAround(LAT, LON, 300);
+        int size = plan.size();
+        plan.clearQueue();
+        plan.addAround(LAT, LON, 300);
+        assertEquals(0, plan.size());
+
+        plan.reset();
+        plan.addAround(LAT, LON, 300);
+        assertEquals(size, plan.size());
+    }
+}
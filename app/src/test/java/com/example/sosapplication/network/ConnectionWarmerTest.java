@@ -0,0 +1,117 @@
+package com.example.sosapplication.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class ConnectionWarmerTest {
+
+    private MockWebServer server;
+    private HttpMetrics metrics;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new HttpMetrics();
+        client = new OkHttpClient.Builder().eventListenerFactory(metrics).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void awaitWarm(ConnectionWarmer warmer) throws InterruptedException {
+        for (int i = 0; i < 500 && !warmer.isWarm(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue("warm-up did not finish", warmer.isWarm());
+    }
+
+    private CallTiming postSos(long pressedAt) throws Exception {
+        CallTiming timing = new CallTiming(pressedAt);
+        Request request = new Request.Builder()
+                .url(server.url("/api/alerts/sos"))
+                .post(RequestBody.create("{}", MediaType.get("application/json")))
+                .tag(CallTiming.class, timing)
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            response.body().string();
+        }
+        return timing;
+    }
+
+    @Test
+    public void sosRequest_reusesWarmedConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"status\":\"healthy\"}"));
+        server.enqueue(new MockResponse().setBody("{\"recipients_count\":0}"));
+
+        ConnectionWarmer warmer = new ConnectionWarmer(client, server.url("/api/health").toString());
+        warmer.warm();
+        awaitWarm(warmer);
+
+        long pressedAt = System.nanoTime();
+        CallTiming timing = postSos(pressedAt);
+
+        RecordedRequest warmup = server.takeRequest(5, TimeUnit.SECONDS);
+        RecordedRequest sos = server.takeRequest(5, TimeUnit.SECONDS);
+        assertEquals("/api/health", warmup.getPath());
+        assertEquals("/api/alerts/sos", sos.getPath());
+        // Same socket: the server counts requests per connection
+        assertEquals(1, sos.getSequenceNumber());
+
+        assertTrue(timing.reusedConnection());
+        assertTrue(timing.sentMillis() >= 0);
+        assertTrue(timing.responseMillis() >= timing.sentMillis());
+        assertEquals(1, metrics.get(HttpMetrics.endpointKey(server.url("/api/alerts/sos"))).reusedConnections);
+    }
+
+    @Test
+    public void coldRequest_opensNewConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody("{}"));
+
+        CallTiming timing = postSos(System.nanoTime());
+
+        assertEquals(0, server.takeRequest(5, TimeUnit.SECONDS).getSequenceNumber());
+        assertFalse(timing.reusedConnection());
+        assertTrue(timing.responseMillis() >= 0);
+    }
+
+    @Test
+    public void repeatedWarm_sendsOneRequest() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+
+        ConnectionWarmer warmer = new ConnectionWarmer(client, server.url("/api/health").toString());
+        warmer.warm();
+        warmer.warm();
+        awaitWarm(warmer);
+        warmer.warm();
+
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        assertNull(server.takeRequest(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, warmer.warmupCount());
+    }
+
+    @Test
+    public void unsentCall_reportsNoTimes() {
+        CallTiming timing = new CallTiming(System.nanoTime());
+        assertEquals(-1, timing.sentMillis());
+        assertEquals(-1, timing.responseMillis());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.sosapplication.network;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+public class HttpMetricsTest {
+
+    private MockWebServer server;
+    private HttpMetrics metrics;
+    private OkHttpClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        metrics = new HttpMetrics();
+        client = new OkHttpClient.Builder().eventListenerFactory(metrics).build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private void get(String path) throws IOException {
+        try (Response response = client.newCall(new Request.Builder().url(server.url(path)).build()).execute()) {
+            response.body().string();
+        }
+    }
+
+    @Test
+    public void endpointKey_collapsesNumbers() {
+        assertEquals("tile.openstreetmap.org/#/#/#.png",
+                HttpMetrics.endpointKey(HttpUrl.get("https://tile.openstreetmap.org/17/70123/45001.png")));
+        assertEquals("example.com/api/users/location",
+                HttpMetrics.endpointKey(HttpUrl.get("http://example.com/api/users/location?x=1")));
+    }
+
+    @Test
+    public void secondCall_reusesPooledConnection() throws Exception {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b"));
+        server.enqueue(new MockResponse().setBody("c"));
+
+        get("/api/health");
+        get("/api/health");
+        get("/api/health");
+
+        HttpMetrics.Endpoint endpoint = metrics.get(HttpMetrics.endpointKey(server.url("/api/health")));
+        assertNotNull(endpoint);
+        assertEquals(3, endpoint.calls);
+        assertEquals(2, endpoint.reusedConnections);
+        assertEquals(0, endpoint.failures);
+        assertEquals(2.0 / 3, endpoint.reuseRate(), 1e-9);
+        server.takeRequest();
+        server.takeRequest();
+        // Third request on the first connection
+        assertEquals(2, server.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void failedCall_isCounted() {
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        client = client.newBuilder().retryOnConnectionFailure(false).build();
+
+        try {
+            get("/api/alerts/sos");
+            fail("expected a failure");
+        } catch (IOException expected) {
+            // recorded below
+        }
+
+        HttpMetrics.Endpoint endpoint = metrics.get(HttpMetrics.endpointKey(server.url("/api/alerts/sos")));
+        assertEquals(1, endpoint.calls);
+        assertEquals(1, endpoint.failures);
+        assertEquals(1, metrics.snapshot().size());
+    }
+}
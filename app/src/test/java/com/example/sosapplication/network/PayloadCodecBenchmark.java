@@ -0,0 +1,88 @@
+package com.example.sosapplication.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Payload size and encode time of the two codecs for the requests on the SOS path. Prints
+ * the figures; not part of the unit tests, run it with {@code ./gradlew :app:benchmarkUnitTest}.
+ */
+public class PayloadCodecBenchmark {
+
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 50_000;
+    private static final int FIXES = 20;
+
+    private final double[] lat = new double[FIXES];
+    private final double[] lon = new double[FIXES];
+    private final long[] time = new long[FIXES];
+
+    public PayloadCodecBenchmark() {
+        // A walk through Bratislava, one fix every 15 s
+        for (int i = 0; i < FIXES; i++) {
+            lat[i] = 48.1486 + i * 0.00011 + (i % 3) * 0.000013;
+            lon[i] = 17.1077 + i * 0.00017 - (i % 4) * 0.000021;
+            time[i] = 1_700_000_000_000L + i * 15_000L + (i % 5) * 37;
+        }
+    }
+
+    private interface Encode {
+        void run(PayloadCodec codec, PayloadBuffer out);
+    }
+
+    private void sosPayload(PayloadCodec codec, PayloadBuffer out) {
+        codec.encodeSos(out, "user_3f9a1c2e", "user_3f9a1c2e", 48.14862011, 17.10771302, 0, 200, null,
+                "Niekto v blízkosti potrebuje pomoc!");
+    }
+
+    private void locationPayload(PayloadCodec codec, PayloadBuffer out) {
+        codec.encodeLocations(out, "user_3f9a1c2e", "user_3f9a1c2e", lat, lon, time, FIXES);
+    }
+
+    @Test
+    public void sosAlert() {
+        compare("sos", this::sosPayload);
+    }
+
+    @Test
+    public void locationBatch() {
+        compare("locations-" + FIXES, this::locationPayload);
+    }
+
+    private void compare(String name, Encode encode) {
+        int jsonBytes = size(JsonPayloadCodec.INSTANCE, encode);
+        int binaryBytes = size(BinaryPayloadCodec.INSTANCE, encode);
+        double json = nanosPerEncode(JsonPayloadCodec.INSTANCE, encode, true);
+        double binary = nanosPerEncode(BinaryPayloadCodec.INSTANCE, encode, true);
+        double binaryFresh = nanosPerEncode(BinaryPayloadCodec.INSTANCE, encode, false);
+
+        System.out.printf("%-13s json %4d B %7.0f ns | binary %4d B %7.0f ns (%.1fx smaller), "
+                        + "new buffer each time %7.0f ns%n", name, jsonBytes, json, binaryBytes, binary,
+                (double) jsonBytes / binaryBytes, binaryFresh);
+        assertTrue(binaryBytes < jsonBytes);
+    }
+
+    private static int size(PayloadCodec codec, Encode encode) {
+        PayloadBuffer out = new PayloadBuffer(16);
+        encode.run(codec, out);
+        return out.size();
+    }
+
+    private static double nanosPerEncode(PayloadCodec codec, Encode encode, boolean reuse) {
+        PayloadBuffer shared = new PayloadBuffer(1024);
+        long best = Long.MAX_VALUE;
+        long sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                PayloadBuffer out = reuse ? shared : new PayloadBuffer(64);
+                encode.run(codec, out);
+                sink += out.size();
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        assertTrue(sink > 0);
+        return (double) best / ITERATIONS;
+    }
+}
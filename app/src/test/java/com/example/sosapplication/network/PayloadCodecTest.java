@@ -0,0 +1,182 @@
+package com.example.sosapplication.network;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class PayloadCodecTest {
+
+    private final PayloadBuffer out = new PayloadBuffer(16);
+
+    /** Mirror of the backend's decoder, enough to check the layout */
+    private static class Reader {
+        final byte[] data;
+        int pos;
+
+        Reader(PayloadBuffer buffer) {
+            data = buffer.toByteArray();
+        }
+
+        int readByte() {
+            return data[pos++] & 0xFF;
+        }
+
+        long varint() {
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = readByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return result;
+            }
+        }
+
+        long signed() {
+            long v = varint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String string() {
+            int length = (int) varint();
+            String s = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+
+    @Test
+    public void varints_roundTrip() {
+        long[] values = {0, 1, -1, 63, -64, 64, 300, -300, 4_814_860, -17_107_700,
+                Integer.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            out.writeSignedVarint(value);
+        }
+        out.writeVarint(1_700_000_000_000L);
+
+        Reader in = new Reader(out);
+        for (long value : values) {
+            assertEquals(value, in.signed());
+        }
+        assertEquals(1_700_000_000_000L, in.varint());
+        assertEquals(in.data.length, in.pos);
+    }
+
+    @Test
+    public void binarySos_quantizesToMicrodegrees() {
+        BinaryPayloadCodec.INSTANCE.encodeSos(out, "user_1", "user_1", 48.14861234, -17.10771234, 0, 200, null,
+                "Pomoc!");
+
+        Reader in = new Reader(out);
+        assertEquals(BinaryPayloadCodec.TYPE_SOS, in.readByte());
+        assertEquals("user_1", in.string());
+        // Same external id is not repeated
+        assertEquals("", in.string());
+        assertEquals(48_148_612, in.signed());
+        assertEquals(-17_107_712, in.signed());
+        assertEquals(200, in.varint());
+        assertEquals("Pomoc!", in.string());
+        assertEquals(in.data.length, in.pos);
+    }
+
+    @Test
+    public void binarySos_appendsEscalationRing() {
+        BinaryPayloadCodec.INSTANCE.encodeSos(out, "u", "u", 48.1, 17.1, 500, 1000, "alert-1", "Pomoc!");
+
+        Reader in = new Reader(out);
+        in.readByte();
+        in.string();
+        in.string();
+        in.signed();
+        in.signed();
+        assertEquals(1000, in.varint());
+        assertEquals("Pomoc!", in.string());
+        assertEquals(500, in.varint());
+        assertEquals("alert-1", in.string());
+        assertEquals(in.data.length, in.pos);
+    }
+
+    @Test
+    public void binaryLocations_areDeltaEncoded() {
+        double[] lat = {48.14861, 48.14875, 48.14890};
+        double[] lon = {17.10771, 17.10790, 17.10760};
+        long[] time = {1_700_000_000_000L, 1_700_000_015_000L, 1_700_000_030_500L};
+        BinaryPayloadCodec.INSTANCE.encodeLocations(out, "u", "ext", lat, lon, time, 3);
+
+        Reader in = new Reader(out);
+        assertEquals(BinaryPayloadCodec.TYPE_LOCATIONS, in.readByte());
+        assertEquals("u", in.string());
+        assertEquals("ext", in.string());
+        assertEquals(time[0], in.varint());
+        assertEquals(3, in.varint());
+        long qLat = 0, qLon = 0, t = time[0];
+        for (int i = 0; i < 3; i++) {
+            qLat += in.signed();
+            qLon += in.signed();
+            t += in.signed();
+            assertEquals(lat[i], qLat / 1e5, 1e-9);
+            assertEquals(lon[i], qLon / 1e5, 1e-9);
+            assertEquals(time[i], t);
+        }
+        assertEquals(in.data.length, in.pos);
+    }
+
+    @Test
+    public void binary_isSmallerThanJson() {
+        PayloadBuffer json = new PayloadBuffer(16);
+        JsonPayloadCodec.INSTANCE.encodeSos(json, "user_1", "user_1", 48.1486, 17.1077, 0, 200, null, "Help");
+        BinaryPayloadCodec.INSTANCE.encodeSos(out, "user_1", "user_1", 48.1486, 17.1077, 0, 200, null, "Help");
+        assertTrue(out.size() < json.size());
+
+        double[] lat = {48.14861, 48.14875, 48.14890};
+        double[] lon = {17.10771, 17.10790, 17.10760};
+        long[] time = {1_700_000_000_000L, 1_700_000_015_000L, 1_700_000_030_500L};
+        JsonPayloadCodec.INSTANCE.encodeLocations(json, "user_1", "user_1", lat, lon, time, 3);
+        BinaryPayloadCodec.INSTANCE.encodeLocations(out, "user_1", "user_1", lat, lon, time, 3);
+        assertTrue(out.size() < json.size());
+    }
+
+    @Test
+    public void jsonSos_matchesBackendModel() {
+        JsonPayloadCodec.INSTANCE.encodeSos(out, "user_1", "ext_1", 48.1486, 17.1077, 0, 200, null,
+                "Нужна помощь \"срочно\"\n🚨");
+
+        JsonObject json = JsonParser.parseString(out.toString()).getAsJsonObject();
+        assertEquals("user_1", json.get("user_id").getAsString());
+        assertEquals("ext_1", json.get("external_id").getAsString());
+        assertEquals(48.1486, json.get("latitude").getAsDouble(), 0);
+        assertEquals(17.1077, json.get("longitude").getAsDouble(), 0);
+        assertEquals(200, json.get("radius_meters").getAsInt());
+        assertFalse(json.has("inner_radius_meters"));
+        assertFalse(json.has("alert_id"));
+        assertEquals("Нужна помощь \"срочно\"\n🚨", json.get("message").getAsString());
+    }
+
+    @Test
+    public void jsonSos_carriesEscalationRing() {
+        JsonPayloadCodec.INSTANCE.encodeSos(out, "u", "u", 48.1, 17.1, 500, 1000, "alert-1", "m");
+
+        JsonObject json = JsonParser.parseString(out.toString()).getAsJsonObject();
+        assertEquals(500, json.get("inner_radius_meters").getAsInt());
+        assertEquals(1000, json.get("radius_meters").getAsInt());
+        assertEquals("alert-1", json.get("alert_id").getAsString());
+    }
+
+    @Test
+    public void jsonString_escapesControlCharacters() {
+        out.writeJsonString("a\u0001b\tc\\d\u2028");
+        assertEquals("\"a\\u0001b\\tc\\\\d\\u2028\"", out.toString());
+        assertEquals("a\u0001b\tc\\d\u2028", JsonParser.parseString(out.toString()).getAsString());
+    }
+
+    @Test
+    public void encode_replacesPreviousContents() {
+        JsonPayloadCodec.INSTANCE.encodeLocations(out, "u", "u", new double[]{1, 2}, new double[]{3, 4},
+                new long[]{5, 6}, 2);
+        JsonPayloadCodec.INSTANCE.encodeCancel(out, "u");
+        assertEquals("{\"user_id\":\"u\",\"action\":\"cancel\"}", out.toString());
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.sosapplication.services;
+
+import com.example.sosapplication.network.JsonPayloadCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+public class AlertOutboxTest {
+
+    private MockWebServer server;
+    private File dir;
+    private File file;
+    private final List<AlertOutbox> outboxes = new ArrayList<>();
+
+    // What the stand-in backend did, deduplicated by Idempotency-Key like the real one
+    private final Set<String> accepted = ConcurrentHashMap.newKeySet();
+    private final List<String> acceptedOrder = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean online = true;
+    private volatile double failRate;
+    private final Random random = new Random(42);
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("outbox").toFile();
+        file = new File(dir, "alerts.log");
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (!online) {
+                    return new MockResponse().setResponseCode(503);
+                }
+                String key = request.getHeader("Idempotency-Key");
+                if (request.getPath().endsWith("/bad")) {
+                    return new MockResponse().setResponseCode(400);
+                }
+                double roll;
+                synchronized (random) {
+                    roll = random.nextDouble();
+                }
+                if (roll < failRate / 3) {
+                    return new MockResponse().setResponseCode(503);
+                }
+                if (roll < failRate * 2 / 3) {
+                    return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+                }
+                if (accepted.add(key)) {
+                    acceptedOrder.add(key);
+                }
+                if (roll < failRate) {
+                    // Processed, but the response never reaches the client
+                    return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+                }
+                return new MockResponse().setBody("{\"recipients_count\":3}");
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (AlertOutbox outbox : outboxes) outbox.shutdown();
+        server.shutdown();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    private AlertOutbox outbox(long baseDelayMs) {
+        AlertOutbox.Config config = new AlertOutbox.Config();
+        config.baseDelayMs = baseDelayMs;
+        config.maxDelayMs = Math.max(baseDelayMs, 50);
+        AlertOutbox outbox = new AlertOutbox(new OkHttpClient(), server.url("/api").toString(), file, config);
+        outboxes.add(outbox);
+        return outbox;
+    }
+
+    /** Queue a POST with a JSON body, as JsonPayloadCodec encodes it */
+    private static void enqueueJson(AlertOutbox outbox, String kind, String path, String json, String key,
+                                    AlertOutbox.DeliveryCallback callback) {
+        outbox.enqueue(kind, path, JsonPayloadCodec.INSTANCE.contentType(),
+                json.getBytes(StandardCharsets.UTF_8), key, null, callback);
+    }
+
+    private static class Recorder implements AlertOutbox.DeliveryCallback {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final CountDownLatch retrying = new CountDownLatch(1);
+        final CountDownLatch rejected = new CountDownLatch(1);
+        volatile String body;
+
+        @Override public void onDelivered(String responseBody) {
+            body = responseBody;
+            delivered.countDown();
+        }
+        @Override public void onRetrying(int attempt, String error) { retrying.countDown(); }
+        @Override public void onRejected(String error) { rejected.countDown(); }
+    }
+
+    @Test
+    public void flakyServer_everyAlertArrivesOnceAndInOrder() throws Exception {
+        failRate = 0.3;
+        AlertOutbox outbox = outbox(5);
+        int count = 200;
+        List<String> keys = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            String key = AlertOutbox.newKey();
+            keys.add(key);
+            enqueueJson(outbox, AlertOutbox.KIND_SOS, "/alerts/sos", "{\"n\":" + i + "}", key,
+                    new AlertOutbox.DeliveryCallback() {
+                        @Override public void onDelivered(String responseBody) { done.countDown(); }
+                        @Override public void onRetrying(int attempt, String error) { }
+                        @Override public void onRejected(String error) { fail(error); }
+                    });
+        }
+
+        assertTrue("undelivered: " + done.getCount(), done.await(60, TimeUnit.SECONDS));
+        assertEquals(keys, acceptedOrder);
+        assertTrue("no failures were injected", server.getRequestCount() > count);
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    public void queuedAlert_isSentByTheNextProcess() throws Exception {
+        online = false;
+        AlertOutbox first = outbox(60_000);
+        Recorder recorder = new Recorder();
+        enqueueJson(first, AlertOutbox.KIND_SOS, "/alerts/sos", "{}", "key-1", recorder);
+        assertTrue(recorder.retrying.await(5, TimeUnit.SECONDS));
+        first.shutdown();
+
+        online = true;
+        AlertOutbox second = outbox(5);
+        second.start();
+        for (int i = 0; i < 500 && accepted.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(Collections.singletonList("key-1"), acceptedOrder);
+    }
+
+    @Test
+    public void retryNow_skipsTheBackoff() throws Exception {
+        online = false;
+        AlertOutbox outbox = outbox(60_000);
+        Recorder recorder = new Recorder();
+        enqueueJson(outbox, AlertOutbox.KIND_CANCEL, "/alerts/cancel", "{}", "key-1", recorder);
+        assertTrue(recorder.retrying.await(5, TimeUnit.SECONDS));
+
+        online = true;
+        outbox.retryNow();
+        assertTrue(recorder.delivered.await(5, TimeUnit.SECONDS));
+        assertEquals("{\"recipients_count\":3}", recorder.body);
+    }
+
+    @Test
+    public void rejectedRequest_isNotRetried() throws Exception {
+        AlertOutbox outbox = outbox(5);
+        Recorder recorder = new Recorder();
+        enqueueJson(outbox, AlertOutbox.KIND_SOS, "/bad", "{}", "key-1", recorder);
+
+        assertTrue(recorder.rejected.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, server.getRequestCount());
+        assertEquals(0, outbox.pendingCount());
+    }
+
+    @Test
+    public void newerLocation_replacesQueuedOne() throws Exception {
+        online = false;
+        AlertOutbox outbox = outbox(60_000);
+        Recorder old = new Recorder();
+        enqueueJson(outbox, AlertOutbox.KIND_LOCATION, "/users/location/batch", "{}", "old", old);
+        assertTrue(old.retrying.await(5, TimeUnit.SECONDS));
+
+        Recorder newest = new Recorder();
+        enqueueJson(outbox, AlertOutbox.KIND_LOCATION, "/users/location/batch", "{}", "new", newest);
+        online = true;
+        outbox.retryNow();
+
+        assertTrue(newest.delivered.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("new"), acceptedOrder);
+    }
+
+    @Test
+    public void backoff_growsWithJitterUpToTheCap() {
+        assertEquals(500, AlertOutbox.backoffMillis(1, 1_000, 60_000, 0));
+        assertEquals(999, AlertOutbox.backoffMillis(1, 1_000, 60_000, 0.999));
+        assertEquals(4_000, AlertOutbox.backoffMillis(4, 1_000, 60_000, 0));
+        assertEquals(30_000, AlertOutbox.backoffMillis(10, 1_000, 60_000, 0));
+        assertEquals(30_000, AlertOutbox.backoffMillis(200, 1_000, 60_000, 0));
+        assertTrue(AlertOutbox.backoffMillis(200, 1_000, 60_000, 0.999) < 60_000);
+
+        assertTrue(AlertOutbox.isRetryable(503));
+        assertTrue(AlertOutbox.isRetryable(429));
+        assertFalse(AlertOutbox.isRetryable(400));
+        assertEquals(7_000, AlertOutbox.retryAfterMillis("7"));
+        assertEquals(0, AlertOutbox.retryAfterMillis("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+}
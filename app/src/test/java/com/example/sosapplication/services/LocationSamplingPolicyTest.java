@@ -0,0 +1,115 @@
+package com.example.sosapplication.services;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocationSamplingPolicyTest {
+
+    // About 11 m per step of 0.0001 degrees of latitude
+    private static final double LAT = 48.1486;
+    private static final double LON = 17.1077;
+
+    @Test
+    public void speedsUpAfterTwoFastFixesAndSlowsDownAfterThree() {
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(new LocationSamplingPolicy.Config());
+        assertEquals(LocationSamplingPolicy.Motion.WALKING, policy.motion());
+
+        policy.onFix(LAT, LON, 0, 10);
+        assertEquals(LocationSamplingPolicy.Motion.WALKING, policy.motion());
+        policy.onFix(LAT, LON, 1_000, 10);
+        assertEquals(LocationSamplingPolicy.Motion.DRIVING, policy.motion());
+
+        policy.onFix(LAT, LON, 2_000, 0);
+        policy.onFix(LAT, LON, 3_000, 0);
+        // A single fast fix in between starts the count over
+        policy.onFix(LAT, LON, 4_000, 10);
+        policy.onFix(LAT, LON, 5_000, 0);
+        policy.onFix(LAT, LON, 6_000, 0);
+        assertEquals(LocationSamplingPolicy.Motion.DRIVING, policy.motion());
+        policy.onFix(LAT, LON, 7_000, 0);
+        assertEquals(LocationSamplingPolicy.Motion.STILL, policy.motion());
+    }
+
+    @Test
+    public void derivesSpeedWhenTheFixHasNone() {
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(new LocationSamplingPolicy.Config());
+        // 0.01 degrees of latitude per 60 s is about 18.5 m/s
+        for (int i = 0; i < 3; i++) {
+            policy.onFix(LAT + i * 0.01, LON, i * 60_000L, -1);
+        }
+        assertEquals(LocationSamplingPolicy.Motion.DRIVING, policy.motion());
+    }
+
+    @Test
+    public void reportsOnlyAfterMovingOrTheHeartbeat() {
+        LocationSamplingPolicy.Config config = new LocationSamplingPolicy.Config();
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(config);
+
+        assertTrue(policy.onFix(LAT, LON, 0, 0));
+        assertFalse(policy.onFix(LAT + 0.0002, LON, 60_000, 0));
+        assertFalse(policy.onFix(LAT + 0.0004, LON, 120_000, 0));
+        // 55 m from the last reported fix
+        assertTrue(policy.onFix(LAT + 0.0005, LON, 180_000, 0));
+
+        assertFalse(policy.onFix(LAT + 0.0005, LON, 180_000 + config.heartbeatMs - 1, 0));
+        assertTrue(policy.onFix(LAT + 0.0005, LON, 180_000 + config.heartbeatMs, 0));
+    }
+
+    @Test
+    public void stillPhoneIsSampledRarelyAtLowPower() {
+        LocationSamplingPolicy.Config config = new LocationSamplingPolicy.Config();
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(config);
+        for (int i = 0; i < 3; i++) {
+            policy.onFix(LAT, LON, i * 60_000L, 0);
+        }
+        assertTrue(policy.onDelivered(0, 1));
+
+        LocationSamplingPolicy.Request request = policy.current();
+        assertEquals(LocationSamplingPolicy.Motion.STILL, request.motion);
+        assertEquals(LocationSamplingPolicy.Accuracy.LOW_POWER, request.accuracy);
+        assertEquals(config.stillIntervalMs, request.intervalMs);
+        assertTrue(request.maxDelayMs > request.intervalMs);
+        assertFalse(policy.onDelivered(1_000, 1));
+    }
+
+    @Test
+    public void stretchesTheIntervalOverBudgetAndRelaxesLater() {
+        LocationSamplingPolicy.Config config = new LocationSamplingPolicy.Config();
+        config.maxWakeupsPerHour = 10;
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(config);
+        long walking = policy.current().intervalMs;
+
+        long now = 0;
+        for (int i = 0; i < 10; i++) {
+            assertFalse(policy.onDelivered(now += 1_000, 1));
+        }
+        assertTrue(policy.onDelivered(now += 1_000, 1));
+        assertEquals(2 * walking, policy.current().intervalMs);
+
+        // Never beyond the cap, however far over budget
+        for (int i = 0; i < 20; i++) {
+            policy.onDelivered(now += 1_000, 1);
+        }
+        assertTrue(policy.current().intervalMs <= config.maxIntervalMs);
+        assertTrue(policy.current().intervalMs > 2 * walking);
+
+        // An hour later the old wakeups expired and the interval comes back down
+        now += 60 * 60_000;
+        for (int i = 0; i < 10 && policy.current().intervalMs > walking; i++) {
+            policy.onDelivered(now += 1_000, 1);
+        }
+        assertEquals(walking, policy.current().intervalMs);
+    }
+
+    @Test
+    public void cpuBudgetThrottlesToo() {
+        LocationSamplingPolicy.Config config = new LocationSamplingPolicy.Config();
+        LocationSamplingPolicy policy = new LocationSamplingPolicy(config);
+        long walking = policy.current().intervalMs;
+
+        assertFalse(policy.onDelivered(1_000, config.maxCpuMsPerHour));
+        assertTrue(policy.onDelivered(2_000, 1));
+        assertEquals(2 * walking, policy.current().intervalMs);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.sosapplication.services;
+
+import com.example.sosapplication.network.JsonPayloadCodec;
+import com.example.sosapplication.network.PayloadBuffer;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class LocationUploadBatcherTest {
+
+    private static final double LAT = 48.1486;
+    private static final double LON = 17.1077;
+    // Roughly 100 m of latitude
+    private static final double STEP = 0.0009;
+
+    private MockWebServer server;
+    private LocationUploadBatcher batcher;
+    private final List<Map<String, String>> tagWrites = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (batcher != null) batcher.shutdown();
+        server.shutdown();
+    }
+
+    private LocationUploadBatcher batcher(long flushDelayMs) {
+        LocationUploadBatcher.Config config = new LocationUploadBatcher.Config();
+        config.flushDelayMs = flushDelayMs;
+        config.retryDelayMs = 60_000;
+        String url = server.url("/api").toString();
+        batcher = new LocationUploadBatcher(new OkHttpClient(), url, "user_1", "user_1",
+                tagWrites::add, config);
+        return batcher;
+    }
+
+    private JsonObject takeBatch() throws InterruptedException {
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull("no upload", request);
+        assertEquals("/api/users/location/batch", request.getPath());
+        return JsonParser.parseString(request.getBody().readUtf8()).getAsJsonObject();
+    }
+
+    @Test
+    public void firstFixIsSentImmediately_nearbyFixesAreCoalesced() throws Exception {
+        server.enqueue(new MockResponse());
+        LocationUploadBatcher b = batcher(60_000);
+
+        b.offer(LAT, LON, 1_000, null);
+        b.offer(LAT + 0.00001, LON, 2_000, null);
+        b.offer(LAT, LON + 0.00001, 3_000, null);
+
+        JsonObject batch = takeBatch();
+        assertEquals("user_1", batch.get("user_id").getAsString());
+        assertEquals(1_000, batch.get("base_time").getAsLong());
+        assertEquals(1, batch.getAsJsonArray("fixes").size());
+
+        b.flush();
+        assertNull(server.takeRequest(300, TimeUnit.MILLISECONDS));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void distinctFixesShareOneRequest_andOneTagWrite() throws Exception {
+        server.enqueue(new MockResponse());
+        server.enqueue(new MockResponse());
+        LocationUploadBatcher b = batcher(200);
+
+        // Wait for the first upload to finish, otherwise the next fixes collapse into one
+        CountDownLatch first = new CountDownLatch(1);
+        b.offer(LAT, LON, 1_000, new LocationUploadBatcher.UploadCallback() {
+            @Override public void onUploaded() { first.countDown(); }
+            @Override public void onFailed(String error) { fail(error); }
+        });
+        takeBatch();
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch uploaded = new CountDownLatch(3);
+        LocationUploadBatcher.UploadCallback callback = new LocationUploadBatcher.UploadCallback() {
+            @Override public void onUploaded() { uploaded.countDown(); }
+            @Override public void onFailed(String error) { fail(error); }
+        };
+        for (int i = 1; i <= 3; i++) {
+            b.offer(LAT + i * STEP, LON, 1_000 + i * 5_000, callback);
+        }
+
+        JsonArray fixes = takeBatch().getAsJsonArray("fixes");
+        assertEquals(3, fixes.size());
+        assertEquals(LAT + 3 * STEP, fixes.get(2).getAsJsonArray().get(0).getAsDouble(), 1e-6);
+        assertEquals(10_000, fixes.get(2).getAsJsonArray().get(2).getAsLong());
+        assertTrue(uploaded.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, tagWrites.size());
+        Map<String, String> tags = tagWrites.get(1);
+        assertEquals(String.valueOf(LAT + 3 * STEP), tags.get("latitude"));
+        assertEquals(String.valueOf(LON), tags.get("longitude"));
+        assertEquals("16000", tags.get("last_update"));
+    }
+
+    @Test
+    public void whileUploading_onlyNewestFixIsKept() throws Exception {
+        server.enqueue(new MockResponse().setHeadersDelay(700, TimeUnit.MILLISECONDS));
+        server.enqueue(new MockResponse());
+        LocationUploadBatcher b = batcher(100);
+
+        b.offer(LAT, LON, 1_000, null);
+        // The first upload is now stuck waiting for the server
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            b.offer(LAT + i * STEP, LON, 1_000 + i * 1_000, null);
+        }
+
+        JsonArray fixes = takeBatch().getAsJsonArray("fixes");
+        assertEquals(1, fixes.size());
+        assertEquals(LAT + 5 * STEP, fixes.get(0).getAsJsonArray().get(0).getAsDouble(), 1e-6);
+    }
+
+    @Test
+    public void failedUpload_reportsErrorAndSkipsTags() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        LocationUploadBatcher b = batcher(100);
+
+        CountDownLatch failed = new CountDownLatch(1);
+        b.offer(LAT, LON, 1_000, new LocationUploadBatcher.UploadCallback() {
+            @Override public void onUploaded() { fail("expected a failure"); }
+            @Override public void onFailed(String error) { failed.countDown(); }
+        });
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertTrue(tagWrites.isEmpty());
+    }
+
+    @Test
+    public void encode_writesCompactRelativeFixes() throws Exception {
+        PayloadBuffer out = new PayloadBuffer(64);
+        JsonPayloadCodec.INSTANCE.encodeLocations(out, "u", "e",
+                new double[]{48.12345678, 48.2}, new double[]{17.1, 17.98765432},
+                new long[]{1_700_000_000_000L, 1_700_000_004_500L}, 2);
+        String json = out.toString();
+
+        assertEquals("{\"user_id\":\"u\",\"external_id\":\"e\",\"device_type\":\"android\","
+                + "\"base_time\":1700000000000,\"fixes\":[[48.123457,17.1,0],[48.2,17.987654,4500]]}", json);
+    }
+}
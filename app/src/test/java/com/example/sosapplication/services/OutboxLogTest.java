@@ -0,0 +1,136 @@
+package com.example.sosapplication.services;
+
+import com.example.sosapplication.network.JsonPayloadCodec;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OutboxLogTest {
+
+    private File dir;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("outbox").toFile();
+        file = new File(dir, "outbox/alerts.log");
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = file.getParentFile().listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        file.getParentFile().delete();
+        dir.delete();
+    }
+
+    private static OutboxLog.Entry entry(String key, String kind) {
+        return new OutboxLog.Entry(key, kind, "/alerts/" + kind, JsonPayloadCodec.INSTANCE.contentType(),
+                ("{\"key\":\"" + key + "\"}").getBytes(StandardCharsets.UTF_8), 1_000);
+    }
+
+    @Test
+    public void pendingEntriesSurviveReopen_inOrder() throws Exception {
+        OutboxLog log = new OutboxLog(file, 1 << 20);
+        log.add(entry("a", "sos"));
+        log.add(entry("b", "location"));
+        log.add(entry("c", "cancel"));
+        log.done("b");
+        log.close();
+
+        OutboxLog reopened = new OutboxLog(file, 1 << 20);
+        List<OutboxLog.Entry> pending = reopened.pending();
+        assertEquals(2, pending.size());
+        assertEquals("a", pending.get(0).key);
+        assertEquals("c", pending.get(1).key);
+        assertEquals("/alerts/cancel", pending.get(1).path);
+        assertEquals(JsonPayloadCodec.INSTANCE.contentType(), pending.get(1).contentType);
+        assertEquals("{\"key\":\"c\"}", new String(pending.get(1).body, StandardCharsets.UTF_8));
+        assertEquals(1_000, pending.get(1).createdAt);
+        reopened.close();
+    }
+
+    @Test
+    public void duplicateKey_isNotAddedTwice() throws Exception {
+        OutboxLog log = new OutboxLog(file, 1 << 20);
+        assertTrue(log.add(entry("a", "sos")));
+        assertFalse(log.add(entry("a", "sos")));
+        assertEquals(1, log.size());
+        log.close();
+    }
+
+    @Test
+    public void tornTail_isCutOff() throws Exception {
+        OutboxLog log = new OutboxLog(file, 1 << 20);
+        log.add(entry("a", "sos"));
+        long good = log.fileBytes();
+        log.add(entry("b", "sos"));
+        log.close();
+
+        // Simulate a crash half way through writing the second record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(good + 7);
+        }
+
+        OutboxLog reopened = new OutboxLog(file, 1 << 20);
+        assertEquals(1, reopened.size());
+        assertEquals(good, file.length());
+        // Appending after the cut works and is replayed
+        reopened.add(entry("c", "sos"));
+        reopened.close();
+        assertEquals(2, new OutboxLog(file, 1 << 20).size());
+    }
+
+    @Test
+    public void corruptRecord_stopsReplay() throws Exception {
+        OutboxLog log = new OutboxLog(file, 1 << 20);
+        log.add(entry("a", "sos"));
+        long good = log.fileBytes();
+        log.add(entry("b", "sos"));
+        log.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(good + 10);
+            raf.write('X');
+        }
+        assertEquals(1, new OutboxLog(file, 1 << 20).size());
+    }
+
+    @Test
+    public void compaction_keepsOnlyPending() throws Exception {
+        OutboxLog log = new OutboxLog(file, 2048);
+        for (int i = 0; i < 200; i++) {
+            log.add(entry("k" + i, "sos"));
+            if (i % 10 != 0) log.done("k" + i);
+        }
+        assertEquals(20, log.size());
+        assertTrue("file was not compacted: " + log.fileBytes(), log.fileBytes() < 4096);
+        log.add(entry("last", "sos"));
+        log.close();
+
+        OutboxLog reopened = new OutboxLog(file, 2048);
+        assertEquals(21, reopened.size());
+        assertEquals("k0", reopened.first().key);
+        assertEquals("last", reopened.pending().get(20).key);
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void memoryOnly_keepsEntriesWithoutFile() throws Exception {
+        OutboxLog log = new OutboxLog(null, 0);
+        log.add(entry("a", "sos"));
+        log.done("a");
+        assertNull(log.first());
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.sosapplication.services;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SosEscalationTest {
+
+    /** Answers each ring right away with the recipients configured for its radius */
+    private static class FakeBackend implements SosEscalation.RingSender {
+        final Map<Integer, Integer> recipients = new HashMap<>();
+        final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        volatile SOSAlertService.SOSCallback held;
+        volatile boolean hold;
+        volatile int rejectRadius = -1;
+
+        @Override
+        public void send(int inner, int radius, String alertId, SOSAlertService.SOSCallback callback) {
+            sent.add(alertId + ":" + inner + "-" + radius);
+            if (hold) {
+                held = callback;
+            } else if (radius == rejectRadius) {
+                callback.onRejected("Server error: 400");
+            } else {
+                callback.onSuccess(recipients.getOrDefault(radius, 0));
+            }
+        }
+    }
+
+    private static class Recorder implements SosEscalation.Listener {
+        final List<Integer> started = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch finished = new CountDownLatch(1);
+        final CountDownLatch rejected = new CountDownLatch(1);
+        volatile int total = -1;
+        volatile int radius = -1;
+
+        @Override public void onRingStarted(SosEscalation.Ring ring) { started.add(ring.radiusMeters); }
+        @Override public void onRingDelivered(SosEscalation.Ring ring, int totalRecipients) { }
+        @Override public void onFinished(int totalRecipients, int radiusMeters) {
+            total = totalRecipients;
+            radius = radiusMeters;
+            finished.countDown();
+        }
+        @Override public void onError(String error) { }
+        @Override public void onRejected(String error) { rejected.countDown(); }
+    }
+
+    private static SosEscalation.Config config(long ringDelayMs, long deadlineMs) {
+        SosEscalation.Config config = new SosEscalation.Config();
+        config.ringDelayMs = ringDelayMs;
+        config.deadlineMs = deadlineMs;
+        return config;
+    }
+
+    @Test
+    public void widensUntilEnoughPeopleAreReached() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        backend.recipients.put(500, 1);
+        backend.recipients.put(1_000, 4);
+        Recorder recorder = new Recorder();
+        SosEscalation escalation = new SosEscalation("a1", config(5, 10_000), backend, recorder, Runnable::run);
+        escalation.start();
+
+        assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+        assertEquals(5, recorder.total);
+        assertEquals(1_000, recorder.radius);
+        assertEquals(List.of(200, 500, 1_000), recorder.started);
+        // Each ring only covers what the previous one did not, under the same alert id
+        assertEquals(List.of("a1:0-200", "a1:200-500", "a1:500-1000"), backend.sent);
+
+        List<SosEscalation.Ring> rings = escalation.getRings();
+        assertEquals(3, rings.size());
+        for (SosEscalation.Ring ring : rings) {
+            assertTrue(ring.latencyMs() >= 0);
+        }
+        assertEquals(4, rings.get(2).recipients);
+        assertTrue(rings.get(1).startedAtMs >= 5);
+    }
+
+    @Test
+    public void stopsAtTheLastRing() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        Recorder recorder = new Recorder();
+        new SosEscalation("a1", config(1, 10_000), backend, recorder, Runnable::run).start();
+
+        assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+        assertEquals(0, recorder.total);
+        assertEquals(2_000, recorder.radius);
+        assertEquals(4, backend.sent.size());
+    }
+
+    @Test
+    public void noRingStartsAfterTheDeadline() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        Recorder recorder = new Recorder();
+        new SosEscalation("a1", config(200, 300), backend, recorder, Runnable::run).start();
+
+        assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(200, 500), recorder.started);
+        assertEquals(500, recorder.radius);
+    }
+
+    @Test
+    public void rejectedRingEndsTheEscalation() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        backend.rejectRadius = 500;
+        Recorder recorder = new Recorder();
+        new SosEscalation("a1", config(1, 10_000), backend, recorder, Runnable::run).start();
+
+        assertTrue(recorder.rejected.await(5, TimeUnit.SECONDS));
+        assertFalse(recorder.finished.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(List.of("a1:0-200", "a1:200-500"), backend.sent);
+    }
+
+    @Test
+    public void cancelledEscalationSendsNothingMore() throws Exception {
+        FakeBackend backend = new FakeBackend();
+        backend.hold = true;
+        Recorder recorder = new Recorder();
+        SosEscalation escalation = new SosEscalation("a1", config(1, 10_000), backend, recorder, Runnable::run);
+        escalation.start();
+        for (int i = 0; i < 500 && backend.held == null; i++) {
+            Thread.sleep(10);
+        }
+
+        escalation.cancel();
+        backend.held.onSuccess(0);
+        assertFalse(recorder.finished.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, backend.sent.size());
+        assertEquals(0, escalation.getRings().get(0).recipients);
+    }
+}
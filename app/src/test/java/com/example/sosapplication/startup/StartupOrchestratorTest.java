@@ -0,0 +1,98 @@
+package com.example.sosapplication.startup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class StartupOrchestratorTest {
+
+    /** Holds deferred work until the test runs it */
+    private static class ManualExecutor implements Executor {
+        final List<Runnable> queued = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            queued.add(command);
+        }
+
+        void runAll() {
+            while (!queued.isEmpty()) {
+                queued.remove(0).run();
+            }
+        }
+    }
+
+    @Test
+    public void runsDependenciesFirstAndDefersUntilTheFirstFrame() {
+        ManualExecutor background = new ManualExecutor();
+        StartupOrchestrator startup = new StartupOrchestrator(background);
+        List<String> ran = new ArrayList<>();
+        startup.add("push", StartupOrchestrator.Phase.DEFERRED, () -> ran.add("push"), "config");
+        startup.add("ui", StartupOrchestrator.Phase.CRITICAL, () -> ran.add("ui"), "config");
+        startup.add("config", StartupOrchestrator.Phase.CRITICAL, () -> ran.add("config"));
+
+        startup.runCritical();
+        assertEquals(List.of("config", "ui"), ran);
+        assertTrue(background.queued.isEmpty());
+
+        startup.onFirstFrame();
+        startup.onFirstFrame();
+        assertEquals(1, background.queued.size());
+        background.runAll();
+        assertEquals(List.of("config", "ui", "push"), ran);
+        assertEquals(List.of("config", "ui", "push"), new ArrayList<>(startup.getTimings().keySet()));
+    }
+
+    @Test
+    public void tasksWaitForTheirInitializer() {
+        ManualExecutor background = new ManualExecutor();
+        StartupOrchestrator startup = new StartupOrchestrator(background);
+        List<String> ran = new ArrayList<>();
+        startup.add("push", StartupOrchestrator.Phase.DEFERRED, () -> ran.add("init"));
+        Executor afterPush = startup.after("push");
+
+        startup.runCritical();
+        afterPush.execute(() -> ran.add("login"));
+        assertTrue(ran.isEmpty());
+
+        startup.onFirstFrame();
+        background.runAll();
+        afterPush.execute(() -> ran.add("tags"));
+        assertEquals(List.of("init", "login", "tags"), ran);
+        assertTrue(startup.isDone("push"));
+    }
+
+    @Test
+    public void failingInitializerDoesNotStopStartup() {
+        StartupOrchestrator startup = new StartupOrchestrator(Runnable::run);
+        List<String> ran = new ArrayList<>();
+        startup.add("broken", StartupOrchestrator.Phase.CRITICAL, () -> {
+            throw new IllegalStateException("no network");
+        });
+        startup.add("next", StartupOrchestrator.Phase.CRITICAL, () -> ran.add("next"), "broken");
+        startup.after("broken").execute(() -> ran.add("waiting"));
+
+        startup.runCritical();
+        assertEquals(List.of("waiting", "next"), ran);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void criticalCannotDependOnDeferred() {
+        StartupOrchestrator startup = new StartupOrchestrator(Runnable::run);
+        startup.add("push", StartupOrchestrator.Phase.DEFERRED, () -> { });
+        startup.add("ui", StartupOrchestrator.Phase.CRITICAL, () -> { }, "push");
+        startup.runCritical();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsCycles() {
+        StartupOrchestrator startup = new StartupOrchestrator(Runnable::run);
+        startup.add("a", StartupOrchestrator.Phase.CRITICAL, () -> { }, "b");
+        startup.add("b", StartupOrchestrator.Phase.CRITICAL, () -> { }, "a");
+        startup.runCritical();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.sosapplication.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Micro-benchmark of the table-driven ring generator against the per-vertex trigonometry
+ * the dashboard used before. Prints per-ring timings; not part of the unit tests, run
+ * it with {@code ./gradlew :app:benchmarkUnitTest}.
+ */
+public class CircleHelperBenchmark {
+
+    private static final int RINGS = 20_000;
+    private static final int ROUNDS = 5;
+    private static final int VERTICES = 64;
+
+    @Test
+    public void tableVersusTrigonometry() {
+        double[] buffer = new double[CircleHelper.bufferSize(VERTICES)];
+        long trigNanos = Long.MAX_VALUE, tableNanos = Long.MAX_VALUE;
+        double trigSum = 0, tableSum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            trigSum = 0;
+            for (int r = 0; r < RINGS; r++) {
+                double[] ring = trigCircle(48.1486, 17.1077, 20 + r % 180);
+                trigSum += ring[ring.length - 2];
+            }
+            trigNanos = Math.min(trigNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            tableSum = 0;
+            for (int r = 0; r < RINGS; r++) {
+                int count = CircleHelper.circle(48.1486, 17.1077, 20 + r % 180, VERTICES, buffer);
+                tableSum += buffer[2 * (count - 1)];
+            }
+            tableNanos = Math.min(tableNanos, System.nanoTime() - start);
+        }
+        // Both end on the closing vertex, due north of the centre
+        assertEquals(trigSum / RINGS, tableSum / RINGS, 1e-4);
+
+        System.out.printf("circle-%d  trig %8.3f us/ring, table %8.3f us/ring (%.1fx)%n", VERTICES,
+                trigNanos / 1000.0 / RINGS, tableNanos / 1000.0 / RINGS,
+                (double) trigNanos / tableNanos);
+    }
+
+    // Former DashboardFragment.createCirclePoints, without the GeoPoint wrapping
+    private static double[] trigCircle(double centerLat, double centerLon, double radiusMeters) {
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < VERTICES; i++) {
+            double angle = Math.toRadians(i * (360.0 / VERTICES));
+            double latOffset = (radiusMeters / 111320) * Math.cos(angle);
+            double lonOffset = (radiusMeters / (111320 * Math.cos(Math.toRadians(centerLat)))) * Math.sin(angle);
+            points.add(new double[]{centerLat + latOffset, centerLon + lonOffset});
+        }
+        points.add(points.get(0));
+
+        double[] out = new double[points.size() * 2];
+        for (int i = 0; i < points.size(); i++) {
+            out[2 * i] = points.get(i)[0];
+            out[2 * i + 1] = points.get(i)[1];
+        }
+        return out;
+    }
+}
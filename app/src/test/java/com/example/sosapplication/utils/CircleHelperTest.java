@@ -0,0 +1,48 @@
+package com.example.sosapplication.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircleHelperTest {
+
+    @Test
+    public void circle_verticesLieOnRadius() {
+        double[] out = new double[CircleHelper.bufferSize(CircleHelper.MAX_VERTICES)];
+        int count = CircleHelper.circle(48.1486, 17.1077, 200, 64, out);
+
+        assertEquals(65, count);
+        for (int i = 0; i < count; i++) {
+            double meters = GeoHelper.distanceMeters(48.1486, 17.1077, out[2 * i], out[2 * i + 1]);
+            assertEquals(200, meters, 0.5);
+        }
+        assertEquals(out[0], out[2 * (count - 1)], 0);
+        assertEquals(out[1], out[2 * (count - 1) + 1], 0);
+    }
+
+    @Test
+    public void circle_coarserRingIsSubsetOfFiner() {
+        double[] fine = new double[CircleHelper.bufferSize(128)];
+        double[] coarse = new double[CircleHelper.bufferSize(32)];
+        CircleHelper.circle(49.0, 20.0, 500, 128, fine);
+        CircleHelper.circle(49.0, 20.0, 500, 32, coarse);
+
+        for (int i = 0; i < 32; i++) {
+            assertEquals(fine[8 * i], coarse[2 * i], 0);
+            assertEquals(fine[8 * i + 1], coarse[2 * i + 1], 0);
+        }
+    }
+
+    @Test
+    public void vertexCount_growsWithPixelRadius() {
+        assertEquals(CircleHelper.MIN_VERTICES, CircleHelper.vertexCount(0));
+        assertEquals(CircleHelper.MIN_VERTICES, CircleHelper.vertexCount(10));
+        assertEquals(64, CircleHelper.vertexCount(50));
+        assertEquals(CircleHelper.MAX_VERTICES, CircleHelper.vertexCount(5000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void circle_rejectsSmallBuffer() {
+        CircleHelper.circle(48.0, 17.0, 100, 32, new double[10]);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.sosapplication.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImageLoaderTest {
+
+    @Test
+    public void subsamplesWhileTheImageStillFillsTheView() {
+        // A 400x280 step image fits a 200x200 view at 200x140
+        assertEquals(2, ImageLoader.sampleSize(400, 280, 200, 200));
+        assertEquals(1, ImageLoader.sampleSize(400, 280, 201, 200));
+        assertEquals(4, ImageLoader.sampleSize(1200, 840, 300, 300));
+    }
+
+    @Test
+    public void theTighterDimensionDecides() {
+        // Tall view: the width limits the fit
+        assertEquals(4, ImageLoader.sampleSize(400, 280, 100, 1000));
+        // Wide view: the height limits the fit
+        assertEquals(2, ImageLoader.sampleSize(400, 280, 1000, 140));
+    }
+
+    @Test
+    public void neverSubsamplesSmallImages() {
+        assertEquals(1, ImageLoader.sampleSize(100, 70, 300, 300));
+        assertEquals(1, ImageLoader.sampleSize(300, 300, 300, 300));
+    }
+}
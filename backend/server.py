@@ -1,12 +1,16 @@
-from fastapi import FastAPI, HTTPException, BackgroundTasks
+from fastapi import FastAPI, HTTPException, BackgroundTasks, Header
 from fastapi.middleware.cors import CORSMiddleware
+from fastapi.responses import FileResponse, JSONResponse, Response
 from pydantic import BaseModel
 from typing import List, Optional
 from datetime import datetime, timezone
 import httpx
+import json
 import math
 from motor.motor_asyncio import AsyncIOMotorClient
+from pymongo.errors import DuplicateKeyError
 import os
+import sqlite3
 from dotenv import load_dotenv
 
 # Load environment variables
@@ -28,12 +32,148 @@ app.add_middleware(
     allow_headers=["*"],
 )
 
+# Compact encoding of the app's requests (BinaryPayloadCodec on Android)
+BINARY_CONTENT_TYPE = "application/x-sos-binary"
+SOS_COORDINATE_SCALE = 1e6
+LOCATION_COORDINATE_SCALE = 1e5
+
+
+class _BinaryReader:
+    def __init__(self, data: bytes):
+        self.data = data
+        self.pos = 0
+
+    def byte(self) -> int:
+        if self.pos >= len(self.data):
+            raise ValueError("truncated payload")
+        value = self.data[self.pos]
+        self.pos += 1
+        return value
+
+    def varint(self) -> int:
+        result = 0
+        shift = 0
+        while True:
+            b = self.byte()
+            result |= (b & 0x7F) << shift
+            if not b & 0x80:
+                return result
+            shift += 7
+            if shift > 63:
+                raise ValueError("varint too long")
+
+    def signed(self) -> int:
+        value = self.varint()
+        return (value >> 1) ^ -(value & 1)
+
+    def string(self) -> str:
+        length = self.varint()
+        if self.pos + length > len(self.data):
+            raise ValueError("truncated payload")
+        value = self.data[self.pos:self.pos + length].decode("utf-8")
+        self.pos += length
+        return value
+
+
+def decode_binary_payload(data: bytes) -> dict:
+    """Turn a binary request body into the JSON document the endpoint models expect"""
+    reader = _BinaryReader(data)
+    message_type = reader.byte()
+    if message_type == 1:
+        user_id = reader.string()
+        external_id = reader.string() or user_id
+        return {
+            "user_id": user_id,
+            "external_id": external_id,
+            "latitude": reader.signed() / SOS_COORDINATE_SCALE,
+            "longitude": reader.signed() / SOS_COORDINATE_SCALE,
+            "radius_meters": reader.varint(),
+            "message": reader.string(),
+            # Escalation ring, only present on rings after the first
+            **({"inner_radius_meters": reader.varint(), "alert_id": reader.string() or None}
+               if reader.pos < len(reader.data) else {}),
+        }
+    if message_type == 2:
+        return {"user_id": reader.string(), "action": "cancel"}
+    if message_type == 3:
+        user_id = reader.string()
+        external_id = reader.string() or user_id
+        base_time = reader.varint()
+        fixes = []
+        lat = lon = 0
+        fix_time = base_time
+        for _ in range(reader.varint()):
+            # Each fix is a delta against the previous one
+            lat += reader.signed()
+            lon += reader.signed()
+            fix_time += reader.signed()
+            fixes.append([
+                round(lat / LOCATION_COORDINATE_SCALE, 5),
+                round(lon / LOCATION_COORDINATE_SCALE, 5),
+                fix_time - base_time,
+            ])
+        return {
+            "user_id": user_id,
+            "external_id": external_id,
+            "device_type": "android",
+            "base_time": base_time,
+            "fixes": fixes,
+        }
+    raise ValueError(f"unknown message type {message_type}")
+
+
+class BinaryPayloadMiddleware:
+    """Rewrites binary request bodies to JSON so the endpoints handle both formats"""
+
+    def __init__(self, app):
+        self.app = app
+
+    async def __call__(self, scope, receive, send):
+        if scope["type"] != "http":
+            return await self.app(scope, receive, send)
+        content_type = dict(scope["headers"]).get(b"content-type", b"").decode("latin-1")
+        if not content_type.startswith(BINARY_CONTENT_TYPE):
+            return await self.app(scope, receive, send)
+
+        body = b""
+        more_body = True
+        while more_body:
+            message = await receive()
+            body += message.get("body", b"")
+            more_body = message.get("more_body", False)
+
+        try:
+            document = json.dumps(decode_binary_payload(body)).encode("utf-8")
+        except (ValueError, UnicodeDecodeError) as e:
+            response = JSONResponse({"detail": f"Bad binary payload: {e}"}, status_code=400)
+            return await response(scope, receive, send)
+
+        headers = [(k, v) for k, v in scope["headers"] if k not in (b"content-type", b"content-length")]
+        headers.append((b"content-type", b"application/json"))
+        headers.append((b"content-length", str(len(document)).encode("latin-1")))
+        delivered = False
+
+        async def receive_json():
+            nonlocal delivered
+            if not delivered:
+                delivered = True
+                return {"type": "http.request", "body": document, "more_body": False}
+            return await receive()
+
+        await self.app(dict(scope, headers=headers), receive_json, send)
+
+
+app.add_middleware(BinaryPayloadMiddleware)
+
 # Environment variables
 ONESIGNAL_APP_ID = os.environ.get("ONESIGNAL_APP_ID", "0d2df905-4641-48e5-b9df-c684735e89f1")
 ONESIGNAL_API_KEY = os.environ.get("ONESIGNAL_API_KEY")
 MONGO_URL = os.environ.get("MONGO_URL", "mongodb://localhost:27017")
 DB_NAME = os.environ.get("DB_NAME", "sos_alert")
 
+# How long a replayed request with the same Idempotency-Key gets the stored response
+IDEMPOTENCY_TTL_SECONDS = 7 * 24 * 3600
+
 # Global MongoDB client
 db_client: Optional[AsyncIOMotorClient] = None
 db = None
@@ -51,6 +191,9 @@ async def startup_event():
     await db.users.create_index([("latitude", 1), ("longitude", 1)])
     await db.notifications.create_index("alert_id")
     await db.notifications.create_index("created_at")
+    await db.notifications.create_index("escalation_id", sparse=True)
+    await db.idempotency.create_index("key", unique=True)
+    await db.idempotency.create_index("created_at", expireAfterSeconds=IDEMPOTENCY_TTL_SECONDS)
     
     print(f"Connected to MongoDB: {DB_NAME}")
 
@@ -73,6 +216,14 @@ class LocationData(BaseModel):
     device_type: str = "android"
 
 
+class LocationBatch(BaseModel):
+    user_id: str
+    external_id: str
+    device_type: str = "android"
+    base_time: int  # epoch milliseconds of the first fix
+    fixes: List[List[float]]  # [latitude, longitude, milliseconds after base_time]
+
+
 class SOSRequest(BaseModel):
     user_id: str
     latitude: float
@@ -80,6 +231,9 @@ class SOSRequest(BaseModel):
     radius_meters: int = 200
     message: str = "SOS Alert! Someone nearby needs help!"
     external_id: str
+    # Staged alerts: users within inner_radius_meters were covered by an earlier ring
+    inner_radius_meters: int = 0
+    alert_id: Optional[str] = None
 
 
 class CancelRequest(BaseModel):
@@ -93,6 +247,28 @@ class NotificationResponse(BaseModel):
     status: str
 
 
+async def stored_response(key: Optional[str]):
+    """Response already given to a request with this Idempotency-Key, if any"""
+    if not key:
+        return None
+    record = await db.idempotency.find_one({"key": key}, {"_id": 0, "response": 1})
+    return record["response"] if record else None
+
+
+async def store_response(key: Optional[str], response: dict):
+    """Remember the response so a retried request is answered without repeating its effect"""
+    if not key:
+        return
+    try:
+        await db.idempotency.insert_one({
+            "key": key,
+            "response": response,
+            "created_at": datetime.now(timezone.utc)
+        })
+    except DuplicateKeyError:
+        pass
+
+
 # Haversine distance calculation
 def calculate_distance(lat1: float, lon1: float, lat2: float, lon2: float) -> float:
     """
@@ -120,6 +296,44 @@ async def health_check():
     return {"status": "healthy", "timestamp": datetime.now(timezone.utc).isoformat()}
 
 
+# Offline map tiles for the app (OfflineTileRepository), one MBTiles file per region
+TILE_PACK_DIR = os.getenv("TILE_PACK_DIR")
+
+
+@app.get("/api/tiles/{region}.mbtiles")
+async def get_tile_pack(region: str):
+    """Download the offline tile pack of a region"""
+    if not TILE_PACK_DIR or not region.isalnum():
+        raise HTTPException(status_code=404, detail="No tile pack")
+    path = os.path.join(TILE_PACK_DIR, f"{region}.mbtiles")
+    if not os.path.isfile(path):
+        raise HTTPException(status_code=404, detail="No tile pack")
+    return FileResponse(path, media_type="application/vnd.sqlite3")
+
+
+@app.get("/api/tiles/{region}/{z}/{x}/{y}.png")
+def get_tile(region: str, z: int, x: int, y: int):
+    """Single map tile from a region's pack, for the app's online map and its prefetcher"""
+    if not TILE_PACK_DIR or not region.isalnum() or not 0 <= z <= 22:
+        raise HTTPException(status_code=404, detail="No tile")
+    path = os.path.join(TILE_PACK_DIR, f"{region}.mbtiles")
+    if not os.path.isfile(path):
+        raise HTTPException(status_code=404, detail="No tile")
+    # MBTiles stores rows bottom-up (TMS)
+    db = sqlite3.connect(f"file:{path}?mode=ro", uri=True)
+    try:
+        row = db.execute(
+            "SELECT tile_data FROM tiles WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?",
+            (z, x, (1 << z) - 1 - y),
+        ).fetchone()
+    finally:
+        db.close()
+    if row is None:
+        raise HTTPException(status_code=404, detail="No tile")
+    return Response(content=row[0], media_type="image/png",
+                    headers={"Cache-Control": "public, max-age=604800"})
+
+
 @app.post("/api/users/location")
 async def update_user_location(location_data: LocationData):
     """Update user's location in database"""
@@ -149,6 +363,50 @@ async def update_user_location(location_data: LocationData):
         raise HTTPException(status_code=500, detail=str(e))
 
 
+@app.post("/api/users/location/batch")
+async def update_user_location_batch(
+    batch: LocationBatch,
+    idempotency_key: Optional[str] = Header(None, alias="Idempotency-Key")
+):
+    """Store the newest of a batch of location fixes uploaded together"""
+    previous = await stored_response(idempotency_key)
+    if previous is not None:
+        return previous
+
+    valid = [f for f in batch.fixes if len(f) >= 3]
+    if not valid:
+        raise HTTPException(status_code=400, detail="Batch contains no fixes")
+
+    latest = max(valid, key=lambda f: f[2])
+    fix_time = datetime.fromtimestamp((batch.base_time + latest[2]) / 1000, tz=timezone.utc)
+    try:
+        await db.users.update_one(
+            {"user_id": batch.user_id},
+            {
+                "$set": {
+                    "user_id": batch.user_id,
+                    "external_id": batch.external_id,
+                    "latitude": latest[0],
+                    "longitude": latest[1],
+                    "device_type": batch.device_type,
+                    "last_location_update": fix_time,
+                    "is_active": True
+                }
+            },
+            upsert=True
+        )
+
+        response = {
+            "status": "success",
+            "user_id": batch.user_id,
+            "fixes_received": len(valid)
+        }
+        await store_response(idempotency_key, response)
+        return response
+    except Exception as e:
+        raise HTTPException(status_code=500, detail=str(e))
+
+
 @app.get("/api/users/{user_id}/location")
 async def get_user_location(user_id: str):
     """Get user's current location"""
@@ -266,25 +524,55 @@ async def send_onesignal_notification(
 
 
 @app.post("/api/alerts/sos", response_model=NotificationResponse)
-async def trigger_sos_alert(sos_request: SOSRequest):
+async def trigger_sos_alert(
+    sos_request: SOSRequest,
+    idempotency_key: Optional[str] = Header(None, alias="Idempotency-Key")
+):
     """Trigger SOS alert: find nearby users and send notifications"""
     
-    # Find nearby users (excluding the sender)
+    # A retry of an alert that already went out must not notify everyone again
+    previous = await stored_response(idempotency_key)
+    if previous is not None:
+        return NotificationResponse(**previous)
+    
+    # Find nearby users (excluding the sender); the bounding box lets the
+    # latitude/longitude index skip everyone far away
+    d_lat = math.degrees(sos_request.radius_meters / 6371000)
+    d_lon = d_lat / max(math.cos(math.radians(min(abs(sos_request.latitude) + d_lat, 89.9))), 1e-6)
     all_users = await db.users.find(
-        {"is_active": True, "user_id": {"$ne": sos_request.user_id}},
+        {
+            "is_active": True,
+            "user_id": {"$ne": sos_request.user_id},
+            "latitude": {"$gte": sos_request.latitude - d_lat, "$lte": sos_request.latitude + d_lat},
+            "longitude": {"$gte": sos_request.longitude - d_lon, "$lte": sos_request.longitude + d_lon},
+        },
         {"_id": 0, "user_id": 1, "external_id": 1, "latitude": 1, "longitude": 1}
     ).to_list(length=1000)
     
+    # A later ring of a staged alert only reaches the users the earlier rings did not
+    already_notified = set()
+    if sos_request.alert_id:
+        async for ring in db.notifications.find(
+            {"escalation_id": sos_request.alert_id}, {"_id": 0, "recipients": 1}
+        ):
+            already_notified.update(ring.get("recipients", []))
+    
     nearby_users = []
     
     for user in all_users:
         if user.get("latitude") and user.get("longitude") and user.get("external_id"):
+            if user["external_id"] in already_notified:
+                continue
             distance = calculate_distance(
                 sos_request.latitude, sos_request.longitude,
                 user["latitude"], user["longitude"]
             )
             
-            if distance <= sos_request.radius_meters:
+            # With an alert id the earlier rings' recipients are excluded exactly, which
+            # also reaches people who walked into the inner circle since; without one
+            # the inner circle is assumed covered
+            inner = 0 if sos_request.alert_id else sos_request.inner_radius_meters
+            if inner < distance <= sos_request.radius_meters:
                 nearby_users.append({
                     "user_id": user["user_id"],
                     "external_id": user["external_id"],
@@ -300,17 +588,21 @@ async def trigger_sos_alert(sos_request: SOSRequest):
             "latitude": sos_request.latitude,
             "longitude": sos_request.longitude,
             "radius_meters": sos_request.radius_meters,
+            "inner_radius_meters": sos_request.inner_radius_meters,
+            "escalation_id": sos_request.alert_id,
             "nearby_users_count": 0,
             "notification_status": "no_recipients",
             "created_at": datetime.now(timezone.utc),
             "recipients": []
         })
         
-        return NotificationResponse(
+        response = NotificationResponse(
             notification_id="no_recipients",
             recipients_count=0,
             status="no_recipients"
         )
+        await store_response(idempotency_key, response.model_dump())
+        return response
     
     # Extract external IDs for notification
     external_ids = [user["external_id"] for user in nearby_users]
@@ -337,6 +629,8 @@ async def trigger_sos_alert(sos_request: SOSRequest):
         "latitude": sos_request.latitude,
         "longitude": sos_request.longitude,
         "radius_meters": sos_request.radius_meters,
+        "inner_radius_meters": sos_request.inner_radius_meters,
+        "escalation_id": sos_request.alert_id,
         "nearby_users_count": len(nearby_users),
         "notification_status": notification_result.get("status"),
         "created_at": datetime.now(timezone.utc),
@@ -345,17 +639,26 @@ async def trigger_sos_alert(sos_request: SOSRequest):
     
     await db.notifications.insert_one(alert_record)
     
-    return NotificationResponse(
+    response = NotificationResponse(
         notification_id=notification_result.get("notification_id", "unknown"),
         recipients_count=len(nearby_users),
         status=notification_result.get("status", "unknown")
     )
+    await store_response(idempotency_key, response.model_dump())
+    return response
 
 
 @app.post("/api/alerts/cancel")
-async def cancel_sos_alert(cancel_request: CancelRequest):
+async def cancel_sos_alert(
+    cancel_request: CancelRequest,
+    idempotency_key: Optional[str] = Header(None, alias="Idempotency-Key")
+):
     """Cancel an active SOS alert"""
     
+    previous = await stored_response(idempotency_key)
+    if previous is not None:
+        return previous
+    
     # Find the most recent alert from this user
     latest_alert = await db.notifications.find_one(
         {"sender_id": cancel_request.user_id, "alert_type": "sos"},
@@ -383,7 +686,9 @@ async def cancel_sos_alert(cancel_request: CancelRequest):
             }
         )
     
-    return {"status": "success", "message": "SOS alert cancelled"}
+    response = {"status": "success", "message": "SOS alert cancelled"}
+    await store_response(idempotency_key, response)
+    return response
 
 
 @app.get("/api/alerts/history/{user_id}")
@@ -420,4 +725,5 @@ async def get_stats():
 
 if __name__ == "__main__":
     import uvicorn
-    uvicorn.run(app, host="0.0.0.0", port=8001)
+    # Keep idle connections longer than the app's pre-warm window (30 s)
+    uvicorn.run(app, host="0.0.0.0", port=8001, timeout_keep_alive=45)
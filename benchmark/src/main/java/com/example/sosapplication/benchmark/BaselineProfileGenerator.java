@@ -0,0 +1,36 @@
+package com.example.sosapplication.benchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Collects the baseline profile of the SOS path: cold start to HomeFragment, the SOS
+ * button to DashboardFragment and the map's first draw with AED markers.
+ *
+ * Run {@code ./gradlew :app:generateBaselineProfile}; the result lands in
+ * app/src/release/generated/baselineProfiles and is compiled ahead of time on install.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void sosPath() {
+        // Up to 15 runs until the profile is stable for 3; part of the startup profile too
+        rule.collect(SosJourney.PACKAGE, 15, 3, null, true, scope -> {
+            scope.pressHome();
+            scope.startActivityAndWait();
+            SosJourney.waitForHome(scope.getDevice());
+            SosJourney.openMapFromSos(scope.getDevice());
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.sosapplication.benchmark;
+
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.BySelector;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.util.regex.Pattern;
+
+/**
+ * UI steps shared by the benchmarks and the baseline profile generator.
+ *
+ * Permission prompts are always denied: without location the dashboard cannot activate
+ * SOS, so no alert ever leaves the device while measuring.
+ */
+final class SosJourney {
+
+    static final String PACKAGE = "com.example.sosapplication";
+
+    private static final long TIMEOUT_MS = 10_000;
+    private static final BySelector DENY_PERMISSION =
+            By.res(Pattern.compile("com.android.permissioncontroller:id/permission_deny.*button"));
+
+    private SosJourney() {
+    }
+
+    /** Cold start ends on HomeFragment with the SOS button */
+    static void waitForHome(UiDevice device) {
+        denyPermissions(device);
+        require(device, By.res(PACKAGE, "btnSOS"));
+    }
+
+    /** SOS button to DashboardFragment, until the map and its AED markers have drawn */
+    static void openMapFromSos(UiDevice device) {
+        require(device, By.res(PACKAGE, "btnSOS")).click();
+        require(device, By.res(PACKAGE, "mapView"));
+        denyPermissions(device);
+        device.waitForIdle();
+    }
+
+    static void denyPermissions(UiDevice device) {
+        for (int i = 0; i < 3; i++) {
+            UiObject2 deny = device.wait(Until.findObject(DENY_PERMISSION), 1_000);
+            if (deny == null) return;
+            deny.click();
+        }
+    }
+
+    private static UiObject2 require(UiDevice device, BySelector selector) {
+        UiObject2 found = device.wait(Until.findObject(selector), TIMEOUT_MS);
+        if (found == null) {
+            throw new AssertionError("Not shown within " + TIMEOUT_MS + " ms: " + selector);
+        }
+        return found;
+    }
+}
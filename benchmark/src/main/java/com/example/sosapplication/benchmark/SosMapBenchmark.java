@@ -0,0 +1,63 @@
+package com.example.sosapplication.benchmark;
+
+import androidx.annotation.OptIn;
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.ExperimentalMetricApi;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * From the SOS button on HomeFragment to DashboardFragment and the map's first draw with
+ * AED markers: frame times of the transition plus the traced dashboard setup and the
+ * first AED overlay draw.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SosMapBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void sosToMapNoCompilation() {
+        sosToMap(new CompilationMode.None());
+    }
+
+    @Test
+    public void sosToMapBaselineProfile() {
+        sosToMap(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    @OptIn(markerClass = ExperimentalMetricApi.class)
+    private void sosToMap(CompilationMode compilationMode) {
+        List<Metric> metrics = List.of(
+                new FrameTimingMetric(),
+                new TraceSectionMetric("DashboardFragment.onCreateView"),
+                new TraceSectionMetric("AedOverlay.draw"));
+        rule.measureRepeated(SosJourney.PACKAGE, metrics, compilationMode, StartupMode.COLD, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    SosJourney.waitForHome(scope.getDevice());
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    SosJourney.openMapFromSos(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+}
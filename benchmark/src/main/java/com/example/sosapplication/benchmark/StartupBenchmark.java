@@ -0,0 +1,55 @@
+package com.example.sosapplication.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Cold start to the SOS button on HomeFragment, without and with the baseline profile.
+ *
+ * timeToFullDisplayMs is MainActivity's reportFullyDrawn(), called once the first frame
+ * with the SOS button is drawn.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void coldStartNoCompilation() {
+        coldStart(new CompilationMode.None());
+    }
+
+    @Test
+    public void coldStartBaselineProfile() {
+        coldStart(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    private void coldStart(CompilationMode compilationMode) {
+        rule.measureRepeated(SosJourney.PACKAGE, List.of(new StartupTimingMetric()), compilationMode,
+                StartupMode.COLD, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    SosJourney.waitForHome(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,33 @@
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+tasks.test {
+    // Timing benchmarks (*Benchmark) are not unit tests; they run through `benchmark`
+    exclude("**/*Benchmark.class")
+}
+
+tasks.register<Test>("benchmark") {
+    description = "Runs the load harness and other timing benchmarks."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    include("**/*Benchmark.class")
+    // The harness prints its figures; keep them visible in the build output
+    testLogging.showStandardStreams = true
+    maxHeapSize = "1g"
+    for (name in listOf("responder.users", "responder.seconds")) {
+        providers.gradleProperty(name).orNull?.let { systemProperty(name, it) }
+    }
+    // Timings are the output; never skip as up to date
+    outputs.upToDateWhen { false }
+}
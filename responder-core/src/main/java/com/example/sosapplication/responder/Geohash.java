@@ -0,0 +1,68 @@
+package com.example.sosapplication.responder;
+
+/**
+ * Geohash cells as plain longs.
+ *
+ * The globe is cut into 2^bits equal bands of latitude and of longitude; a cell's hash
+ * interleaves the two band indices bit by bit, longitude first, exactly like the textual
+ * geohash. With 15 bits per axis a cell is a 6-character geohash, about 600 x 750 m in
+ * central Europe, which keeps a 200 m - 2 km alert radius within a handful of cells.
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    public static final int MAX_BITS = 30;
+
+    private Geohash() {
+    }
+
+    /** Latitude band of {@code lat}, 0 at the south pole */
+    public static int latIndex(double lat, int bits) {
+        return index((lat + 90) / 180, bits);
+    }
+
+    /** Longitude band of {@code lon}, 0 at the antimeridian; wraps around */
+    public static int lonIndex(double lon, int bits) {
+        double normalized = (lon + 180) / 360;
+        return index(normalized - Math.floor(normalized), bits);
+    }
+
+    private static int index(double fraction, int bits) {
+        int cells = 1 << bits;
+        int index = (int) Math.floor(fraction * cells);
+        return Math.max(0, Math.min(cells - 1, index));
+    }
+
+    public static long encode(double lat, double lon, int bits) {
+        return interleave(lonIndex(lon, bits), latIndex(lat, bits), bits);
+    }
+
+    public static long interleave(int lonIndex, int latIndex, int bits) {
+        long hash = 0;
+        for (int bit = bits - 1; bit >= 0; bit--) {
+            hash = (hash << 2) | ((long) ((lonIndex >>> bit) & 1) << 1) | ((latIndex >>> bit) & 1);
+        }
+        return hash;
+    }
+
+    /** The textual geohash, one character per 5 bits; leftover bits are dropped */
+    public static String toString(long hash, int bits) {
+        int total = 2 * bits;
+        char[] chars = new char[total / 5];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = BASE32[(int) (hash >>> (total - 5 * (i + 1))) & 31];
+        }
+        return new String(chars);
+    }
+
+    /** Height of a cell in degrees */
+    public static double latSpan(int bits) {
+        return 180.0 / (1 << bits);
+    }
+
+    /** Width of a cell in degrees */
+    public static double lonSpan(int bits) {
+        return 360.0 / (1 << bits);
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.sosapplication.responder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the last known position of every user, answering "who is within
+ * r meters of this SOS" without looking at users elsewhere.
+ *
+ * Positions are bucketed by {@link Geohash} cell. A radius query visits only the cells
+ * overlapping the circle's bounding box and measures the exact distance to the users in
+ * them, the same haversine distance the backend uses.
+ *
+ * Updates of different users run in parallel: the per-user bookkeeping is guarded by one of
+ * a fixed set of striped locks, cells are concurrent maps changed through
+ * {@link ConcurrentHashMap#compute}, and queries take no locks at all. Queries are weakly
+ * consistent: a user moving between cells while a query runs is reported at the old or the
+ * new position, or, rarely, missed by that query; never twice.
+ */
+public class ResponderIndex {
+
+    /** Same mean radius as the backend's calculate_distance */
+    public static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    private static final int STRIPES = 64;
+
+    public static class Position {
+        public final String userId;
+        /** OneSignal external id, the address of the push notification; may be null */
+        public final String externalId;
+        public final double latitude;
+        public final double longitude;
+        /** Time of the fix, epoch millis */
+        public final long updatedAt;
+        final long cell;
+
+        Position(String userId, String externalId, double latitude, double longitude, long updatedAt,
+                 long cell) {
+            this.userId = userId;
+            this.externalId = externalId;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.updatedAt = updatedAt;
+            this.cell = cell;
+        }
+    }
+
+    public static class Match {
+        public final Position position;
+        public final double distanceMeters;
+
+        Match(Position position, double distanceMeters) {
+            this.position = position;
+            this.distanceMeters = distanceMeters;
+        }
+    }
+
+    private static final Comparator<Match> BY_DISTANCE = Comparator.comparingDouble(m -> m.distanceMeters);
+
+    private final int bits;
+    private final int columnMask;
+    private final ConcurrentHashMap<String, Position> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, ConcurrentHashMap<String, Position>> cells = new ConcurrentHashMap<>();
+    private final Object[] stripes = new Object[STRIPES];
+
+    public ResponderIndex() {
+        this(15);
+    }
+
+    /**
+     * @param cellBits geohash bits per axis; 15 suits radii from a few hundred meters to a few km
+     */
+    public ResponderIndex(int cellBits) {
+        if (cellBits < 1 || cellBits > Geohash.MAX_BITS) {
+            throw new IllegalArgumentException("cellBits must be 1.." + Geohash.MAX_BITS);
+        }
+        this.bits = cellBits;
+        this.columnMask = (1 << cellBits) - 1;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Record a user's position, as posted to {@code /users/location}
+     *
+     * @return false if a newer position of the user is already known; it is kept
+     */
+    public boolean update(String userId, String externalId, double latitude, double longitude, long time) {
+        Position position = new Position(userId, externalId, latitude, longitude, time,
+                Geohash.encode(latitude, longitude, bits));
+        synchronized (stripe(userId)) {
+            Position old = users.get(userId);
+            if (old != null && old.updatedAt > time) return false;
+
+            // Into the new cell before out of the old one, so a query scanning both cells
+            // finds the user at least once; scan() drops the older duplicate
+            cells.compute(position.cell, (cell, members) -> {
+                if (members == null) members = new ConcurrentHashMap<>();
+                members.put(userId, position);
+                return members;
+            });
+            users.put(userId, position);
+            if (old != null && old.cell != position.cell) {
+                removeFromCell(old);
+            }
+        }
+        return true;
+    }
+
+    /** Forget a user, e.g. after logout; false if unknown */
+    public boolean remove(String userId) {
+        synchronized (stripe(userId)) {
+            Position old = users.remove(userId);
+            if (old == null) return false;
+            removeFromCell(old);
+            return true;
+        }
+    }
+
+    /**
+     * Drop users whose last fix is older than {@code cutoff}; they could be anywhere by now
+     *
+     * @return the number of users removed
+     */
+    public int evictOlderThan(long cutoff) {
+        int removed = 0;
+        for (Position position : users.values()) {
+            if (position.updatedAt >= cutoff) continue;
+            synchronized (stripe(position.userId)) {
+                // Only if it was not updated in the meantime
+                if (users.remove(position.userId, position)) {
+                    removeFromCell(position);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    public Position get(String userId) {
+        return users.get(userId);
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    public int cellCount() {
+        return cells.size();
+    }
+
+    /**
+     * Users within {@code radiusMeters} of a point, nearest first
+     *
+     * @param notBefore     ignore fixes older than this, epoch millis; 0 for all
+     * @param excludeUserId the sender of the alert, may be null
+     * @param limit         at most this many of the nearest users
+     */
+    public List<Match> near(double latitude, double longitude, double radiusMeters, long notBefore,
+                            String excludeUserId, int limit) {
+        return ring(latitude, longitude, -1, radiusMeters, notBefore, excludeUserId, limit);
+    }
+
+    /**
+     * Users farther than {@code innerRadiusMeters} but within {@code radiusMeters}, nearest
+     * first: the next ring of an alert that widens its radius step by step. Cells entirely
+     * inside the inner circle, already covered by the previous ring, are not visited.
+     */
+    public List<Match> ring(double latitude, double longitude, double innerRadiusMeters, double radiusMeters,
+                            long notBefore, String excludeUserId, int limit) {
+        Map<String, Match> found = new HashMap<>();
+        scan(latitude, longitude, innerRadiusMeters, radiusMeters, notBefore, excludeUserId, found);
+        List<Match> matches = new ArrayList<>(found.values());
+        if (matches.size() > 1) {
+            matches.sort(BY_DISTANCE);
+        }
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /** Number of users {@link #near} would find without a limit */
+    public int countNear(double latitude, double longitude, double radiusMeters, long notBefore,
+                         String excludeUserId) {
+        Map<String, Match> found = new HashMap<>();
+        scan(latitude, longitude, -1, radiusMeters, notBefore, excludeUserId, found);
+        return found.size();
+    }
+
+    private void scan(double latitude, double longitude, double innerRadiusMeters, double radiusMeters,
+                      long notBefore, String excludeUserId, Map<String, Match> matches) {
+        double dLat = Math.toDegrees(radiusMeters / EARTH_RADIUS_METERS);
+        double south = Math.max(-90, latitude - dLat);
+        double north = Math.min(90, latitude + dLat);
+        int firstRow = Geohash.latIndex(south, bits);
+        int lastRow = Geohash.latIndex(north, bits);
+
+        // The box is widest at its edge nearest to the pole
+        double cos = Math.cos(Math.toRadians(Math.max(Math.abs(south), Math.abs(north))));
+        double dLon = cos <= 1e-12 ? 360 : Math.toDegrees(radiusMeters / (EARTH_RADIUS_METERS * cos));
+        int firstColumn;
+        int columns;
+        if (dLon >= 180) {
+            firstColumn = 0;
+            columns = columnMask + 1;
+        } else {
+            firstColumn = Geohash.lonIndex(longitude - dLon, bits);
+            int lastColumn = Geohash.lonIndex(longitude + dLon, bits);
+            columns = ((lastColumn - firstColumn) & columnMask) + 1;
+        }
+
+        long boxCells = (long) (lastRow - firstRow + 1) * columns;
+        if (boxCells > cells.size()) {
+            // Huge radius or sparse data: cheaper to look at every occupied cell
+            for (Map<String, Position> members : cells.values()) {
+                scanCell(members, latitude, longitude, innerRadiusMeters, radiusMeters, notBefore,
+                        excludeUserId, matches);
+            }
+            return;
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int i = 0; i < columns; i++) {
+                int column = (firstColumn + i) & columnMask;
+                Map<String, Position> members = cells.get(Geohash.interleave(column, row, bits));
+                if (members != null && !insideCircle(row, column, latitude, longitude, innerRadiusMeters)) {
+                    scanCell(members, latitude, longitude, innerRadiusMeters, radiusMeters, notBefore,
+                            excludeUserId, matches);
+                }
+            }
+        }
+    }
+
+    // Whether the whole cell lies within the circle. Its corners decide; the 1 m margin covers
+    // parallels not being great circles, which bulges a cell's edge by millimeters
+    private boolean insideCircle(int row, int column, double latitude, double longitude, double radiusMeters) {
+        radiusMeters -= 1;
+        if (radiusMeters <= 0) return false;
+        double south = -90 + row * Geohash.latSpan(bits);
+        double west = -180 + column * Geohash.lonSpan(bits);
+        double north = south + Geohash.latSpan(bits);
+        double east = west + Geohash.lonSpan(bits);
+        return distanceMeters(latitude, longitude, south, west) < radiusMeters
+                && distanceMeters(latitude, longitude, south, east) < radiusMeters
+                && distanceMeters(latitude, longitude, north, west) < radiusMeters
+                && distanceMeters(latitude, longitude, north, east) < radiusMeters;
+    }
+
+    private static void scanCell(Map<String, Position> members, double latitude, double longitude,
+                                 double innerRadiusMeters, double radiusMeters, long notBefore,
+                                 String excludeUserId, Map<String, Match> matches) {
+        for (Position position : members.values()) {
+            if (position.updatedAt < notBefore || position.userId.equals(excludeUserId)) continue;
+            double distance = distanceMeters(latitude, longitude, position.latitude, position.longitude);
+            if (distance > radiusMeters || distance <= innerRadiusMeters) continue;
+            // A user caught mid-move can be in two cells; keep the newer position
+            Match match = new Match(position, distance);
+            Match other = matches.putIfAbsent(position.userId, match);
+            if (other != null && other.position.updatedAt < position.updatedAt) {
+                matches.put(position.userId, match);
+            }
+        }
+    }
+
+    private void removeFromCell(Position position) {
+        cells.computeIfPresent(position.cell, (cell, members) -> {
+            members.remove(position.userId, position);
+            return members.isEmpty() ? null : members;
+        });
+    }
+
+    private Object stripe(String userId) {
+        int hash = userId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Haversine distance in meters
+     */
+    public static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinLat * sinLat + Math.cos(phi1) * Math.cos(phi2) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "ResponderIndex{users=%d, cells=%d, cellBits=%d}",
+                users.size(), cells.size(), bits);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.sosapplication.responder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GeohashTest {
+
+    @Test
+    public void encode_matchesTextualGeohash() {
+        // Reference values from geohash.org
+        assertEquals("u4pruy", Geohash.toString(Geohash.encode(57.64911, 10.40744, 15), 15));
+        assertEquals("ezs42", Geohash.toString(Geohash.encode(42.605, -5.603, 15), 15).substring(0, 5));
+    }
+
+    @Test
+    public void indices_clampAndWrap() {
+        assertEquals(0, Geohash.latIndex(-90, 15));
+        assertEquals((1 << 15) - 1, Geohash.latIndex(90, 15));
+        assertEquals(0, Geohash.lonIndex(-180, 15));
+        assertEquals(0, Geohash.lonIndex(180, 15));
+        assertEquals(Geohash.lonIndex(-179.5, 15), Geohash.lonIndex(180.5, 15));
+        assertEquals((1 << 15) - 1, Geohash.lonIndex(179.9999, 15));
+    }
+
+    @Test
+    public void interleave_putsLongitudeFirst() {
+        assertEquals(0b10, Geohash.interleave(1, 0, 1));
+        assertEquals(0b01, Geohash.interleave(0, 1, 1));
+        assertEquals(0b1011, Geohash.interleave(0b11, 0b01, 2));
+    }
+}
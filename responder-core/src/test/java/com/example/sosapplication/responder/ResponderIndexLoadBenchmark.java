@@ -0,0 +1,125 @@
+package com.example.sosapplication.responder;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load harness: a country's worth of users streaming location updates while SOS alerts
+ * query the index. Prints throughput and query latency; not part of the unit tests, run
+ * it with {@code ./gradlew :responder-core:benchmark}. Sizes can be raised with
+ * -Presponder.users=..., -Presponder.seconds=... .
+ */
+public class ResponderIndexLoadBenchmark {
+
+    private static final int USERS = Integer.getInteger("responder.users", 100_000);
+    private static final int SECONDS = Integer.getInteger("responder.seconds", 3);
+    private static final int UPDATERS = 4;
+    private static final int QUERIERS = 4;
+
+    // Slovakia; most users live around a few cities
+    private static final double[][] CITIES = {
+            {48.1486, 17.1077}, {48.7164, 21.2611}, {49.2231, 18.7394}, {48.7395, 19.1535}, {48.3061, 18.0764}
+    };
+
+    private static double[] randomPosition(Random random) {
+        if (random.nextInt(10) < 3) {
+            return new double[]{47.75 + random.nextDouble() * 1.8, 16.85 + random.nextDouble() * 5.7};
+        }
+        double[] city = CITIES[random.nextInt(CITIES.length)];
+        return new double[]{city[0] + random.nextGaussian() * 0.04, city[1] + random.nextGaussian() * 0.06};
+    }
+
+    @Test
+    public void updatesAndAlertsInParallel() throws Exception {
+        ResponderIndex index = new ResponderIndex();
+        Random seed = new Random(1);
+        double[][] positions = new double[USERS][];
+        long start = System.nanoTime();
+        for (int i = 0; i < USERS; i++) {
+            positions[i] = randomPosition(seed);
+            index.update("user_" + i, "user_" + i, positions[i][0], positions[i][1], 0);
+        }
+        double loadMs = (System.nanoTime() - start) / 1e6;
+        System.out.printf("Loaded %d users in %.0f ms: %s%n", USERS, loadMs, index);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong updates = new AtomicLong();
+        AtomicLong recipients = new AtomicLong();
+        long[][] latencies = new long[QUERIERS][];
+        int[] queries = new int[QUERIERS];
+        CountDownLatch done = new CountDownLatch(UPDATERS + QUERIERS);
+
+        for (int t = 0; t < UPDATERS; t++) {
+            int thread = t;
+            new Thread(() -> {
+                Random random = new Random(100 + thread);
+                long time = 1;
+                long count = 0;
+                while (running.get()) {
+                    // Each updater owns a slice of the users, like one upload stream per device
+                    int user = thread + UPDATERS * random.nextInt(USERS / UPDATERS);
+                    double[] p = positions[user];
+                    p[0] += random.nextGaussian() * 0.0002;
+                    p[1] += random.nextGaussian() * 0.0003;
+                    index.update("user_" + user, "user_" + user, p[0], p[1], time++);
+                    count++;
+                }
+                updates.addAndGet(count);
+                done.countDown();
+            }).start();
+        }
+
+        for (int t = 0; t < QUERIERS; t++) {
+            int thread = t;
+            new Thread(() -> {
+                Random random = new Random(200 + thread);
+                long[] samples = new long[1 << 16];
+                int n = 0;
+                long found = 0;
+                while (running.get()) {
+                    double[] at = randomPosition(random);
+                    int radius = 200 << random.nextInt(4);
+                    long queryStart = System.nanoTime();
+                    found += index.near(at[0], at[1], radius, 0, null, 500).size();
+                    long elapsed = System.nanoTime() - queryStart;
+                    if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                    samples[n++] = elapsed;
+                }
+                latencies[thread] = Arrays.copyOf(samples, n);
+                queries[thread] = n;
+                recipients.addAndGet(found);
+                done.countDown();
+            }).start();
+        }
+
+        Thread.sleep(SECONDS * 1000L);
+        running.set(false);
+        done.await();
+
+        long[] all = new long[0];
+        for (long[] samples : latencies) {
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + samples.length);
+            System.arraycopy(samples, 0, all, offset, samples.length);
+        }
+        Arrays.sort(all);
+        int totalQueries = Arrays.stream(queries).sum();
+        assertTrue(totalQueries > 0);
+        assertTrue(updates.get() > 0);
+        assertEquals(USERS, index.size());
+
+        System.out.printf("%d cpus, %d updaters: %.0f updates/s | %d alert queries: %.0f queries/s, "
+                        + "p50 %.1f us, p99 %.1f us, max %.1f us, %.1f recipients on average%n",
+                Runtime.getRuntime().availableProcessors(), UPDATERS, updates.get() / (double) SECONDS,
+                QUERIERS, totalQueries / (double) SECONDS,
+                all[all.length / 2] / 1e3, all[(int) (all.length * 0.99)] / 1e3, all[all.length - 1] / 1e3,
+                recipients.get() / (double) totalQueries);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.sosapplication.responder;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ResponderIndexTest {
+
+    private static final double LAT = 48.1486;
+    private static final double LON = 17.1077;
+
+    @Test
+    public void near_findsUsersInsideRadiusNearestFirst() {
+        ResponderIndex index = new ResponderIndex();
+        index.update("sender", "sender", LAT, LON, 1);
+        index.update("a", "ext-a", LAT + 0.001, LON, 1);     // ~111 m north
+        index.update("b", "ext-b", LAT, LON + 0.002, 1);     // ~149 m east
+        index.update("c", "ext-c", LAT + 0.003, LON, 1);     // ~334 m north
+
+        List<ResponderIndex.Match> matches = index.near(LAT, LON, 200, 0, "sender", 10);
+        assertEquals(2, matches.size());
+        assertEquals("a", matches.get(0).position.userId);
+        assertEquals("ext-a", matches.get(0).position.externalId);
+        assertEquals(111.2, matches.get(0).distanceMeters, 0.1);
+        assertEquals("b", matches.get(1).position.userId);
+
+        assertEquals(3, index.countNear(LAT, LON, 500, 0, "sender"));
+        assertEquals(1, index.near(LAT, LON, 500, 0, "sender", 1).size());
+    }
+
+    @Test
+    public void near_agreesWithBruteForce() {
+        ResponderIndex index = new ResponderIndex();
+        Random random = new Random(7);
+        Map<String, double[]> positions = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            // Up to ~10 km around the center, denser in the middle
+            double lat = LAT + random.nextGaussian() * 0.03;
+            double lon = LON + random.nextGaussian() * 0.045;
+            positions.put("u" + i, new double[]{lat, lon});
+            index.update("u" + i, null, lat, lon, i);
+        }
+
+        for (int q = 0; q < 200; q++) {
+            double lat = LAT + random.nextGaussian() * 0.03;
+            double lon = LON + random.nextGaussian() * 0.045;
+            double radius = 100 + random.nextDouble() * 3_000;
+            long notBefore = q % 2 == 0 ? 0 : 10_000;
+
+            Set<String> expected = new HashSet<>();
+            for (Map.Entry<String, double[]> e : positions.entrySet()) {
+                double[] p = e.getValue();
+                long time = Long.parseLong(e.getKey().substring(1));
+                if (time >= notBefore && ResponderIndex.distanceMeters(lat, lon, p[0], p[1]) <= radius) {
+                    expected.add(e.getKey());
+                }
+            }
+            Set<String> actual = new HashSet<>();
+            for (ResponderIndex.Match match : index.near(lat, lon, radius, notBefore, null, Integer.MAX_VALUE)) {
+                actual.add(match.position.userId);
+            }
+            assertEquals("query " + q, expected, actual);
+        }
+    }
+
+    @Test
+    public void ring_isTheOuterCircleMinusTheInnerOne() {
+        ResponderIndex index = new ResponderIndex();
+        Random random = new Random(11);
+        for (int i = 0; i < 20_000; i++) {
+            index.update("u" + i, null, LAT + random.nextGaussian() * 0.02, LON + random.nextGaussian() * 0.03, 1);
+        }
+
+        int[] rings = {200, 500, 1_000, 2_000};
+        Set<String> covered = new HashSet<>();
+        int inner = 0;
+        for (int radius : rings) {
+            for (ResponderIndex.Match match : index.ring(LAT, LON, inner, radius, 0, null, Integer.MAX_VALUE)) {
+                assertTrue(match.distanceMeters > inner && match.distanceMeters <= radius);
+                assertTrue("reported twice: " + match.position.userId, covered.add(match.position.userId));
+            }
+            assertEquals(index.countNear(LAT, LON, radius, 0, null), covered.size());
+            inner = radius;
+        }
+    }
+
+    @Test
+    public void near_worksAcrossTheAntimeridianAndAtThePole() {
+        ResponderIndex index = new ResponderIndex();
+        index.update("west", null, -17.0, 179.999, 1);
+        index.update("east", null, -17.0, -179.999, 1);
+        index.update("pole", null, 89.9999, 42, 1);
+
+        assertEquals(2, index.countNear(-17.0, 180.0, 500, 0, null));
+        assertEquals(1, index.countNear(90, 0, 100, 0, null));
+        assertEquals(3, index.countNear(0, 0, 20_100_000, 0, null));
+    }
+
+    @Test
+    public void update_movesUserAndIgnoresOlderFixes() {
+        ResponderIndex index = new ResponderIndex();
+        assertTrue(index.update("a", null, LAT, LON, 100));
+        assertTrue(index.update("a", null, LAT + 0.1, LON, 200));
+        assertFalse(index.update("a", null, LAT, LON, 150));
+
+        assertEquals(0, index.countNear(LAT, LON, 1_000, 0, null));
+        assertEquals(1, index.countNear(LAT + 0.1, LON, 1_000, 0, null));
+        assertEquals(1, index.cellCount());
+        assertEquals(200, index.get("a").updatedAt);
+    }
+
+    @Test
+    public void removeAndEvict_emptyTheCells() {
+        ResponderIndex index = new ResponderIndex();
+        index.update("a", null, LAT, LON, 100);
+        index.update("b", null, LAT + 1, LON, 300);
+        index.update("c", null, LAT + 2, LON, 50);
+
+        assertTrue(index.remove("c"));
+        assertFalse(index.remove("c"));
+        assertEquals(1, index.evictOlderThan(200));
+        assertNull(index.get("a"));
+        assertEquals(1, index.size());
+        assertEquals(1, index.cellCount());
+        assertEquals(0, index.countNear(LAT, LON, 1_000, 0, null));
+    }
+
+    @Test
+    public void concurrentMoves_leaveEveryUserInExactlyOneCell() throws Exception {
+        ResponderIndex index = new ResponderIndex();
+        int threads = 8;
+        int users = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            executor.execute(() -> {
+                try {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 50_000; i++) {
+                        String user = "u" + random.nextInt(users);
+                        index.update(user, null, LAT + random.nextDouble() * 0.05, LON + random.nextDouble() * 0.05,
+                                i);
+                        if (i % 500 == 0) {
+                            // Users never appear twice, even while moving between cells
+                            Set<String> ids = new HashSet<>();
+                            for (ResponderIndex.Match match : index.near(LAT + 0.025, LON + 0.025, 5_000, 0,
+                                    null, Integer.MAX_VALUE)) {
+                                assertTrue(ids.add(match.position.userId));
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(new ArrayList<Throwable>(), errors);
+
+        assertEquals(users, index.size());
+        assertEquals(users, index.countNear(LAT + 0.025, LON + 0.025, 5_000, 0, null));
+        for (int i = 0; i < users; i++) {
+            assertTrue(index.remove("u" + i));
+        }
+        assertEquals(0, index.cellCount());
+    }
+}
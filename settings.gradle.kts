@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "SOSApplication"
 include(":app")
+include(":responder-core")
+include(":benchmark")
  
\ No newline at end of file